@@ -0,0 +1,82 @@
+package com.example.User.benchmarks;
+
+import com.example.User.entities.User;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Encode and decode time of a date-range sized response of 1000 users in
+ * each negotiable format, with mappers built the way Spring MVC builds its
+ * converters. Payload sizes, plain and gzipped, are printed at setup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BinaryFormatBenchmark {
+    @Param({ "json", "cbor", "smile" })
+    private String format;
+
+    private ObjectMapper objectMapper;
+    private JavaType listType;
+    private List<User> users;
+    private byte[] encoded;
+
+    @Setup
+    public void setUp() throws IOException {
+        objectMapper = switch (format) {
+            case "cbor" -> Jackson2ObjectMapperBuilder.cbor().build();
+            case "smile" -> Jackson2ObjectMapperBuilder.smile().build();
+            default -> Jackson2ObjectMapperBuilder.json().build();
+        };
+        listType = objectMapper.getTypeFactory().constructCollectionType(List.class, User.class);
+        users = new ArrayList<>();
+        for(int i = 1; i <= 1000; i++)
+            users.add(User.builder()
+                    .id(i)
+                    .email("user" + i + "@mail.com")
+                    .lastName("Last" + i)
+                    .firstName("First" + i)
+                    .birthDate(new Date(70 + i % 40, i % 12, 1 + i % 28))
+                    .address("Main street " + i)
+                    .phoneNumber("+380937" + (100000 + i))
+                    .build());
+        encoded = objectMapper.writeValueAsBytes(users);
+        System.out.printf("%n%s: %d bytes, %d bytes gzipped%n", format, encoded.length, gzip(encoded).length);
+    }
+
+    @Benchmark
+    public byte[] serialize() throws IOException {
+        return objectMapper.writeValueAsBytes(users);
+    }
+
+    @Benchmark
+    public byte[] serializeGzipped() throws IOException {
+        return gzip(objectMapper.writeValueAsBytes(users));
+    }
+
+    @Benchmark
+    public List<User> deserialize() throws IOException {
+        return objectMapper.readValue(encoded, listType);
+    }
+
+    private static byte[] gzip(byte[] bytes) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length / 4);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(bytes);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.User.benchmarks;
+
+import com.example.User.dto.DateDTO;
+import com.example.User.entities.User;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson (de)serialisation of the request and response bodies, using an
+ * {@link ObjectMapper} configured the way Spring Boot configures the MVC one.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonBenchmark {
+    private ObjectMapper objectMapper;
+    private User user;
+    private byte[] userJson;
+    private byte[] dateJson;
+
+    @Setup
+    public void setUp() throws Exception {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        user = User.builder()
+                .id(1)
+                .email("mail@mail.com")
+                .lastName("Last")
+                .firstName("First")
+                .birthDate(new Date(90, 5, 26))
+                .address("Main street 1")
+                .phoneNumber("+38093763462")
+                .build();
+        userJson = objectMapper.writeValueAsBytes(user);
+        dateJson = ("{\"from\": \"1997-12-10T18:00:00.000Z\", \"to\": \"2027-12-10T18:00:00.000Z\"}").getBytes();
+    }
+
+    @Benchmark
+    public byte[] serializeUser() throws Exception {
+        return objectMapper.writeValueAsBytes(user);
+    }
+
+    @Benchmark
+    public User deserializeUser() throws Exception {
+        return objectMapper.readValue(userJson, User.class);
+    }
+
+    @Benchmark
+    public DateDTO deserializeDateDTO() throws Exception {
+        return objectMapper.readValue(dateJson, DateDTO.class);
+    }
+}
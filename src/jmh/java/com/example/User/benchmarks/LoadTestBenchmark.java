@@ -0,0 +1,368 @@
+package com.example.User.benchmarks;
+
+import com.example.User.UserApplication;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-loop load test of the {@code /users} endpoints with a latency and
+ * throughput regression gate. Requests are sent at a fixed {@code rate} per
+ * second whether or not earlier ones have completed, and latency is measured
+ * from when a request was due rather than when it was sent, so a stalled
+ * server shows up in the percentiles instead of silently slowing the load.
+ * <pre>
+ * mvn -Pbenchmark test-compile exec:exec \
+ *     -Dbenchmark.main=com.example.User.benchmarks.LoadTestBenchmark \
+ *     -Dbenchmark.args="users=10000 rate=500 warmup=10 duration=30 save=true"
+ * </pre>
+ * {@code mix} weighs the operations, by default
+ * {@code create:10,put:15,patch:15,address:10,phone:10,delete:5,date-range:35}.
+ * Deletes only pick from half of the seeded users, so updates never hit a
+ * deleted one. Pass {@code url=jdbc:mysql://...} (plus {@code username} and
+ * {@code password}) to load a real database instead of embedded H2.
+ * <p>
+ * {@code save=true} stores the results as the baseline (by default
+ * {@code src/jmh/resources/load-baseline.properties}, see {@code baseline}),
+ * which is meant to be committed so it survives {@code mvn clean}. Otherwise
+ * the run is compared with a baseline stored for the same workload and exits
+ * with status 1 when any operation's p99 grew by more than
+ * {@code p99-tolerance} (default 0.25), its throughput fell by more than
+ * {@code throughput-tolerance} (default 0.1) or its server error rate (5xx,
+ * including 503 from admission control, and failed connections) rose by more
+ * than {@code error-rate-tolerance} (default 0.01), failing the Maven build.
+ * Fast errors would otherwise pass as better latency and throughput. A run
+ * whose server error rate is above {@code max-error-rate} (default 0.05)
+ * fails whether or not there is a baseline, and is never saved as one.
+ */
+public class LoadTestBenchmark {
+    private static final String DEFAULT_MIX = "create:10,put:15,patch:15,address:10,phone:10,delete:5,date-range:35";
+    private static final String RANGE = "{\"from\":\"1970-01-01T00:00:00.000Z\",\"to\":\"1990-01-01T00:00:00.000Z\"}";
+    private static final String ALL = "{\"from\":\"1900-01-01T00:00:00.000Z\",\"to\":\"2100-01-01T00:00:00.000Z\"}";
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = VirtualThreadBenchmark.parse(args);
+        int users = Integer.parseInt(options.getOrDefault("users", "10000"));
+        int rate = Integer.parseInt(options.getOrDefault("rate", "500"));
+        int warmup = Integer.parseInt(options.getOrDefault("warmup", "10"));
+        int duration = Integer.parseInt(options.getOrDefault("duration", "30"));
+        String mix = options.getOrDefault("mix", DEFAULT_MIX);
+        Path baseline = Path.of(options.getOrDefault("baseline", "src/jmh/resources/load-baseline.properties"));
+        double maxErrorRate = Double.parseDouble(options.getOrDefault("max-error-rate", "0.05"));
+        String workload = "users=" + users + " rate=" + rate + " duration=" + duration + " mix=" + mix;
+
+        Map<String, Result> results;
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(UserApplication.class)
+                .properties("server.port=0",
+                        "spring.datasource.url=" + options.getOrDefault("url",
+                                "jdbc:h2:mem:load;DB_CLOSE_DELAY=-1;NON_KEYWORDS=USER;CASE_INSENSITIVE_IDENTIFIERS=TRUE"),
+                        "spring.datasource.username=" + options.getOrDefault("username", "sa"),
+                        "spring.datasource.password=" + options.getOrDefault("password", ""),
+                        "server.tomcat.max-connections=20000",
+                        "logging.level.root=WARN")
+                .run()) {
+            String base = "http://localhost:" + context.getEnvironment().getProperty("local.server.port") + "/users";
+            results = run(base, parseMix(mix), users, rate, warmup, duration);
+        }
+
+        System.out.printf("%-12s %10s %10s %10s %10s %10s %8s %8s%n", "operation", "req/s", "p50 ms", "p99 ms", "p99.9 ms", "max ms", "errors", "5xx");
+        results.forEach(LoadTestBenchmark::report);
+
+        Result all = results.get("all");
+        if (all.errorRate() > maxErrorRate) {
+            System.out.printf(Locale.ROOT, "FAILED server error rate %.4f above max-error-rate %s%n", all.errorRate(), maxErrorRate);
+            System.exit(1);
+        }
+        if (Boolean.parseBoolean(options.getOrDefault("save", "false"))) {
+            save(baseline, workload, results);
+            System.out.println("Baseline saved to " + baseline);
+        } else if (Files.exists(baseline)) {
+            Properties stored = load(baseline);
+            if (!workload.equals(stored.getProperty("workload")))
+                throw new IllegalStateException("Baseline " + baseline + " was recorded for "
+                        + stored.getProperty("workload") + ", not " + workload);
+            double p99Tolerance = Double.parseDouble(options.getOrDefault("p99-tolerance", "0.25"));
+            double throughputTolerance = Double.parseDouble(options.getOrDefault("throughput-tolerance", "0.1"));
+            double errorRateTolerance = Double.parseDouble(options.getOrDefault("error-rate-tolerance", "0.01"));
+            List<String> regressions = compare(stored, results, p99Tolerance, throughputTolerance, errorRateTolerance);
+            if (!regressions.isEmpty()) {
+                regressions.forEach(regression -> System.out.println("REGRESSION " + regression));
+                System.exit(1);
+            }
+            System.out.println("No regressions against " + baseline);
+        } else {
+            System.out.println("No baseline at " + baseline + ", run with save=true to store one");
+        }
+    }
+
+    private static Map<String, Result> run(String base, Map<String, Integer> mix, int users, int rate,
+                                           int warmup, int duration) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            HttpClient client = HttpClient.newBuilder().executor(executor).connectTimeout(Duration.ofSeconds(10)).build();
+            seed(client, base, users);
+            List<Map<String, Object>> seeded = seeded(client, base);
+            List<Map<String, Object>> updatable = seeded.subList(0, seeded.size() / 2);
+            List<Map<String, Object>> deletable = new ArrayList<>(seeded.subList(seeded.size() / 2, seeded.size()));
+            Collections.shuffle(deletable);
+            Queue<Map<String, Object>> deletes = new ConcurrentLinkedQueue<>(deletable);
+
+            String[] schedule = schedule(mix);
+            Map<String, Recorder> recorders = new LinkedHashMap<>();
+            Map<String, AtomicLong> errors = new LinkedHashMap<>();
+            Map<String, AtomicLong> serverErrors = new LinkedHashMap<>();
+            for (String operation : mix.keySet()) {
+                recorders.put(operation, new Recorder(3));
+                errors.put(operation, new AtomicLong());
+                serverErrors.put(operation, new AtomicLong());
+            }
+
+            long interval = TimeUnit.SECONDS.toNanos(1) / rate;
+            long start = System.nanoTime();
+            long warmupEnd = start + TimeUnit.SECONDS.toNanos(warmup);
+            long end = warmupEnd + TimeUnit.SECONDS.toNanos(duration);
+            List<CompletableFuture<?>> inFlight = new ArrayList<>();
+            for (long i = 0; ; i++) {
+                long due = start + i * interval;
+                if (due >= end)
+                    break;
+                long wait = due - System.nanoTime();
+                if (wait > 0)
+                    LockSupport.parkNanos(wait);
+
+                String operation = schedule[(int) (i % schedule.length)];
+                Map<String, Object> user = updatable.get(ThreadLocalRandom.current().nextInt(updatable.size()));
+                if (operation.equals("delete")) {
+                    Map<String, Object> deleted = deletes.poll();
+                    if (deleted == null)
+                        continue;
+                    user = deleted;
+                }
+                boolean measured = due >= warmupEnd;
+                inFlight.add(client.sendAsync(request(base, operation, user, i), HttpResponse.BodyHandlers.discarding())
+                        .handle((response, failure) -> {
+                            if (measured) {
+                                if (failure != null || response.statusCode() >= 500)
+                                    serverErrors.get(operation).incrementAndGet();
+                                if (failure != null || response.statusCode() >= 300)
+                                    errors.get(operation).incrementAndGet();
+                                else
+                                    recorders.get(operation).recordValue((System.nanoTime() - due) / 1000);
+                            }
+                            return null;
+                        }));
+                if (inFlight.size() >= 10_000)
+                    inFlight.removeIf(CompletableFuture::isDone);
+            }
+            CompletableFuture.allOf(inFlight.toArray(CompletableFuture[]::new)).join();
+
+            Map<String, Result> results = new LinkedHashMap<>();
+            Histogram all = new Histogram(3);
+            long allErrors = 0;
+            long allServerErrors = 0;
+            for (String operation : mix.keySet()) {
+                Histogram histogram = recorders.get(operation).getIntervalHistogram();
+                all.add(histogram);
+                allErrors += errors.get(operation).get();
+                allServerErrors += serverErrors.get(operation).get();
+                results.put(operation, new Result(histogram, errors.get(operation).get(),
+                        serverErrors.get(operation).get(), duration));
+            }
+            results.put("all", new Result(all, allErrors, allServerErrors, duration));
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static HttpRequest request(String base, String operation, Map<String, Object> user, long i) {
+        Object id = user.get("id");
+        HttpRequest.Builder builder = HttpRequest.newBuilder().timeout(Duration.ofSeconds(30));
+        return switch (operation) {
+            case "create" -> builder.uri(URI.create(base))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(user("load" + i + "-" + System.nanoTime() + "@mail.com", i)))
+                    .build();
+            case "put" -> builder.uri(URI.create(base + "/" + id))
+                    .header("Content-Type", "application/json")
+                    .PUT(HttpRequest.BodyPublishers.ofString(user((String) user.get("email"), i)))
+                    .build();
+            case "patch" -> builder.uri(URI.create(base + "/" + id))
+                    .header("Content-Type", "application/merge-patch+json")
+                    .method("PATCH", HttpRequest.BodyPublishers.ofString("{\"lastName\":\"Patched" + i + "\"}"))
+                    .build();
+            case "address" -> builder.uri(URI.create(base + "/" + id + "/update-address?address=Street" + i))
+                    .method("PATCH", HttpRequest.BodyPublishers.noBody())
+                    .build();
+            case "phone" -> builder.uri(URI.create(base + "/" + id + "/update-phone?phone=" + (1_000_000 + i)))
+                    .method("PATCH", HttpRequest.BodyPublishers.noBody())
+                    .build();
+            case "delete" -> builder.uri(URI.create(base + "/" + id)).DELETE().build();
+            case "date-range" -> builder.uri(URI.create(base + "/date-range/page?size=20"))
+                    .header("Content-Type", "application/json")
+                    .method("GET", HttpRequest.BodyPublishers.ofString(RANGE))
+                    .build();
+            default -> throw new IllegalArgumentException("Unknown operation " + operation);
+        };
+    }
+
+    private static String user(String email, long i) {
+        return "{\"email\":\"" + email + "\",\"lastName\":\"Last" + i + "\",\"firstName\":\"First" + i
+                + "\",\"birthDate\":\"" + (1950 + i % 50) + "-0" + (1 + i % 9) + "-1" + (i % 10) + "T00:00:00.000Z\"}";
+    }
+
+    private static void seed(HttpClient client, String base, int users) throws Exception {
+        int batch = 1000;
+        for (int from = 0; from < users; from += batch) {
+            StringBuilder body = new StringBuilder("{\"users\":[");
+            for (int i = from; i < Math.min(users, from + batch); i++) {
+                if (i > from)
+                    body.append(',');
+                body.append(user("user" + i + "@mail.com", i));
+            }
+            body.append("]}");
+            HttpResponse<String> response = client.send(HttpRequest.newBuilder(URI.create(base + "/batch"))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(body.toString()))
+                    .build(), HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 200)
+                throw new IllegalStateException("Seeding failed: " + response.body());
+        }
+    }
+
+    private static List<Map<String, Object>> seeded(HttpClient client, String base) throws Exception {
+        HttpResponse<String> response = client.send(HttpRequest.newBuilder(URI.create(base + "/date-range"))
+                .header("Content-Type", "application/json")
+                .method("GET", HttpRequest.BodyPublishers.ofString(ALL))
+                .build(), HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200)
+            throw new IllegalStateException("Listing seeded users failed: " + response.body());
+        return new ObjectMapper().readValue(response.body(), new TypeReference<>() { });
+    }
+
+    /** Spreads the operations evenly over one round of the mix. */
+    private static String[] schedule(Map<String, Integer> mix) {
+        int total = mix.values().stream().mapToInt(Integer::intValue).sum();
+        String[] schedule = new String[total];
+        int slot = 0;
+        double[] credit = new double[mix.size()];
+        List<String> operations = new ArrayList<>(mix.keySet());
+        while (slot < total) {
+            int next = 0;
+            for (int i = 0; i < credit.length; i++) {
+                credit[i] += mix.get(operations.get(i)) / (double) total;
+                if (credit[i] > credit[next])
+                    next = i;
+            }
+            credit[next] -= 1;
+            schedule[slot++] = operations.get(next);
+        }
+        return schedule;
+    }
+
+    private static Map<String, Integer> parseMix(String mix) {
+        Map<String, Integer> weights = new LinkedHashMap<>();
+        for (String entry : mix.split(",")) {
+            String[] parts = entry.split(":");
+            weights.put(parts[0].trim(), Integer.parseInt(parts[1].trim()));
+        }
+        return weights;
+    }
+
+    private static List<String> compare(Properties baseline, Map<String, Result> results, double p99Tolerance,
+                                        double throughputTolerance, double errorRateTolerance) {
+        List<String> regressions = new ArrayList<>();
+        results.forEach((operation, result) -> {
+            String p99 = baseline.getProperty(operation + ".p99-ms");
+            String throughput = baseline.getProperty(operation + ".throughput");
+            String errorRate = baseline.getProperty(operation + ".error-rate", "0");
+            if (p99 != null && result.p99() > Double.parseDouble(p99) * (1 + p99Tolerance))
+                regressions.add(String.format("%s p99 %.2f ms, baseline %s ms", operation, result.p99(), p99));
+            if (throughput != null && result.throughput() < Double.parseDouble(throughput) * (1 - throughputTolerance))
+                regressions.add(String.format("%s throughput %.1f req/s, baseline %s req/s", operation, result.throughput(), throughput));
+            if (result.errorRate() > Double.parseDouble(errorRate) + errorRateTolerance)
+                regressions.add(String.format("%s server error rate %.4f, baseline %s", operation, result.errorRate(), errorRate));
+        });
+        return regressions;
+    }
+
+    private static void save(Path path, String workload, Map<String, Result> results) throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty("workload", workload);
+        results.forEach((operation, result) -> {
+            properties.setProperty(operation + ".p99-ms", String.format(Locale.ROOT, "%.3f", result.p99()));
+            properties.setProperty(operation + ".throughput", String.format(Locale.ROOT, "%.1f", result.throughput()));
+            properties.setProperty(operation + ".error-rate", String.format(Locale.ROOT, "%.4f", result.errorRate()));
+        });
+        Files.createDirectories(path.toAbsolutePath().getParent());
+        try (Writer writer = Files.newBufferedWriter(path)) {
+            properties.store(writer, "LoadTestBenchmark baseline");
+        }
+    }
+
+    private static Properties load(Path path) throws IOException {
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(path)) {
+            properties.load(reader);
+        }
+        return properties;
+    }
+
+    private static void report(String operation, Result result) {
+        Histogram histogram = result.histogram();
+        System.out.printf("%-12s %10.1f %10.2f %10.2f %10.2f %10.2f %8d %8d%n", operation,
+                result.throughput(),
+                histogram.getValueAtPercentile(50) / 1000.0,
+                result.p99(),
+                histogram.getValueAtPercentile(99.9) / 1000.0,
+                histogram.getMaxValue() / 1000.0,
+                result.errors(),
+                result.serverErrors());
+    }
+
+    /** {@code errors} are all responses other than 2xx, {@code serverErrors} only 5xx and failed requests. */
+    private record Result(Histogram histogram, long errors, long serverErrors, int seconds) {
+        double throughput() {
+            return histogram.getTotalCount() / (double) seconds;
+        }
+
+        double errorRate() {
+            long requests = histogram.getTotalCount() + errors;
+            return requests == 0 ? 0 : serverErrors / (double) requests;
+        }
+
+        double p99() {
+            return histogram.getValueAtPercentile(99) / 1000.0;
+        }
+    }
+}
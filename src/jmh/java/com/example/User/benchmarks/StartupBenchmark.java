@@ -0,0 +1,141 @@
+package com.example.User.benchmarks;
+
+import com.example.User.UserApplication;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time from launching a fresh JVM to the first successful {@code POST /users},
+ * which is what an autoscaler waits for before a new instance takes traffic.
+ * Lazily created beans and deferred repositories are paid for by that first
+ * request, so it is part of the measurement.
+ * <pre>
+ * mvn -Pbenchmark test-compile exec:exec \
+ *     -Dbenchmark.main=com.example.User.benchmarks.StartupBenchmark \
+ *     -Dbenchmark.args="runs=5"
+ * </pre>
+ * Every run starts the application in its own JVM on the benchmark classpath
+ * against a file-based H2 database: {@code baseline} with the default settings
+ * (which also creates the schema), then {@code fast-startup} with that profile.
+ * After {@code mvn -Pfast-startup package} the AOT classes are in
+ * {@code target/classes}; pass {@code aot=true} to add a run using them. A CDS
+ * archive only works for the jar classpath it was trained on, so measure it
+ * with {@code cp="target/User-0.0.1-SNAPSHOT.jar:target/lib/*" cds=target/app.jsa}
+ * and {@code url=jdbc:mysql://...} (plus {@code username} and {@code password}),
+ * as H2 is not on that classpath.
+ */
+public class StartupBenchmark {
+    private static final long TIMEOUT = TimeUnit.SECONDS.toNanos(120);
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = VirtualThreadBenchmark.parse(args);
+        int runs = Integer.parseInt(options.getOrDefault("runs", "5"));
+        int port = Integer.parseInt(options.getOrDefault("port", "18080"));
+        String java = options.getOrDefault("java", ProcessHandle.current().info().command().orElse("java"));
+        String classpath = options.getOrDefault("cp", System.getProperty("java.class.path"));
+        String url = options.getOrDefault("url", "jdbc:h2:file:" + new File("target/startup-benchmark").getAbsolutePath()
+                + ";NON_KEYWORDS=USER;CASE_INSENSITIVE_IDENTIFIERS=TRUE");
+
+        List<String> common = new ArrayList<>(List.of(
+                "-Dserver.port=" + port,
+                "-Dspring.datasource.url=" + url,
+                "-Dspring.datasource.username=" + options.getOrDefault("username", "sa"),
+                "-Dspring.datasource.password=" + options.getOrDefault("password", ""),
+                "-Dlogging.level.root=WARN"));
+        if (url.startsWith("jdbc:h2:")) {
+            common.add("-Dspring.datasource.driver-class-name=org.h2.Driver");
+            common.add("-Dspring.jpa.database-platform=org.hibernate.dialect.H2Dialect");
+        }
+
+        List<String> fastStartup = List.of("-Dspring.profiles.active=fast-startup");
+        List<String> aot = concat(fastStartup, List.of("-Dspring.aot.enabled=true"));
+        boolean useAot = Boolean.parseBoolean(options.getOrDefault("aot", "false"));
+
+        System.out.printf("%-20s %10s %10s %10s%n", "mode", "min ms", "median ms", "max ms");
+        report("baseline", measure(java, classpath, concat(common, List.of()), port, runs));
+        report("fast-startup", measure(java, classpath, concat(common, fastStartup), port, runs));
+        if (useAot) {
+            report("fast-startup+aot", measure(java, classpath, concat(common, aot), port, runs));
+        }
+        if (options.containsKey("cds")) {
+            List<String> cds = concat(useAot ? aot : fastStartup, List.of("-XX:SharedArchiveFile=" + options.get("cds")));
+            report(useAot ? "fast-startup+aot+cds" : "fast-startup+cds",
+                    measure(java, classpath, concat(common, cds), port, runs));
+        }
+    }
+
+    private static long[] measure(String java, String classpath, List<String> jvmArgs, int port, int runs)
+            throws Exception {
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(1)).build();
+        URI uri = URI.create("http://localhost:" + port + "/users");
+        long[] millis = new long[runs];
+        for (int run = 0; run < runs; run++) {
+            List<String> command = new ArrayList<>();
+            command.add(java);
+            command.addAll(jvmArgs);
+            command.addAll(List.of("-cp", classpath, UserApplication.class.getName()));
+            ProcessBuilder builder = new ProcessBuilder(command)
+                    .redirectErrorStream(true)
+                    .redirectOutput(new File("target/startup-benchmark-" + run + ".log"));
+
+            long start = System.nanoTime();
+            Process process = builder.start();
+            try {
+                millis[run] = TimeUnit.NANOSECONDS.toMillis(firstCreate(client, uri, process, start) - start);
+            } finally {
+                process.destroy();
+                if (!process.waitFor(30, TimeUnit.SECONDS)) {
+                    process.destroyForcibly().waitFor();
+                }
+            }
+        }
+        return millis;
+    }
+
+    private static long firstCreate(HttpClient client, URI uri, Process process, long start) throws Exception {
+        while (System.nanoTime() - start < TIMEOUT) {
+            if (!process.isAlive()) {
+                throw new IllegalStateException("Application exited with " + process.exitValue()
+                        + ", see target/startup-benchmark-*.log");
+            }
+            String body = "{\"email\":\"startup" + System.nanoTime() + "@mail.com\",\"lastName\":\"Last\","
+                    + "\"firstName\":\"First\",\"birthDate\":\"1990-01-01T00:00:00.000Z\"}";
+            try {
+                HttpResponse<Void> response = client.send(HttpRequest.newBuilder(uri)
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofString(body))
+                        .timeout(Duration.ofSeconds(30))
+                        .build(), HttpResponse.BodyHandlers.discarding());
+                if (response.statusCode() == 200) {
+                    return System.nanoTime();
+                }
+            } catch (IOException e) {
+                // not listening yet
+            }
+            Thread.sleep(10);
+        }
+        throw new IllegalStateException("No successful POST /users within " + TimeUnit.NANOSECONDS.toSeconds(TIMEOUT) + "s");
+    }
+
+    private static List<String> concat(List<String> first, List<String> second) {
+        List<String> all = new ArrayList<>(first);
+        all.addAll(second);
+        return all;
+    }
+
+    private static void report(String label, long[] millis) {
+        Arrays.sort(millis);
+        System.out.printf("%-20s %10d %10d %10d%n", label, millis[0], millis[millis.length / 2], millis[millis.length - 1]);
+    }
+}
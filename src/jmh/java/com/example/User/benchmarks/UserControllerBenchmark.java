@@ -0,0 +1,59 @@
+package com.example.User.benchmarks;
+
+import com.example.User.controllers.UserController;
+import com.example.User.entities.User;
+import com.example.User.exceptions.UserNotCreatedException;
+import com.example.User.util.UserValidator;
+import jakarta.validation.Validation;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.validation.BeanPropertyBindingResult;
+import org.springframework.validation.BindingResult;
+
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rejection path of {@link UserController#create}: validation errors are
+ * collected into the message of a {@link UserNotCreatedException}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserControllerBenchmark {
+    private UserController userController;
+    private User invalid;
+
+    @Setup
+    public void setUp() {
+        StandardEnvironment environment = new StandardEnvironment();
+        environment.getPropertySources().addFirst(new MapPropertySource("benchmark", Map.of("age", "18")));
+        userController = new UserController(null, null, new UserValidator(environment),
+                Validation.buildDefaultValidatorFactory().getValidator(),
+                Jackson2ObjectMapperBuilder.json().build());
+        invalid = User.builder()
+                .email("NOT_VALID")
+                .birthDate(new Date())
+                .build();
+    }
+
+    @Benchmark
+    public String createRejected() {
+        BindingResult bindingResult = new BeanPropertyBindingResult(invalid, "user");
+        bindingResult.rejectValue("email", "", "must be a well-formed email address");
+        bindingResult.rejectValue("lastName", "", "must not be empty");
+        bindingResult.rejectValue("firstName", "", "must not be empty");
+        try {
+            userController.create(invalid, bindingResult);
+            throw new IllegalStateException("User should have been rejected");
+        } catch (UserNotCreatedException e) {
+            return e.getMessage();
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.User.benchmarks;
+
+import com.example.User.UserApplication;
+import com.example.User.dto.UserPageDTO;
+import com.example.User.entities.User;
+import com.example.User.services.UserService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@link UserService} operations against an embedded H2 database seeded with
+ * {@link #users} rows. The application context is started once per fork.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserServiceBenchmark {
+    @Param("10000")
+    private int users;
+
+    private ConfigurableApplicationContext context;
+    private UserService userService;
+    private final AtomicInteger sequence = new AtomicInteger();
+
+    @Setup
+    public void setUp() {
+        context = new SpringApplicationBuilder(UserApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties("spring.datasource.url=jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1;NON_KEYWORDS=USER;CASE_INSENSITIVE_IDENTIFIERS=TRUE",
+                        "spring.datasource.driver-class-name=org.h2.Driver",
+                        "spring.jpa.hibernate.ddl-auto=create",
+                        "logging.level.root=WARN")
+                .run();
+        userService = context.getBean(UserService.class);
+
+        List<User> seed = new ArrayList<>(users);
+        for (int i = 0; i < users; i++)
+            seed.add(newUser());
+        userService.saveAll(seed);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public void save() {
+        userService.save(newUser());
+    }
+
+    @Benchmark
+    public User findById() {
+        return userService.findById(randomId());
+    }
+
+    @Benchmark
+    public void patch() {
+        userService.patch(randomId(), Map.of("address", "Street " + sequence.get()), null);
+    }
+
+    @Benchmark
+    public UserPageDTO findPageByDateRange() {
+        return userService.findPageByDateRange(new Date(80, 0, 1), new Date(90, 0, 1), null, 100);
+    }
+
+    private int randomId() {
+        return ThreadLocalRandom.current().nextInt(1, users + 1);
+    }
+
+    private User newUser() {
+        int n = sequence.incrementAndGet();
+        return User.builder()
+                .email("user" + n + "@mail.com")
+                .lastName("Last" + n)
+                .firstName("First" + n)
+                .birthDate(new Date(60 + n % 40, n % 12, 1 + n % 28))
+                .build();
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.User.benchmarks;
+
+import com.example.User.entities.User;
+import com.example.User.util.UserValidator;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.validation.BeanPropertyBindingResult;
+import org.springframework.validation.Errors;
+
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of {@link UserValidator#validate} per call, including the {@code age}
+ * property lookup and the threshold date computation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserValidatorBenchmark {
+    private UserValidator userValidator;
+    private User adult;
+
+    @Setup
+    public void setUp() {
+        StandardEnvironment environment = new StandardEnvironment();
+        environment.getPropertySources().addFirst(new MapPropertySource("benchmark", Map.of("age", "18")));
+        userValidator = new UserValidator(environment);
+        adult = User.builder()
+                .email("mail@mail.com")
+                .lastName("Last")
+                .firstName("First")
+                .birthDate(new Date(90, 5, 26))
+                .build();
+    }
+
+    @Benchmark
+    public Errors validate() {
+        Errors errors = new BeanPropertyBindingResult(adult, "user");
+        userValidator.validate(adult, errors);
+        return errors;
+    }
+}
@@ -0,0 +1,155 @@
+package com.example.User.benchmarks;
+
+import com.example.User.UserApplication;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Closed-loop throughput and latency of the blocking JDBC path with Tomcat on
+ * its platform worker pool versus on virtual threads. Each of {@code clients}
+ * concurrent clients sends a date-range page query, waits for the response and
+ * sends the next one.
+ * <pre>
+ * mvn -Pbenchmark test-compile exec:exec -Dbenchmark.java=$JAVA21_HOME/bin/java \
+ *     -Dbenchmark.main=com.example.User.benchmarks.VirtualThreadBenchmark \
+ *     -Dbenchmark.args="clients=1000 warmup=10 duration=30 users=10000"
+ * </pre>
+ * Pass {@code url=jdbc:mysql://...} (plus {@code username} and {@code password})
+ * to measure against a real database instead of embedded H2. The virtual
+ * thread run is skipped on a runtime older than Java 21.
+ */
+public class VirtualThreadBenchmark {
+    private static final String RANGE = "{\"from\":\"1970-01-01T00:00:00.000Z\",\"to\":\"1990-01-01T00:00:00.000Z\"}";
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parse(args);
+        int clients = Integer.parseInt(options.getOrDefault("clients", "1000"));
+        int warmup = Integer.parseInt(options.getOrDefault("warmup", "10"));
+        int duration = Integer.parseInt(options.getOrDefault("duration", "30"));
+        int users = Integer.parseInt(options.getOrDefault("users", "10000"));
+
+        System.out.printf("%-10s %12s %10s %10s %10s %8s%n", "threads", "req/s", "p50 ms", "p99 ms", "max ms", "errors");
+        report("platform", run(options, false, clients, warmup, duration, users));
+        if (Runtime.version().feature() >= 21) {
+            report("virtual", run(options, true, clients, warmup, duration, users));
+        } else {
+            System.out.println("virtual    skipped, needs a Java 21+ runtime (-Dbenchmark.java)");
+        }
+    }
+
+    private static Result run(Map<String, String> options, boolean virtual, int clients,
+                              int warmup, int duration, int users) throws Exception {
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(UserApplication.class)
+                .properties("server.port=0",
+                        "spring.threads.virtual.enabled=" + virtual,
+                        "spring.datasource.url=" + options.getOrDefault("url",
+                                "jdbc:h2:mem:vt" + virtual + ";DB_CLOSE_DELAY=-1;NON_KEYWORDS=USER;CASE_INSENSITIVE_IDENTIFIERS=TRUE"),
+                        "spring.datasource.username=" + options.getOrDefault("username", "sa"),
+                        "spring.datasource.password=" + options.getOrDefault("password", ""),
+                        "spring.datasource.hikari.maximum-pool-size=" + options.getOrDefault("pool", "50"),
+                        "server.tomcat.max-connections=20000",
+                        "server.tomcat.accept-count=1000",
+                        "logging.level.root=WARN")
+                .run()) {
+            String base = "http://localhost:" + context.getEnvironment().getProperty("local.server.port") + "/users";
+            ExecutorService executor = Executors.newFixedThreadPool(4);
+            HttpClient client = HttpClient.newBuilder().executor(executor).connectTimeout(Duration.ofSeconds(10)).build();
+            seed(client, base, users);
+
+            Recorder recorder = new Recorder(3);
+            AtomicLong errors = new AtomicLong();
+            long warmupEnd = System.nanoTime() + warmup * 1_000_000_000L;
+            long end = warmupEnd + duration * 1_000_000_000L;
+            HttpRequest request = HttpRequest.newBuilder(URI.create(base + "/date-range/page?size=20"))
+                    .header("Content-Type", "application/json")
+                    .method("GET", HttpRequest.BodyPublishers.ofString(RANGE))
+                    .timeout(Duration.ofSeconds(30))
+                    .build();
+
+            CompletableFuture<?>[] loops = new CompletableFuture<?>[clients];
+            for (int i = 0; i < clients; i++)
+                loops[i] = loop(client, request, recorder, errors, warmupEnd, end);
+            CompletableFuture.allOf(loops).join();
+            executor.shutdownNow();
+
+            return new Result(recorder.getIntervalHistogram(), errors.get(), duration);
+        }
+    }
+
+    private static CompletableFuture<Void> loop(HttpClient client, HttpRequest request, Recorder recorder,
+                                                AtomicLong errors, long warmupEnd, long end) {
+        long start = System.nanoTime();
+        if (start >= end)
+            return CompletableFuture.completedFuture(null);
+        return client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                .handle((response, failure) -> {
+                    if (start >= warmupEnd) {
+                        if (failure != null || response.statusCode() != 200)
+                            errors.incrementAndGet();
+                        else
+                            recorder.recordValue((System.nanoTime() - start) / 1000);
+                    }
+                    return null;
+                })
+                .thenCompose(ignored -> loop(client, request, recorder, errors, warmupEnd, end));
+    }
+
+    private static void seed(HttpClient client, String base, int users) throws Exception {
+        int batch = 1000;
+        for (int from = 0; from < users; from += batch) {
+            StringBuilder body = new StringBuilder("{\"users\":[");
+            for (int i = from; i < Math.min(users, from + batch); i++) {
+                if (i > from)
+                    body.append(',');
+                body.append("{\"email\":\"user").append(i).append("@mail.com\",\"lastName\":\"Last").append(i)
+                        .append("\",\"firstName\":\"First").append(i).append("\",\"birthDate\":\"")
+                        .append(1950 + i % 50).append("-0").append(1 + i % 9).append("-1").append(i % 10)
+                        .append("T00:00:00.000Z\"}");
+            }
+            body.append("]}");
+            HttpResponse<String> response = client.send(HttpRequest.newBuilder(URI.create(base + "/batch"))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(body.toString()))
+                    .build(), HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 200)
+                throw new IllegalStateException("Seeding failed: " + response.body());
+        }
+    }
+
+    private static void report(String label, Result result) {
+        Histogram histogram = result.histogram();
+        System.out.printf("%-10s %12.1f %10.2f %10.2f %10.2f %8d%n", label,
+                histogram.getTotalCount() / (double) result.seconds(),
+                histogram.getValueAtPercentile(50) / 1000.0,
+                histogram.getValueAtPercentile(99) / 1000.0,
+                histogram.getMaxValue() / 1000.0,
+                result.errors());
+    }
+
+    static Map<String, String> parse(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (separator > 0)
+                options.put(arg.substring(0, separator), arg.substring(separator + 1));
+        }
+        return options;
+    }
+
+    private record Result(Histogram histogram, long errors, int seconds) {
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.User.admission;
+
+/**
+ * Concurrency limit adjusted by additive increase / multiplicative decrease
+ * on observed latency. A response slower than the threshold multiplies the
+ * limit by the backoff ratio, at most once per round trip: requests started
+ * before the last decrease do not decrease it again. Fast responses grow the
+ * limit by about one per round trip, but only while it is actually used, so
+ * an idle endpoint does not build up a limit it never proved it can take.
+ */
+public class AdaptiveLimit {
+    private final int minLimit;
+    private final int maxLimit;
+    private final double backoffRatio;
+    private final long thresholdNanos;
+
+    private double limit;
+    private int inFlight;
+    private long lastDecreaseNanos;
+
+    public AdaptiveLimit(int initialLimit, int minLimit, int maxLimit, double backoffRatio, long thresholdNanos) {
+        this.limit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.backoffRatio = backoffRatio;
+        this.thresholdNanos = thresholdNanos;
+        this.lastDecreaseNanos = System.nanoTime();
+    }
+
+    /**
+     * @return whether the request may start; if so it must be released
+     */
+    public synchronized boolean tryAcquire() {
+        if(inFlight >= (int) limit) {
+            return false;
+        }
+        inFlight++;
+        return true;
+    }
+
+    /**
+     * Releases a request started at {@code startNanos} and adjusts the limit
+     * to how long it took.
+     */
+    public synchronized void release(long startNanos, long endNanos) {
+        int wasInFlight = inFlight--;
+        if(endNanos - startNanos > thresholdNanos) {
+            if(startNanos - lastDecreaseNanos >= 0) {
+                limit = Math.max(minLimit, limit * backoffRatio);
+                lastDecreaseNanos = endNanos;
+            }
+        } else if(wasInFlight * 2 >= limit) {
+            limit = Math.min(maxLimit, limit + 1 / limit);
+        }
+    }
+
+    /** Releases a request without using its latency. */
+    public synchronized void release() {
+        inFlight--;
+    }
+
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.User.admission;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Sets the {@link Priority} of a handler method. Without it, {@code GET} and
+ * {@code HEAD} requests are {@link Priority#READ} and others {@link Priority#WRITE}.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Admission {
+    Priority value();
+}
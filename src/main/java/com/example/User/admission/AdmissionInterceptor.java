@@ -0,0 +1,151 @@
+package com.example.User.admission;
+
+import com.example.User.exceptions.ServiceOverloadedException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Admission control for the user endpoints, so a traffic spike is turned away
+ * at the door with 503 and {@code Retry-After} instead of queueing on Tomcat
+ * threads and Hikari connections until requests time out.
+ * <p>
+ * Every handler method has its own {@link AdaptiveLimit} driven by its
+ * latency against {@code users.admission.latency-threshold}. On top of that,
+ * requests in flight across all endpoints are capped per {@link Priority}, so
+ * as load grows bulk endpoints are shed first, then writes, and reads such as
+ * the date-range queries keep the remaining capacity.
+ */
+@Component
+@Profile("!reactive")
+@ConditionalOnProperty(value = "users.admission.enabled", havingValue = "true")
+public class AdmissionInterceptor implements AsyncHandlerInterceptor {
+    private static final String PERMIT = AdmissionInterceptor.class.getName() + ".permit";
+
+    private record Endpoint(String name, Priority priority, AdaptiveLimit limit, Counter rejected) {
+    }
+
+    private record Permit(Endpoint endpoint, long startNanos) {
+    }
+
+    private final MeterRegistry meterRegistry;
+    private final int maxConcurrency;
+    private final int initialLimit;
+    private final int minLimit;
+    private final int maxLimit;
+    private final double backoffRatio;
+    private final Duration latencyThreshold;
+    private final Duration retryAfter;
+
+    private final Map<Method, Endpoint> endpoints = new ConcurrentHashMap<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    @Autowired
+    public AdmissionInterceptor(MeterRegistry meterRegistry,
+                                @Value("${users.admission.max-concurrency}") int maxConcurrency,
+                                @Value("${users.admission.initial-limit}") int initialLimit,
+                                @Value("${users.admission.min-limit}") int minLimit,
+                                @Value("${users.admission.max-limit}") int maxLimit,
+                                @Value("${users.admission.backoff-ratio}") double backoffRatio,
+                                @Value("${users.admission.latency-threshold}") Duration latencyThreshold,
+                                @Value("${users.admission.retry-after}") Duration retryAfter) {
+        this.meterRegistry = meterRegistry;
+        this.maxConcurrency = maxConcurrency;
+        this.initialLimit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.backoffRatio = backoffRatio;
+        this.latencyThreshold = latencyThreshold;
+        this.retryAfter = retryAfter;
+        Gauge.builder("users.admission.in-flight", inFlight, AtomicInteger::get)
+                .description("Admitted user requests in flight")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if(!(handler instanceof HandlerMethod handlerMethod) || request.getDispatcherType() != DispatcherType.REQUEST) {
+            return true;
+        }
+        Endpoint endpoint = endpoints.computeIfAbsent(handlerMethod.getMethod(),
+                method -> endpoint(handlerMethod, request));
+
+        if(inFlight.incrementAndGet() > maxConcurrency * endpoint.priority().getShare()) {
+            inFlight.decrementAndGet();
+            throw reject(endpoint, "Server is overloaded, " + endpoint.priority() + " requests are shed");
+        }
+        if(!endpoint.limit().tryAcquire()) {
+            inFlight.decrementAndGet();
+            throw reject(endpoint, "Too many concurrent requests to " + endpoint.name());
+        }
+        request.setAttribute(PERMIT, new Permit(endpoint, System.nanoTime()));
+        return true;
+    }
+
+    /** Long-lived async requests release their permit once the handler returns. */
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        Permit permit = removePermit(request);
+        if(permit != null) {
+            permit.endpoint().limit().release();
+        }
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        Permit permit = removePermit(request);
+        if(permit != null) {
+            permit.endpoint().limit().release(permit.startNanos(), System.nanoTime());
+        }
+    }
+
+    private Permit removePermit(HttpServletRequest request) {
+        Permit permit = (Permit) request.getAttribute(PERMIT);
+        if(permit != null) {
+            request.removeAttribute(PERMIT);
+            inFlight.decrementAndGet();
+        }
+        return permit;
+    }
+
+    private ServiceOverloadedException reject(Endpoint endpoint, String message) {
+        endpoint.rejected().increment();
+        return new ServiceOverloadedException(message, retryAfter);
+    }
+
+    private Endpoint endpoint(HandlerMethod handlerMethod, HttpServletRequest request) {
+        String name = handlerMethod.getBeanType().getSimpleName() + "." + handlerMethod.getMethod().getName();
+        Admission admission = handlerMethod.getMethodAnnotation(Admission.class);
+        Priority priority = admission != null ? admission.value()
+                : HttpMethod.GET.matches(request.getMethod()) || HttpMethod.HEAD.matches(request.getMethod())
+                ? Priority.READ : Priority.WRITE;
+        AdaptiveLimit limit = new AdaptiveLimit(initialLimit, minLimit, maxLimit, backoffRatio, latencyThreshold.toNanos());
+        Gauge.builder("users.admission.limit", limit, AdaptiveLimit::getLimit)
+                .description("Adaptive concurrency limit of a user endpoint")
+                .tag("endpoint", name)
+                .register(meterRegistry);
+        Counter rejected = Counter.builder("users.admission.rejected")
+                .description("User requests rejected by admission control")
+                .tag("endpoint", name)
+                .tag("priority", priority.name())
+                .register(meterRegistry);
+        return new Endpoint(name, priority, limit, rejected);
+    }
+}
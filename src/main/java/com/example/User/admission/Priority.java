@@ -0,0 +1,22 @@
+package com.example.User.admission;
+
+/**
+ * Admission priority of an endpoint. Under load, lower priorities are shed
+ * first: a request is only admitted while the requests in flight across all
+ * endpoints stay below {@code share} of {@code users.admission.max-concurrency}.
+ */
+public enum Priority {
+    READ(1.0),
+    WRITE(0.8),
+    BULK(0.5);
+
+    private final double share;
+
+    Priority(double share) {
+        this.share = share;
+    }
+
+    public double getShare() {
+        return share;
+    }
+}
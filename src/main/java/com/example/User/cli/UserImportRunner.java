@@ -0,0 +1,48 @@
+package com.example.User.cli;
+
+import com.example.User.services.ImportJob;
+import com.example.User.services.UserImportService;
+import com.example.User.util.UserRecordReader.Format;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Imports a file at startup, e.g.
+ * {@code java -jar user.jar --users.import.file=users.csv --spring.main.web-application-type=none}.
+ * Files ending in {@code .csv} are read as CSV, anything else as NDJSON. The
+ * application fails to start if the import fails.
+ */
+@Component
+@Profile("!reactive")
+@ConditionalOnProperty("users.import.file")
+public class UserImportRunner implements ApplicationRunner {
+    private final UserImportService importService;
+    private final Path file;
+
+    @Autowired
+    public UserImportRunner(UserImportService importService, @Value("${users.import.file}") Path file) {
+        this.importService = importService;
+        this.file = file;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        Format format = file.getFileName().toString().toLowerCase().endsWith(".csv") ? Format.CSV : Format.NDJSON;
+        ImportJob job;
+        try (InputStream in = Files.newInputStream(file)) {
+            job = importService.run(in, format, file.toString());
+        }
+        if(job.getStatus() == ImportJob.Status.FAILED) {
+            throw new IllegalStateException("Import of " + file + " failed: " + job.toReport().getFailure());
+        }
+    }
+}
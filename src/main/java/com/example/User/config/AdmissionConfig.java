@@ -0,0 +1,33 @@
+package com.example.User.config;
+
+import com.example.User.admission.AdmissionInterceptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+@Profile("!reactive")
+@ConditionalOnProperty(value = "users.admission.enabled", havingValue = "true")
+public class AdmissionConfig implements WebMvcConfigurer {
+    private final AdmissionInterceptor admissionInterceptor;
+
+    @Autowired
+    public AdmissionConfig(AdmissionInterceptor admissionInterceptor) {
+        this.admissionInterceptor = admissionInterceptor;
+    }
+
+    /**
+     * Applies admission control to the user endpoints. The change feed is
+     * left out: its subscribers hold a connection for minutes by design and
+     * do not use a Tomcat thread while waiting.
+     */
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(admissionInterceptor)
+                .addPathPatterns("/users", "/users/**")
+                .excludePathPatterns("/users/changes");
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.User.config;
+
+import org.springframework.boot.autoconfigure.cache.CacheProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.cache.transaction.TransactionAwareCacheDecorator;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Configuration
+@EnableCaching
+@EnableConfigurationProperties(CacheProperties.class)
+public class CacheConfig {
+
+    /**
+     * Caffeine (W-TinyLFU, size and TTL bounded) cache manager whose
+     * evictions are deferred until the surrounding transaction commits, so an
+     * entry is only dropped once the write that invalidates it is visible.
+     * Puts are not deferred: a read finishing after a concurrent write would
+     * otherwise put its old value back after that write's eviction.
+     */
+    @Bean
+    public CacheManager cacheManager(CacheProperties cacheProperties) {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+        cacheManager.setCacheSpecification(cacheProperties.getCaffeine().getSpec());
+        cacheManager.setCacheNames(cacheProperties.getCacheNames());
+        return new EvictAfterCommitCacheManager(cacheManager);
+    }
+
+    private static class EvictAfterCommitCacheManager implements CacheManager {
+        private final CacheManager target;
+        private final Map<String, Cache> caches = new ConcurrentHashMap<>();
+
+        EvictAfterCommitCacheManager(CacheManager target) {
+            this.target = target;
+        }
+
+        @Override
+        public Cache getCache(String name) {
+            return caches.computeIfAbsent(name, key -> {
+                Cache cache = target.getCache(key);
+                return cache == null ? null : new EvictAfterCommitCache(cache);
+            });
+        }
+
+        @Override
+        public Collection<String> getCacheNames() {
+            return target.getCacheNames();
+        }
+    }
+
+    private static class EvictAfterCommitCache extends TransactionAwareCacheDecorator {
+        EvictAfterCommitCache(Cache target) {
+            super(target);
+        }
+
+        @Override
+        public void put(Object key, Object value) {
+            getTargetCache().put(key, value);
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.User.config;
+
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.MethodIntrospector;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.scheduling.annotation.Scheduled;
+
+@Configuration
+@Profile("fast-startup")
+public class FastStartupConfig {
+
+    /**
+     * Keeps beans with {@code @Scheduled} methods eager under
+     * {@code spring.main.lazy-initialization}: their schedules are only
+     * registered when the bean is created, so a lazy export job, change relay
+     * or stats reconciliation would silently never run.
+     */
+    @Bean
+    public static LazyInitializationExcludeFilter scheduledBeansExcludeFilter() {
+        return (beanName, beanDefinition, beanType) -> !MethodIntrospector.selectMethods(beanType,
+                (MethodIntrospector.MetadataLookup<Scheduled>) method ->
+                        AnnotatedElementUtils.findMergedAnnotation(method, Scheduled.class)).isEmpty();
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.User.config;
+
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class MetricsConfig {
+
+    /**
+     * Records {@code @Timed} methods of the controller, validator and service
+     * layers, tagged with class and method, so a slow request can be
+     * attributed to the layer it spent its time in.
+     */
+    @Bean
+    public TimedAspect timedAspect(MeterRegistry registry) {
+        return new TimedAspect(registry);
+    }
+}
@@ -0,0 +1,154 @@
+package com.example.User.config;
+
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Sends connections of read-only transactions to the replicas, round robin,
+ * and everything else to the primary. The routing decision is taken when a
+ * connection is requested, so this must sit behind a
+ * {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}
+ * for the transaction's read-only flag to be known by then.
+ * <p>
+ * Replicas lag behind the primary, so a client that just wrote would not
+ * always see its own write. After a write transaction commits during an HTTP
+ * request, the response carries a cookie that keeps that client's reads on
+ * the primary for the read-your-writes window; clients that drop cookies get
+ * replica reads straight away. Reads whose result outlives the request, such
+ * as those filling a shared cache, go to the primary through
+ * {@link #onPrimary}, since a lagging replica would hand the stale row to
+ * every client, that writer included.
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource implements Closeable {
+    public static final String PRIMARY = "primary";
+    public static final String PRIMARY_UNTIL_COOKIE = "users-primary-until";
+
+    private static final String WROTE_ATTRIBUTE = ReadWriteRoutingDataSource.class.getName() + ".wrote";
+    private static final ThreadLocal<Boolean> ON_PRIMARY = new ThreadLocal<>();
+
+    private final DataSource primary;
+    private final List<DataSource> replicas;
+    private final List<String> replicaKeys = new ArrayList<>();
+    private final Duration readYourWrites;
+    private final AtomicInteger next = new AtomicInteger();
+
+    public ReadWriteRoutingDataSource(DataSource primary, List<? extends DataSource> replicas, Duration readYourWrites) {
+        this.primary = primary;
+        this.replicas = List.copyOf(replicas);
+        this.readYourWrites = readYourWrites;
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY, primary);
+        for(int i = 0; i < replicas.size(); i++) {
+            replicaKeys.add("replica-" + i);
+            targets.put("replica-" + i, replicas.get(i));
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        setLenientFallback(false);
+    }
+
+    /**
+     * Runs {@code read} with connections of read-only transactions taken from
+     * the primary; it has to request the connection itself, so it must be the
+     * first statement of its transaction.
+     */
+    public static <T> T onPrimary(Supplier<T> read) {
+        Boolean previous = ON_PRIMARY.get();
+        ON_PRIMARY.set(Boolean.TRUE);
+        try {
+            return read.get();
+        } finally {
+            if(previous == null) {
+                ON_PRIMARY.remove();
+            }
+        }
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if(!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            if(TransactionSynchronizationManager.isSynchronizationActive()) {
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        startReadYourWrites();
+                    }
+                });
+            }
+            return PRIMARY;
+        }
+        if(replicaKeys.isEmpty() || ON_PRIMARY.get() != null || withinReadYourWrites()) {
+            return PRIMARY;
+        }
+        return replicaKeys.get(Math.floorMod(next.getAndIncrement(), replicaKeys.size()));
+    }
+
+    private boolean withinReadYourWrites() {
+        if(readYourWrites.isZero() || !(RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes)) {
+            return false;
+        }
+        HttpServletRequest request = attributes.getRequest();
+        if(request.getAttribute(WROTE_ATTRIBUTE) != null) {
+            return true;
+        }
+        if(request.getCookies() == null) {
+            return false;
+        }
+        for(Cookie cookie: request.getCookies()) {
+            if(PRIMARY_UNTIL_COOKIE.equals(cookie.getName())) {
+                try {
+                    return System.currentTimeMillis() < Long.parseLong(cookie.getValue());
+                } catch (NumberFormatException e) {
+                    return false;
+                }
+            }
+        }
+        return false;
+    }
+
+    private void startReadYourWrites() {
+        if(readYourWrites.isZero() || !(RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes)) {
+            return;
+        }
+        attributes.getRequest().setAttribute(WROTE_ATTRIBUTE, Boolean.TRUE);
+        HttpServletResponse response = attributes.getResponse();
+        if(response != null && !response.isCommitted()) {
+            Cookie cookie = new Cookie(PRIMARY_UNTIL_COOKIE,
+                    String.valueOf(System.currentTimeMillis() + readYourWrites.toMillis()));
+            cookie.setMaxAge((int) Math.max(1, readYourWrites.toSeconds()));
+            cookie.setPath("/");
+            cookie.setHttpOnly(true);
+            response.addCookie(cookie);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        for(DataSource dataSource: replicas)
+            close(dataSource);
+        close(primary);
+    }
+
+    private static void close(DataSource dataSource) throws IOException {
+        if(dataSource instanceof Closeable closeable) {
+            closeable.close();
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.User.config;
+
+import lombok.Data;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Read replicas, configured like {@code spring.datasource}:
+ * {@code users.datasource.replicas[0].url}, {@code .username}, {@code .password}.
+ */
+@Data
+@ConfigurationProperties("users.datasource")
+public class ReplicaDataSourceProperties {
+    private List<DataSourceProperties> replicas = new ArrayList<>();
+
+    /** How long a client that wrote keeps reading from the primary. */
+    private Duration readYourWrites = Duration.ofSeconds(5);
+}
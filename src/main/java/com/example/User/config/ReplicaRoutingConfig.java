@@ -0,0 +1,64 @@
+package com.example.User.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Replaces the single {@code spring.datasource} pool with a primary pool and
+ * one pool per {@code users.datasource.replicas[n]} once a replica is
+ * configured. Each pool reports the {@code hikaricp.*} metrics tagged with
+ * its route ({@code pool=primary}, {@code pool=replica-0}, ...).
+ */
+@Configuration
+@Profile("!reactive")
+@ConditionalOnProperty("users.datasource.replicas[0].url")
+@EnableConfigurationProperties(ReplicaDataSourceProperties.class)
+public class ReplicaRoutingConfig {
+
+    @Bean(destroyMethod = "close")
+    public ReadWriteRoutingDataSource routingDataSource(DataSourceProperties primaryProperties,
+                                                        ReplicaDataSourceProperties replicaProperties,
+                                                        MeterRegistry meterRegistry) {
+        HikariDataSource primary = pool(primaryProperties, ReadWriteRoutingDataSource.PRIMARY, meterRegistry);
+        List<HikariDataSource> replicas = new ArrayList<>();
+        for(int i = 0; i < replicaProperties.getReplicas().size(); i++) {
+            HikariDataSource replica = pool(replicaProperties.getReplicas().get(i), "replica-" + i, meterRegistry);
+            replica.setReadOnly(true);
+            replicas.add(replica);
+        }
+        ReadWriteRoutingDataSource routing =
+                new ReadWriteRoutingDataSource(primary, replicas, replicaProperties.getReadYourWrites());
+        routing.afterPropertiesSet();
+        return routing;
+    }
+
+    /**
+     * Defers fetching the physical connection to the first statement, when the
+     * transaction's read-only flag is set and the route can be chosen.
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(ReadWriteRoutingDataSource routingDataSource) {
+        return new LazyConnectionDataSourceProxy(routingDataSource);
+    }
+
+    private static HikariDataSource pool(DataSourceProperties properties, String name, MeterRegistry meterRegistry) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName(name);
+        dataSource.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+        return dataSource;
+    }
+}
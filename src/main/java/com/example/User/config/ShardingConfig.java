@@ -0,0 +1,112 @@
+package com.example.User.config;
+
+import com.example.User.sharding.ShardRoutingAspect;
+import com.example.User.sharding.ShardTemplate;
+import com.example.User.sharding.ShardedSequenceGenerator;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.relational.SchemaManager;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Horizontal sharding of the user table. Without {@code users.sharding.shards}
+ * there is a single shard, {@code spring.datasource}, and {@link ShardTemplate}
+ * runs everything inline.
+ * <p>
+ * Once shards are configured they replace {@code spring.datasource}; replicas
+ * ({@link ReplicaRoutingConfig}) cannot be combined with them. Users live on
+ * the shard their id encodes. {@code UserService}, the in-memory indexes,
+ * statistics and export read every shard; import writes each user to the
+ * shard its email hashes to, and the change feed keeps a cursor per shard
+ * with one outbox position per shard in its event ids.
+ */
+@Configuration
+@Profile("!reactive")
+@EnableConfigurationProperties(ShardingProperties.class)
+public class ShardingConfig {
+
+    @Bean(destroyMethod = "shutdown")
+    public ShardTemplate shardTemplate(ShardingProperties properties) {
+        return new ShardTemplate(Math.max(1, properties.getShards().size()), properties.getScatterThreads());
+    }
+
+    @Configuration
+    @ConditionalOnProperty("users.sharding.shards[0].url")
+    static class ShardRoutingConfig {
+
+        @Bean(destroyMethod = "close")
+        public ShardRoutingDataSource shardRoutingDataSource(ShardingProperties properties, MeterRegistry meterRegistry) {
+            List<HikariDataSource> shards = new ArrayList<>();
+            for(int i = 0; i < properties.getShards().size(); i++) {
+                HikariDataSource shard = properties.getShards().get(i).initializeDataSourceBuilder()
+                        .type(HikariDataSource.class).build();
+                shard.setPoolName("shard-" + i);
+                shard.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+                shards.add(shard);
+            }
+            ShardRoutingDataSource routing = new ShardRoutingDataSource(shards);
+            routing.afterPropertiesSet();
+            return routing;
+        }
+
+        /**
+         * Defers fetching the physical connection to the first statement, so a
+         * transaction that only scatters to other threads takes none.
+         */
+        @Bean
+        @Primary
+        public DataSource dataSource(ShardRoutingDataSource shardRoutingDataSource) {
+            return new LazyConnectionDataSourceProxy(shardRoutingDataSource);
+        }
+
+        @Bean
+        public HibernatePropertiesCustomizer shardCountCustomizer(ShardingProperties properties) {
+            return hibernateProperties -> hibernateProperties.put(ShardedSequenceGenerator.SHARD_COUNT,
+                    properties.getShards().size());
+        }
+
+        @Bean
+        public ShardRoutingAspect shardRoutingAspect(ShardTemplate shardTemplate) {
+            return new ShardRoutingAspect(shardTemplate);
+        }
+
+        /**
+         * Hibernate only creates the schema on shard 0; with
+         * {@code spring.jpa.hibernate.ddl-auto=create} the other shards are
+         * recreated the same way.
+         */
+        @Bean
+        public SmartInitializingSingleton shardSchemaInitializer(EntityManagerFactory entityManagerFactory,
+                                                                 ShardTemplate shardTemplate,
+                                                                 @Value("${spring.jpa.hibernate.ddl-auto:none}") String ddlAuto) {
+            return () -> {
+                if(!ddlAuto.startsWith("create")) {
+                    return;
+                }
+                SchemaManager schemaManager = entityManagerFactory.unwrap(SessionFactory.class).getSchemaManager();
+                shardTemplate.forEachShard(shard -> {
+                    if(shard > 0) {
+                        schemaManager.dropMappedObjects(false);
+                        schemaManager.exportMappedObjects(false);
+                    }
+                });
+            };
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.User.config;
+
+import lombok.Data;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Shards of the user table, configured like {@code spring.datasource}:
+ * {@code users.sharding.shards[0].url}, {@code .username}, {@code .password}.
+ * The number of shards is fixed once users are stored, as it is encoded in
+ * their ids.
+ */
+@Data
+@ConfigurationProperties("users.sharding")
+public class ShardingProperties {
+    private List<DataSourceProperties> shards = new ArrayList<>();
+
+    /** Threads running queries on all shards at once, shared by all requests. */
+    private int scatterThreads = 16;
+}
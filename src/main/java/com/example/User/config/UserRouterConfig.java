@@ -0,0 +1,27 @@
+package com.example.User.config;
+
+import com.example.User.controllers.UserHandler;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerResponse;
+
+@Configuration
+@Profile("reactive")
+public class UserRouterConfig {
+
+    @Bean
+    public RouterFunction<ServerResponse> userRoutes(UserHandler userHandler) {
+        return RouterFunctions.route()
+                .path("/users", builder -> builder
+                        .POST("", userHandler::create)
+                        .GET("/date-range", userHandler::findByDateRange)
+                        .PUT("/{id}", userHandler::update)
+                        .PATCH("/{id}/update-address", userHandler::changeAddress)
+                        .PATCH("/{id}/update-phone", userHandler::changePhoneNumber)
+                        .DELETE("/{id}", userHandler::delete))
+                .build();
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.User.controllers;
+
+import com.example.User.dto.UserChangeDTO;
+import com.example.User.services.UserChangeRelay;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * Server-Sent Events feed of user changes. Each event id is the feed offset
+ * after that change, so a reconnecting client resumes where it stopped
+ * through the standard {@code Last-Event-ID} header.
+ */
+@RestController
+@Profile("!reactive")
+@RequestMapping("/users/changes")
+public class UserChangeController {
+    private final UserChangeRelay changeRelay;
+    private final Duration timeout;
+
+    @Autowired
+    public UserChangeController(UserChangeRelay changeRelay,
+                                @Value("${users.changes.emitter-timeout}") Duration timeout) {
+        this.changeRelay = changeRelay;
+        this.timeout = timeout;
+    }
+
+    @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter changes(@RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        SseEmitter emitter = new SseEmitter(timeout.toMillis());
+        UserChangeRelay.Listener listener = new UserChangeRelay.Listener() {
+            @Override
+            public void onChange(String eventId, UserChangeDTO change) throws IOException {
+                send(emitter, eventId, change);
+            }
+
+            @Override
+            public void onDropped() {
+                // the client reconnects with Last-Event-ID and catches up from the outbox
+                emitter.complete();
+            }
+        };
+        emitter.onCompletion(() -> changeRelay.unsubscribe(listener));
+        emitter.onTimeout(() -> changeRelay.unsubscribe(listener));
+        emitter.onError(e -> changeRelay.unsubscribe(listener));
+        // catches up from a sender thread, so the backlog is not buffered before the emitter is returned
+        changeRelay.subscribe(lastEventId, listener);
+        return emitter;
+    }
+
+    private static void send(SseEmitter emitter, String eventId, UserChangeDTO change) throws IOException {
+        emitter.send(SseEmitter.event()
+                .id(eventId)
+                .name(change.getType())
+                .data(change, MediaType.APPLICATION_JSON));
+    }
+}
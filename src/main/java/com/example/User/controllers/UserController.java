@@ -1,93 +1,242 @@
 package com.example.User.controllers;
 
+import com.example.User.admission.Admission;
+import com.example.User.admission.Priority;
 import com.example.User.dto.DateDTO;
+import com.example.User.dto.UserBatchDTO;
+import com.example.User.dto.UserDeleteDTO;
+import com.example.User.dto.UserPageDTO;
 import com.example.User.entities.User;
 import com.example.User.exceptions.UserNotCreatedException;
 import com.example.User.exceptions.UserNotUpdatedException;
 import com.example.User.services.UserService;
+import com.example.User.services.UserWriteBehindBuffer;
+import com.example.User.util.ETags;
+import com.example.User.util.ErrorMessages;
 import com.example.User.util.UserValidator;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import io.micrometer.core.annotation.Timed;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.validation.ConstraintViolation;
 import jakarta.validation.Valid;
+import jakarta.validation.Validator;
+import org.springframework.beans.BeanWrapper;
+import org.springframework.beans.BeanWrapperImpl;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.validation.BeanPropertyBindingResult;
 import org.springframework.validation.BindingResult;
-import org.springframework.validation.FieldError;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
+@Timed(value = "users.controller", histogram = true)
 @RestController
+@Profile("!reactive")
 @RequestMapping("/users")
 public class UserController {
+    public static final String MERGE_PATCH_JSON_VALUE = "application/merge-patch+json";
+
     private final UserService userService;
+    private final UserWriteBehindBuffer writeBehindBuffer;
     private final UserValidator userValidator;
+    private final Validator validator;
+    private final ObjectMapper objectMapper;
 
     @Autowired
-    public UserController(UserService userService, UserValidator userValidator) {
+    public UserController(UserService userService, UserWriteBehindBuffer writeBehindBuffer,
+                          UserValidator userValidator, Validator validator, ObjectMapper objectMapper) {
         this.userService = userService;
+        this.writeBehindBuffer = writeBehindBuffer;
         this.userValidator = userValidator;
+        this.validator = validator;
+        this.objectMapper = objectMapper.copy().disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+    }
+
+    /**
+     * Answers {@code If-None-Match} from the version column alone, so an
+     * unchanged user is neither loaded nor serialised.
+     */
+    @GetMapping("/{id}")
+    public ResponseEntity<User> findById(@PathVariable("id") int id,
+                                         @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                         WebRequest request) {
+        if(ifNoneMatch != null && request.checkNotModified(ETags.of(userService.findVersion(id)))) {
+            return null;
+        }
+        User user = userService.findById(id);
+        return ResponseEntity.ok().eTag(ETags.of(user.getVersion())).body(user);
     }
 
     @PostMapping()
     public ResponseEntity<HttpStatus> create(@RequestBody @Valid User user, BindingResult bindingResult){
-        userValidator.validate(user, bindingResult);
+        userValidator.validateNew(user, bindingResult);
         if(bindingResult.hasErrors()){
-            StringBuilder errorMsg = new StringBuilder();
-
-            List<FieldError> errors = bindingResult.getFieldErrors();
-            for(FieldError error: errors)
-                errorMsg.append(error.getField()).append(" - ")
-                        .append(error.getDefaultMessage()).append(";");
-            throw new UserNotCreatedException(errorMsg.toString());
+            throw new UserNotCreatedException(ErrorMessages.of(bindingResult));
         }
         userService.save(user);
         return ResponseEntity.ok(HttpStatus.OK);
 
     }
 
+    @Admission(Priority.BULK)
+    @PostMapping("/batch")
+    public ResponseEntity<HttpStatus> createAll(@RequestBody @Valid UserBatchDTO batch, BindingResult bindingResult){
+        List<User> users = batch.getUsers();
+        for(int i = 0; i < users.size(); i++){
+            bindingResult.pushNestedPath("users[" + i + "]");
+            userValidator.validateNew(users.get(i), bindingResult);
+            bindingResult.popNestedPath();
+        }
+        if(bindingResult.hasErrors()){
+            throw new UserNotCreatedException(ErrorMessages.of(bindingResult));
+        }
+        userService.saveAll(users);
+        return ResponseEntity.ok(HttpStatus.OK);
+    }
+
     @PutMapping("/{id}")
     public ResponseEntity<HttpStatus> update(@RequestBody @Valid User user, BindingResult bindingResult,
-                                             @PathVariable("id") int id) {
+                                             @PathVariable("id") int id,
+                                             @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         userValidator.validate(user, bindingResult);
         if(bindingResult.hasErrors()){
-            StringBuilder errorMsg = new StringBuilder();
+            throw new UserNotUpdatedException(ErrorMessages.of(bindingResult));
+        }
+        writeBehindBuffer.flush(id);
+        userService.update(id, user, ETags.parseIfMatch(ifMatch));
+        return ResponseEntity.ok(HttpStatus.OK);
+    }
 
-            List<FieldError> errors = bindingResult.getFieldErrors();
-            for(FieldError error: errors)
-                errorMsg.append(error.getField()).append(" - ")
-                        .append(error.getDefaultMessage()).append(";");
-            throw new UserNotUpdatedException(errorMsg.toString());
+    @PatchMapping(value = "/{id}", consumes = MERGE_PATCH_JSON_VALUE)
+    public ResponseEntity<HttpStatus> patch(@PathVariable("id") int id, @RequestBody Map<String, Object> patch,
+                                            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        User values = objectMapper.convertValue(patch, User.class);
+        BindingResult bindingResult = new BeanPropertyBindingResult(values, "user");
+        for(String field: patch.keySet()) {
+            if(!UserService.PATCHABLE_FIELDS.contains(field)) {
+                bindingResult.reject("", field + " - can not be patched");
+                continue;
+            }
+            for(ConstraintViolation<User> violation: validator.validateProperty(values, field))
+                bindingResult.rejectValue(field, "", violation.getMessage());
+        }
+        if(patch.containsKey("birthDate")) {
+            userValidator.validate(values, bindingResult);
         }
-        userService.update(id, user);
+        if(bindingResult.hasErrors()){
+            throw new UserNotUpdatedException(ErrorMessages.of(bindingResult));
+        }
+
+        BeanWrapper wrapper = new BeanWrapperImpl(values);
+        Map<String, Object> changes = new HashMap<>();
+        for(String field: patch.keySet())
+            changes.put(field, wrapper.getPropertyValue(field));
+        writeBehindBuffer.flush(id);
+        userService.patch(id, changes, ETags.parseIfMatch(ifMatch));
         return ResponseEntity.ok(HttpStatus.OK);
     }
 
+    /**
+     * With write-behind enabled and no {@code If-Match}, the change is queued
+     * and acknowledged with 202 Accepted; see {@link UserWriteBehindBuffer}.
+     */
     @PatchMapping("/{id}/update-address")
     public ResponseEntity<HttpStatus> changeAddress( @PathVariable("id") int id,
-                                                     @RequestParam(value = "address") String address) {
+                                                     @RequestParam(value = "address") String address,
+                                                     @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
 
-        userService.updateAddress(id, address);
+        if(ifMatch == null && writeBehindBuffer.enqueue(id, "address", address)) {
+            return ResponseEntity.accepted().body(HttpStatus.ACCEPTED);
+        }
+        writeBehindBuffer.flush(id);
+        userService.updateAddress(id, address, ETags.parseIfMatch(ifMatch));
         return ResponseEntity.ok(HttpStatus.OK);
     }
 
     @PatchMapping("/{id}/update-phone")
     public ResponseEntity<HttpStatus> changePhoneNumber( @PathVariable("id") int id,
-                                                         @RequestParam(value = "phone") String phone) {
+                                                         @RequestParam(value = "phone") String phone,
+                                                         @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
 
-        userService.updatePhone(id, phone);
+        if(ifMatch == null && writeBehindBuffer.enqueue(id, "phoneNumber", phone)) {
+            return ResponseEntity.accepted().body(HttpStatus.ACCEPTED);
+        }
+        writeBehindBuffer.flush(id);
+        userService.updatePhone(id, phone, ETags.parseIfMatch(ifMatch));
         return ResponseEntity.ok(HttpStatus.OK);
     }
 
     @DeleteMapping("/{id}")
     public ResponseEntity<HttpStatus> delete(@PathVariable("id") int id){
+        writeBehindBuffer.discard(id);
         userService.delete(id);
         return ResponseEntity.ok(HttpStatus.OK);
     }
 
+    /**
+     * Deletes many users at once, by id list or birth date range, in
+     * set-based chunks; responds with the number of users deleted. Queued
+     * updates of users deleted by range are dropped when written, as the
+     * users can no longer be found by then.
+     */
+    @Admission(Priority.BULK)
+    @DeleteMapping()
+    public ResponseEntity<Integer> deleteAll(@RequestBody @Valid UserDeleteDTO filter) {
+        if(filter.getIds() != null) {
+            filter.getIds().forEach(writeBehindBuffer::discard);
+        }
+        int deleted = filter.getIds() != null ? userService.deleteAll(filter.getIds())
+                : userService.deleteByDateRange(filter.getFrom(), filter.getTo());
+        return ResponseEntity.ok(deleted);
+    }
+
+    @GetMapping("/search")
+    public ResponseEntity<List<User>> search(@RequestParam("q") String query,
+                                             @RequestParam(value = "limit", defaultValue = "10") int limit) {
+        return ResponseEntity.ok(userService.search(query, limit));
+    }
+
     @GetMapping("/date-range")
     public ResponseEntity<List<User>> findByDateRange(@RequestBody @Valid DateDTO dateDTO) {
         return ResponseEntity.status(HttpStatus.OK)
                         .body(userService.findByDateRange(dateDTO.getFrom(), dateDTO.getTo()));
     }
 
+    @GetMapping("/date-range/page")
+    public ResponseEntity<UserPageDTO> findPageByDateRange(@RequestBody @Valid DateDTO dateDTO,
+                                                           @RequestParam(value = "size", defaultValue = "100") int size,
+                                                           @RequestParam(value = "token", required = false) String token) {
+        return ResponseEntity.status(HttpStatus.OK)
+                        .body(userService.findPageByDateRange(dateDTO.getFrom(), dateDTO.getTo(), token, size));
+    }
+
+    @GetMapping(value = "/date-range/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public void streamByDateRange(@RequestBody @Valid DateDTO dateDTO, HttpServletResponse response) throws IOException {
+        ObjectWriter writer = objectMapper.writerFor(User.class);
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        OutputStream out = response.getOutputStream();
+        userService.streamByDateRange(dateDTO.getFrom(), dateDTO.getTo(), user -> {
+            try {
+                writer.writeValue(out, user);
+                out.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        out.flush();
+    }
+
 }
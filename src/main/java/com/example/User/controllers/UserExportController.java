@@ -0,0 +1,56 @@
+package com.example.User.controllers;
+
+import com.example.User.admission.Admission;
+import com.example.User.admission.Priority;
+import com.example.User.services.UserExportService;
+import com.example.User.util.UserRecordReader.Format;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Locale;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Streams the user table ordered by id. The response is gzip encoded when the
+ * client accepts it; a broken download is resumed with {@code afterId} set to
+ * the last id received.
+ */
+@RestController
+@Profile("!reactive")
+@RequestMapping("/users/export")
+public class UserExportController {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final UserExportService exportService;
+
+    @Autowired
+    public UserExportController(UserExportService exportService) {
+        this.exportService = exportService;
+    }
+
+    @Admission(Priority.BULK)
+    @GetMapping
+    public void export(@RequestParam(value = "format", defaultValue = "ndjson") String format,
+                       @RequestParam(value = "afterId", defaultValue = "0") int afterId,
+                       @RequestParam(value = "toId", defaultValue = "" + Integer.MAX_VALUE) int toId,
+                       @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+                       HttpServletResponse response) throws IOException {
+        Format exportFormat = Format.valueOf(format.toUpperCase(Locale.ROOT));
+        response.setContentType(exportFormat == Format.CSV
+                ? UserImportController.TEXT_CSV_VALUE : MediaType.APPLICATION_NDJSON_VALUE);
+        if(acceptEncoding == null || !acceptEncoding.contains("gzip")) {
+            exportService.export(exportFormat, afterId, toId, response.getOutputStream());
+            return;
+        }
+        response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+        try (OutputStream out = new GZIPOutputStream(response.getOutputStream(), BUFFER_SIZE)) {
+            exportService.export(exportFormat, afterId, toId, out);
+        }
+    }
+}
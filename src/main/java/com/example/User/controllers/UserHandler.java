@@ -0,0 +1,139 @@
+package com.example.User.controllers;
+
+import com.example.User.dto.DateDTO;
+import com.example.User.entities.User;
+import com.example.User.exceptions.UserNotCreatedException;
+import com.example.User.exceptions.UserNotFoundException;
+import com.example.User.exceptions.UserNotUpdatedException;
+import com.example.User.services.ReactiveUserService;
+import com.example.User.util.ErrorMessages;
+import com.example.User.util.UserValidator;
+import jakarta.validation.Validator;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.BeanPropertyBindingResult;
+import org.springframework.validation.BindingResult;
+import org.springframework.validation.beanvalidation.SpringValidatorAdapter;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import org.springframework.web.server.ServerWebInputException;
+import reactor.core.publisher.Mono;
+
+import java.util.function.Function;
+
+/**
+ * WebFlux handlers for the reactive profile, mirroring {@link UserController}.
+ * Bodies are validated with the same bean constraints and {@link UserValidator}.
+ */
+@Component
+@Profile("reactive")
+public class UserHandler {
+    private final ReactiveUserService userService;
+    private final UserValidator userValidator;
+    private final SpringValidatorAdapter validator;
+
+    @Autowired
+    public UserHandler(ReactiveUserService userService, UserValidator userValidator, Validator validator) {
+        this.userService = userService;
+        this.userValidator = userValidator;
+        this.validator = new SpringValidatorAdapter(validator);
+    }
+
+    public Mono<ServerResponse> create(ServerRequest request) {
+        return request.bodyToMono(User.class)
+                .flatMap(user -> validate(user, UserNotCreatedException::new))
+                .flatMap(userService::save)
+                .then(ok())
+                .onErrorResume(this::error);
+    }
+
+    public Mono<ServerResponse> update(ServerRequest request) {
+        int id = id(request);
+        return request.bodyToMono(User.class)
+                .flatMap(user -> validate(user, UserNotUpdatedException::new))
+                .flatMap(user -> userService.update(id, user))
+                .then(ok())
+                .onErrorResume(this::error);
+    }
+
+    public Mono<ServerResponse> changeAddress(ServerRequest request) {
+        return userService.updateAddress(id(request), requiredParam(request, "address"))
+                .then(ok())
+                .onErrorResume(this::error);
+    }
+
+    public Mono<ServerResponse> changePhoneNumber(ServerRequest request) {
+        return userService.updatePhone(id(request), requiredParam(request, "phone"))
+                .then(ok())
+                .onErrorResume(this::error);
+    }
+
+    public Mono<ServerResponse> delete(ServerRequest request) {
+        return userService.delete(id(request))
+                .then(ok())
+                .onErrorResume(this::error);
+    }
+
+    /**
+     * Streams matching users as they are read; the driver only fetches as many
+     * rows as the client connection has consumed.
+     */
+    public Mono<ServerResponse> findByDateRange(ServerRequest request) {
+        MediaType mediaType = request.headers().accept().contains(MediaType.APPLICATION_NDJSON)
+                ? MediaType.APPLICATION_NDJSON : MediaType.APPLICATION_JSON;
+        return request.bodyToMono(DateDTO.class)
+                .flatMap(dateDTO -> validate(dateDTO, ServerWebInputException::new))
+                .flatMap(dateDTO -> {
+                    if(dateDTO.getFrom().after(dateDTO.getTo())) {
+                        return Mono.error(new IllegalArgumentException("\'from\' should be before \'to\'"));
+                    }
+                    return ServerResponse.ok()
+                            .contentType(mediaType)
+                            .body(userService.findByDateRange(dateDTO.getFrom(), dateDTO.getTo()), User.class);
+                })
+                .onErrorResume(this::error);
+    }
+
+    private <T> Mono<T> validate(T target, Function<String, RuntimeException> exception) {
+        BindingResult bindingResult = new BeanPropertyBindingResult(target, target.getClass().getSimpleName());
+        validator.validate(target, bindingResult);
+        if(userValidator.supports(target.getClass())) {
+            userValidator.validate(target, bindingResult);
+        }
+        if(bindingResult.hasErrors()) {
+            return Mono.error(exception.apply(ErrorMessages.of(bindingResult)));
+        }
+        return Mono.just(target);
+    }
+
+    private static int id(ServerRequest request) {
+        try {
+            return Integer.parseInt(request.pathVariable("id"));
+        } catch (NumberFormatException e) {
+            throw new ServerWebInputException("id should be a number");
+        }
+    }
+
+    private static String requiredParam(ServerRequest request, String name) {
+        return request.queryParam(name)
+                .orElseThrow(() -> new ServerWebInputException("Required parameter '" + name + "' is not present"));
+    }
+
+    private static Mono<ServerResponse> ok() {
+        return ServerResponse.ok().bodyValue(HttpStatus.OK);
+    }
+
+    private Mono<ServerResponse> error(Throwable ex) {
+        if(ex instanceof UserNotFoundException) {
+            return ServerResponse.status(HttpStatus.NOT_FOUND).contentType(MediaType.TEXT_PLAIN).bodyValue(ex.getMessage());
+        }
+        if(ex instanceof UserNotCreatedException || ex instanceof UserNotUpdatedException
+                || ex instanceof IllegalArgumentException) {
+            return ServerResponse.status(HttpStatus.CONFLICT).contentType(MediaType.TEXT_PLAIN).bodyValue(ex.getMessage());
+        }
+        return Mono.error(ex);
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.User.controllers;
+
+import com.example.User.admission.Admission;
+import com.example.User.admission.Priority;
+import com.example.User.dto.ImportReportDTO;
+import com.example.User.services.ImportJob;
+import com.example.User.services.UserImportService;
+import com.example.User.util.UserRecordReader.Format;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Streams CSV or NDJSON request bodies into {@link UserImportService}. The
+ * upload request returns the final report; running imports can be followed
+ * from other requests through the {@code GET} endpoints.
+ */
+@RestController
+@Profile("!reactive")
+@RequestMapping("/users/import")
+public class UserImportController {
+    public static final String TEXT_CSV_VALUE = "text/csv";
+
+    private final UserImportService importService;
+
+    @Autowired
+    public UserImportController(UserImportService importService) {
+        this.importService = importService;
+    }
+
+    @Admission(Priority.BULK)
+    @PostMapping(consumes = { TEXT_CSV_VALUE, MediaType.APPLICATION_NDJSON_VALUE })
+    public ResponseEntity<ImportReportDTO> importUsers(@RequestHeader("Content-Type") MediaType contentType,
+                                                       HttpServletRequest request) throws IOException {
+        Format format = contentType.isCompatibleWith(MediaType.APPLICATION_NDJSON) ? Format.NDJSON : Format.CSV;
+        ImportJob job = importService.run(request.getInputStream(), format, "http " + request.getRemoteAddr());
+        HttpStatus status = job.getStatus() == ImportJob.Status.FAILED ? HttpStatus.INTERNAL_SERVER_ERROR : HttpStatus.OK;
+        return ResponseEntity.status(status).body(job.toReport());
+    }
+
+    @GetMapping
+    public ResponseEntity<List<ImportReportDTO>> findAll() {
+        return ResponseEntity.ok(importService.findAll().stream().map(ImportJob::toReport).toList());
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<ImportReportDTO> findById(@PathVariable("id") String id) {
+        return ResponseEntity.ok(importService.findById(id).toReport());
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.User.controllers;
+
+import com.example.User.dto.UserStatsDTO;
+import com.example.User.services.UserStatsService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@Profile("!reactive")
+@RequestMapping("/users/stats")
+public class UserStatsController {
+    private final UserStatsService statsService;
+
+    @Autowired
+    public UserStatsController(UserStatsService statsService) {
+        this.statsService = statsService;
+    }
+
+    @GetMapping
+    public ResponseEntity<UserStatsDTO> getStats() {
+        return ResponseEntity.ok(statsService.getStats());
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.User.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Date;
+import java.util.List;
+
+@Builder
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImportReportDTO {
+    String id;
+    String source;
+    String status;
+    Date startedAt;
+    long elapsedMillis;
+
+    /** Records parsed so far, including rejected ones. */
+    long read;
+    long rejected;
+    long written;
+    double usersPerSecond;
+
+    /** The first rejected records, up to {@code users.import.max-rejects}. */
+    List<RejectedRow> rejects;
+
+    /** Set when the import stopped on an error other than a rejected record. */
+    String failure;
+
+    public record RejectedRow(long line, String message) {
+    }
+}
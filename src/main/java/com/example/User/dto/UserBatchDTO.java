@@ -0,0 +1,21 @@
+package com.example.User.dto;
+
+import com.example.User.entities.User;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Builder
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserBatchDTO {
+    @NotEmpty
+    @Valid
+    List<User> users;
+}
@@ -0,0 +1,32 @@
+package com.example.User.dto;
+
+import com.example.User.entities.UserChange;
+import com.fasterxml.jackson.annotation.JsonRawValue;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Date;
+
+@Builder
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserChangeDTO {
+    /** Position of the change in its shard's outbox; unsharded also its event id. */
+    long id;
+    int userId;
+    String type;
+
+    /** Written fields, passed through as stored in the outbox. */
+    @JsonRawValue
+    String changes;
+
+    Date createdAt;
+
+    public static UserChangeDTO of(UserChange change) {
+        return new UserChangeDTO(change.getPosition(), change.getUserId(), change.getType(), change.getChanges(),
+                change.getCreatedAt());
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.User.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.validation.constraints.AssertTrue;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Users to delete: either by {@code ids}, or all born strictly between
+ * {@code from} and {@code to}.
+ */
+@Builder
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserDeleteDTO {
+    List<Integer> ids;
+
+    Date from;
+
+    Date to;
+
+    @JsonIgnore
+    @AssertTrue(message = "either ids or both from and to must be given")
+    public boolean isSingleFilter() {
+        return ids != null ? from == null && to == null : from != null && to != null;
+    }
+}
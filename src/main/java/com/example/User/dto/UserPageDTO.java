@@ -0,0 +1,20 @@
+package com.example.User.dto;
+
+import com.example.User.entities.User;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Builder
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserPageDTO {
+    List<User> users;
+
+    /** Continuation token for the next page, or {@code null} on the last page. */
+    String next;
+}
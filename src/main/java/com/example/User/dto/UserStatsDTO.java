@@ -0,0 +1,26 @@
+package com.example.User.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Date;
+import java.util.Map;
+
+@Builder
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserStatsDTO {
+    /** Users with a birth date. */
+    long total;
+
+    Map<Integer, Long> byBirthYear;
+
+    /** Counts by age in years: below the {@code age} threshold, then buckets of {@code users.stats.age-bucket-width}. */
+    Map<String, Long> byAgeBucket;
+
+    /** When the counters were last rebuilt from the database. */
+    Date reconciledAt;
+}
@@ -1,5 +1,7 @@
 package com.example.User.entities;
 
+import com.example.User.sharding.ShardedSequenceGenerator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotEmpty;
@@ -8,11 +10,19 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+import org.hibernate.annotations.SQLRestriction;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
 
 import java.util.Date;
 
 @Entity
-@Table(name = "User")
+// quoted: Hibernate qualifies the soft delete restriction in bulk statements with the table name
+@Table(name = "`User`", indexes = {
+        @Index(name = "ux_user_email", columnList = "email", unique = true),
+        @Index(name = "ix_user_deleted_at", columnList = "deleted_at")})
+@SQLRestriction("deleted_at is null")
 @Builder
 @Data
 @NoArgsConstructor
@@ -21,7 +31,10 @@ public class User {
 
     @Id
     @Column(name = "id")
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(generator = "user_seq")
+    @GenericGenerator(name = "user_seq", type = ShardedSequenceGenerator.class, parameters = {
+            @Parameter(name = SequenceStyleGenerator.SEQUENCE_PARAM, value = "user_seq"),
+            @Parameter(name = SequenceStyleGenerator.INCREMENT_PARAM, value = "50")})
     private int id;
 
     @Email
@@ -47,4 +60,18 @@ public class User {
     @Column(name = "phonenumber")
     private String phoneNumber;
 
+    /** Bumped on every write; exposed to clients as the ETag rather than in the body. */
+    @Version
+    @JsonIgnore
+    @Column(name = "version")
+    private int version;
+
+    /**
+     * Set when the user is soft deleted; such rows are hidden from every
+     * query by the {@link SQLRestriction} until the purger removes them.
+     */
+    @JsonIgnore
+    @Column(name = "deleted_at")
+    private Date deletedAt;
+
 }
@@ -0,0 +1,54 @@
+package com.example.User.entities;
+
+import com.example.User.sharding.ShardedSequenceGenerator;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+
+import java.util.Date;
+
+/**
+ * Outbox row written in the same transaction as the user mutation it
+ * describes. Ids come from a pooled sequence, like {@link User}'s, so the rows
+ * of a batch insert are JDBC-batched; they say nothing about commit order.
+ * The relay gives every committed row its feed {@code position} instead, in
+ * commit order, which is what change feed offsets rely on.
+ */
+@Entity
+@Table(name = "user_change", indexes = @Index(name = "ux_user_change_position", columnList = "position", unique = true))
+@Builder
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserChange {
+
+    @Id
+    @Column(name = "id")
+    @GeneratedValue(generator = "user_change_seq")
+    @GenericGenerator(name = "user_change_seq", type = ShardedSequenceGenerator.class, parameters = {
+            @Parameter(name = SequenceStyleGenerator.SEQUENCE_PARAM, value = "user_change_seq"),
+            @Parameter(name = SequenceStyleGenerator.INCREMENT_PARAM, value = "50")})
+    private long id;
+
+    /** Offset in the change feed; {@code null} until the relay has sequenced the row. */
+    @Column(name = "position")
+    private Long position;
+
+    @Column(name = "user_id")
+    private int userId;
+
+    @Column(name = "type", length = 16)
+    private String type;
+
+    /** JSON object of the written fields, empty for deletes. */
+    @Column(name = "changes", length = 4000)
+    private String changes;
+
+    @Column(name = "created_at")
+    private Date createdAt;
+}
@@ -0,0 +1,30 @@
+package com.example.User.entities;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * The single row holding the next {@link UserChange} feed position. A relay
+ * locks it while it sequences committed outbox rows, so relays on several
+ * instances take turns and positions follow commit order.
+ */
+@Entity
+@Table(name = "user_change_head")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserChangeHead {
+    public static final int ID = 0;
+
+    @Id
+    @Column(name = "id")
+    private int id;
+
+    @Column(name = "next_position")
+    private long nextPosition;
+}
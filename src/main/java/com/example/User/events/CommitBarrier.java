@@ -0,0 +1,187 @@
+package com.example.User.events;
+
+import com.example.User.repositories.UserRepository;
+import com.example.User.sharding.ShardTemplate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntFunction;
+
+/**
+ * Orders database snapshots against the commits of transactions publishing
+ * {@link UserChangedEvent}s and {@link UsersCreatedEvent}s, for in-memory
+ * views that are rebuilt from a scan and kept current from those events.
+ * <p>
+ * Such a transaction holds the barrier shared from just before it commits
+ * until its after-commit listeners have run; {@link #read} holds it exclusively
+ * while it opens its snapshots. Every event a listener receives before the
+ * {@code onSnapshot} callback of {@link #read} is therefore already in the
+ * snapshot and every event received after it is not, so a view replaying
+ * exactly the latter neither loses nor counts twice any change. Events
+ * published outside a transaction reach listeners at once and are not ordered.
+ */
+@Component
+@Profile("!reactive")
+public class CommitBarrier {
+    private static final long POLL_MILLIS = 100;
+
+    private final UserRepository userRepository;
+    private final ShardTemplate shardTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final AtomicInteger threads = new AtomicInteger();
+
+    @Autowired
+    public CommitBarrier(UserRepository userRepository, ShardTemplate shardTemplate,
+                         PlatformTransactionManager transactionManager) {
+        this.userRepository = userRepository;
+        this.shardTemplate = shardTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        // not read-only: replicas lag behind the commits the barrier orders
+        this.transactionTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+    }
+
+    @EventListener
+    public void onUserChanged(UserChangedEvent event) {
+        enter();
+    }
+
+    @EventListener
+    public void onUsersCreated(UsersCreatedEvent event) {
+        enter();
+    }
+
+    /**
+     * Runs {@code read} on every shard, each on its own thread in a
+     * repeatable-read transaction on the primary, and {@code onSnapshot} once
+     * all of their snapshots are open and before any of the reads starts.
+     *
+     * @return the results in shard order
+     */
+    public <T> List<T> read(Runnable onSnapshot, IntFunction<T> read) {
+        int shards = shardTemplate.getShardCount();
+        CountDownLatch connected = new CountDownLatch(shards);
+        CountDownLatch closed = new CountDownLatch(1);
+        CountDownLatch snapshotted = new CountDownLatch(shards);
+        CountDownLatch taken = new CountDownLatch(1);
+        CompletableFuture<Void> failed = new CompletableFuture<>();
+        ExecutorService executor = Executors.newFixedThreadPool(shards,
+                runnable -> new Thread(runnable, "users-snapshot-" + threads.incrementAndGet()));
+        try {
+            List<CompletableFuture<T>> reads = new ArrayList<>(shards);
+            for(int i = 0; i < shards; i++) {
+                int shard = i;
+                CompletableFuture<T> future = CompletableFuture.supplyAsync(() -> shardTemplate.execute(shard, () ->
+                        transactionTemplate.execute(status -> {
+                            try {
+                                // holds a connection before the barrier closes: writers waiting on it hold theirs
+                                userRepository.ping();
+                            } finally {
+                                connected.countDown();
+                            }
+                            await(closed, null);
+                            try {
+                                // the first read of a table opens the snapshot
+                                userRepository.existsById(0);
+                            } finally {
+                                snapshotted.countDown();
+                            }
+                            await(taken, null);
+                            return read.apply(shard);
+                        })), executor);
+                future.whenComplete((result, e) -> {
+                    if(e != null) {
+                        failed.completeExceptionally(e);
+                    }
+                });
+                reads.add(future);
+            }
+
+            await(connected, failed);
+            lock.writeLock().lock();
+            try {
+                closed.countDown();
+                await(snapshotted, failed);
+                onSnapshot.run();
+            } finally {
+                lock.writeLock().unlock();
+                closed.countDown();
+                taken.countDown();
+            }
+
+            List<T> results = new ArrayList<>(shards);
+            for(CompletableFuture<T> future: reads)
+                results.add(join(future));
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Makes the current transaction, if any, hold the barrier from before its
+     * commit until after its after-commit listeners; once per transaction.
+     */
+    private void enter() {
+        if(!TransactionSynchronizationManager.isSynchronizationActive()
+                || TransactionSynchronizationManager.getSynchronizations().stream().anyMatch(Enter.class::isInstance)) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new Enter());
+    }
+
+    private void await(CountDownLatch latch, CompletableFuture<Void> failed) {
+        try {
+            while(!latch.await(POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                if(failed != null && failed.isDone()) {
+                    join(failed);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while opening snapshots", e);
+        }
+    }
+
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if(e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private class Enter implements TransactionSynchronization {
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            lock.readLock().lock();
+            // registered after every listener of the transaction, so it completes after them
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    lock.readLock().unlock();
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.User.events;
+
+import com.example.User.entities.UserChange;
+import com.example.User.repositories.UserChangeRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.UncheckedIOException;
+import java.util.Date;
+import java.util.Map;
+
+/**
+ * Writes every user event to the {@code user_change} outbox. Unlike the
+ * after-commit listeners this runs synchronously inside the publishing
+ * transaction, so a change is recorded if and only if it commits, and on the
+ * shard the user was written to.
+ */
+@Component
+@Profile("!reactive")
+public class UserChangeOutbox {
+    private final UserChangeRepository changeRepository;
+    private final ObjectMapper objectMapper;
+
+    @Autowired
+    public UserChangeOutbox(UserChangeRepository changeRepository, ObjectMapper objectMapper) {
+        this.changeRepository = changeRepository;
+        this.objectMapper = objectMapper;
+    }
+
+    @EventListener
+    public void onUserChanged(UserChangedEvent event) {
+        changeRepository.save(change(event.getId(), event.getType().name(), event.getChanges(), new Date()));
+    }
+
+    @EventListener
+    public void onUsersCreated(UsersCreatedEvent event) {
+        Date now = new Date();
+        changeRepository.saveAll(event.getUsers().stream()
+                .map(user -> change(user.getId(), UserChangedEvent.Type.CREATED.name(), UserChangedEvent.fields(user), now))
+                .toList());
+    }
+
+    private UserChange change(int userId, String type, Map<String, Object> changes, Date createdAt) {
+        try {
+            return UserChange.builder()
+                    .userId(userId)
+                    .type(type)
+                    .changes(objectMapper.writeValueAsString(changes))
+                    .createdAt(createdAt)
+                    .build();
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
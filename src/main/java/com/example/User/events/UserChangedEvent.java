@@ -0,0 +1,58 @@
+package com.example.User.events;
+
+import com.example.User.entities.User;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Published by {@code UserService} inside the writing transaction for every
+ * single-user mutation. Field maps are keyed by {@link User} property name and
+ * may contain {@code null} values.
+ */
+@Getter
+@ToString
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class UserChangedEvent {
+    public enum Type { CREATED, UPDATED, DELETED }
+
+    private final Type type;
+    private final int id;
+
+    /** New values of the fields that were written; empty for deletes. */
+    private final Map<String, Object> changes;
+
+    /**
+     * Values before the write, for the fields {@code UserService} had to read
+     * anyway: all fields for deletes and {@code birthDate} when it changes.
+     */
+    private final Map<String, Object> previous;
+
+    public static UserChangedEvent created(User user) {
+        return new UserChangedEvent(Type.CREATED, user.getId(), fields(user), Collections.emptyMap());
+    }
+
+    public static UserChangedEvent updated(int id, Map<String, Object> changes, Map<String, Object> previous) {
+        return new UserChangedEvent(Type.UPDATED, id, changes, previous);
+    }
+
+    public static UserChangedEvent deleted(User user) {
+        return new UserChangedEvent(Type.DELETED, user.getId(), Collections.emptyMap(), fields(user));
+    }
+
+    public static Map<String, Object> fields(User user) {
+        Map<String, Object> fields = new HashMap<>();
+        fields.put("email", user.getEmail());
+        fields.put("lastName", user.getLastName());
+        fields.put("firstName", user.getFirstName());
+        fields.put("birthDate", user.getBirthDate());
+        fields.put("address", user.getAddress());
+        fields.put("phoneNumber", user.getPhoneNumber());
+        return fields;
+    }
+}
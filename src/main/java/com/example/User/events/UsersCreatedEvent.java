@@ -0,0 +1,17 @@
+package com.example.User.events;
+
+import com.example.User.entities.User;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * Published by {@code UserService.saveAll} once per batch, so listeners can
+ * apply a bulk insert in one step instead of once per user.
+ */
+@Getter
+@AllArgsConstructor
+public class UsersCreatedEvent {
+    private final List<User> users;
+}
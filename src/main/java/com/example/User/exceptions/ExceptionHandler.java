@@ -1,23 +1,69 @@
 package com.example.User.exceptions;
 
 
+import com.example.User.util.ErrorMessages;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ProblemDetail;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.servlet.mvc.method.annotation.ResponseEntityExceptionHandler;
 
 @ControllerAdvice
+@Profile("!reactive")
 public class ExceptionHandler extends ResponseEntityExceptionHandler {
 
     @org.springframework.web.bind.annotation.ExceptionHandler(value
-            = { UserNotCreatedException.class, UserNotFoundException.class, UserNotUpdatedException.class,
+            = { UserNotCreatedException.class, UserNotUpdatedException.class,
     IllegalArgumentException.class})
     protected ResponseEntity<Object> handleConflict(
             RuntimeException ex, WebRequest request) {
-        return handleExceptionInternal(ex, ex.getMessage(),
-                new HttpHeaders(), HttpStatus.CONFLICT, request);
+        return problem(ex, ex.getMessage(), new HttpHeaders(), HttpStatus.CONFLICT, request);
+    }
+
+    /**
+     * The unique index on email is the last line of defence against duplicates
+     * created concurrently or within one batch.
+     */
+    @org.springframework.web.bind.annotation.ExceptionHandler(value = { DataIntegrityViolationException.class })
+    protected ResponseEntity<Object> handleDuplicate(
+            DataIntegrityViolationException ex, WebRequest request) {
+        return problem(ex, ErrorMessages.of(ex), new HttpHeaders(), HttpStatus.CONFLICT, request);
+    }
+
+    @org.springframework.web.bind.annotation.ExceptionHandler(value = { UserNotFoundException.class,
+    ImportNotFoundException.class})
+    protected ResponseEntity<Object> handleNotFound(
+            RuntimeException ex, WebRequest request) {
+        return problem(ex, ex.getMessage(), new HttpHeaders(), HttpStatus.NOT_FOUND, request);
+    }
+
+    @org.springframework.web.bind.annotation.ExceptionHandler(value = { UserPreconditionFailedException.class })
+    protected ResponseEntity<Object> handlePreconditionFailed(
+            RuntimeException ex, WebRequest request) {
+        return problem(ex, ex.getMessage(), new HttpHeaders(), HttpStatus.PRECONDITION_FAILED, request);
+    }
+
+    @org.springframework.web.bind.annotation.ExceptionHandler(value = { ServiceOverloadedException.class })
+    protected ResponseEntity<Object> handleOverloaded(
+            ServiceOverloadedException ex, WebRequest request) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, ex.getRetryAfter().toSeconds())));
+        return problem(ex, ex.getMessage(), headers, HttpStatus.SERVICE_UNAVAILABLE, request);
+    }
+
+    /**
+     * Errors are RFC 7807 problem details rather than bare strings, which
+     * Spring always writes as {@code application/problem+json}; a client
+     * that accepts only CBOR or Smile gets a JSON body labelled as JSON
+     * instead of plain text labelled as CBOR.
+     */
+    private ResponseEntity<Object> problem(Exception ex, String detail, HttpHeaders headers,
+                                           HttpStatus status, WebRequest request) {
+        return handleExceptionInternal(ex, ProblemDetail.forStatusAndDetail(status, detail), headers, status, request);
     }
 
 }
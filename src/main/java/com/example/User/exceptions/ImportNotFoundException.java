@@ -0,0 +1,7 @@
+package com.example.User.exceptions;
+
+public class ImportNotFoundException extends RuntimeException{
+    public ImportNotFoundException(String msg) {
+        super(msg);
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.User.exceptions;
+
+import java.time.Duration;
+
+public class ServiceOverloadedException extends RuntimeException{
+    private final Duration retryAfter;
+
+    public ServiceOverloadedException(String msg, Duration retryAfter) {
+        super(msg);
+        this.retryAfter = retryAfter;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
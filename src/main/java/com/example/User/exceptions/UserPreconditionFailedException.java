@@ -0,0 +1,7 @@
+package com.example.User.exceptions;
+
+public class UserPreconditionFailedException extends RuntimeException{
+    public UserPreconditionFailedException(String msg) {
+        super(msg);
+    }
+}
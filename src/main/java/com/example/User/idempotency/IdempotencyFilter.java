@@ -0,0 +1,321 @@
+package com.example.User.idempotency;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Makes client retries of the user writes safe. A {@code POST}, {@code PUT}
+ * or {@code PATCH} carrying an {@code Idempotency-Key} header is executed at
+ * most once per key, method and path: the response is kept for
+ * {@code users.idempotency.ttl} and replayed byte for byte (marked with
+ * {@code Idempotent-Replayed: true}) without reaching the controller, the
+ * service or the database.
+ * <p>
+ * A duplicate arriving while the first request is still running waits up to
+ * {@code users.idempotency.wait-timeout} for its response instead of
+ * executing again, and gets 409 with {@code Retry-After} if it does not come.
+ * A key reused with a different query or body is rejected with 422, and a
+ * body above {@code users.idempotency.max-body-size} bytes, which would have
+ * to be buffered whole, with 413. Server errors and requests that fail with
+ * an exception are not kept, so the next retry executes again.
+ * <p>
+ * Requests still running are tracked in a map that is never evicted, so a
+ * full cache cannot let a duplicate execute alongside them. Completed
+ * responses live in a bounded Caffeine cache of this instance only; behind a
+ * load balancer without key affinity a retry landing on another instance
+ * still executes again.
+ */
+@Component
+@Profile("!reactive")
+@ConditionalOnProperty(value = "users.idempotency.enabled", havingValue = "true")
+public class IdempotencyFilter extends OncePerRequestFilter {
+    public static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+    public static final String IDEMPOTENT_REPLAYED = "Idempotent-Replayed";
+
+    /** Streams bodies far too large to buffer, and its job id already identifies an import. */
+    private static final String IMPORT_PATH = "/users/import";
+    private static final int MAX_KEY_LENGTH = 255;
+    private static final Set<String> METHODS = Set.of(HttpMethod.POST.name(), HttpMethod.PUT.name(), HttpMethod.PATCH.name());
+
+    /** The response of a completed request, or null once it turned out not to be worth keeping. */
+    private record Execution(String fingerprint, CompletableFuture<StoredResponse> response) {
+    }
+
+    private record StoredResponse(int status, Map<String, List<String>> headers, String contentType, byte[] body) {
+    }
+
+    private final Duration waitTimeout;
+    private final int maxBodySize;
+    private final Map<String, Execution> running = new ConcurrentHashMap<>();
+    /** Executions whose response completed and is kept. */
+    private final Cache<String, Execution> completed;
+
+    private final Counter executed;
+    private final Counter replayed;
+    private final Counter collapsed;
+    private final Counter mismatched;
+    private final Counter timedOut;
+    private final Counter tooLarge;
+
+    @Autowired
+    public IdempotencyFilter(MeterRegistry meterRegistry,
+                             @Value("${users.idempotency.ttl}") Duration ttl,
+                             @Value("${users.idempotency.max-entries}") long maxEntries,
+                             @Value("${users.idempotency.wait-timeout}") Duration waitTimeout,
+                             @Value("${users.idempotency.max-body-size}") int maxBodySize) {
+        this.waitTimeout = waitTimeout;
+        this.maxBodySize = maxBodySize;
+        this.completed = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, completed, "idempotency");
+
+        this.executed = request(meterRegistry, "executed");
+        this.replayed = request(meterRegistry, "replayed");
+        this.collapsed = request(meterRegistry, "collapsed");
+        this.mismatched = request(meterRegistry, "mismatched");
+        this.timedOut = request(meterRegistry, "timed-out");
+        this.tooLarge = request(meterRegistry, "too-large");
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return request.getHeader(IDEMPOTENCY_KEY) == null || !METHODS.contains(request.getMethod())
+                || request.getServletPath().startsWith(IMPORT_PATH);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String key = request.getHeader(IDEMPOTENCY_KEY);
+        if(key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST,
+                    IDEMPOTENCY_KEY + " must be 1 to " + MAX_KEY_LENGTH + " characters");
+            return;
+        }
+        byte[] body = request.getContentLengthLong() > maxBodySize ? null
+                : request.getInputStream().readNBytes(maxBodySize + 1);
+        if(body == null || body.length > maxBodySize) {
+            tooLarge.increment();
+            response.sendError(HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE,
+                    "Requests with an " + IDEMPOTENCY_KEY + " are limited to " + maxBodySize + " bytes");
+            return;
+        }
+        String cacheKey = request.getMethod() + " " + request.getRequestURI() + " " + key;
+        String fingerprint = fingerprint(request.getQueryString(), body);
+
+        while(true) {
+            Execution first = completed.getIfPresent(cacheKey);
+            if(first == null) {
+                Execution execution = new Execution(fingerprint, new CompletableFuture<>());
+                first = running.putIfAbsent(cacheKey, execution);
+                if(first == null) {
+                    // kept before it left the running map, so it cannot have been missed above
+                    first = completed.getIfPresent(cacheKey);
+                    if(first != null) {
+                        running.remove(cacheKey, execution);
+                        execution.response().complete(null);
+                    } else {
+                        executed.increment();
+                        execute(cacheKey, execution, new CachedBodyRequest(request, body), response, chain);
+                        return;
+                    }
+                }
+            }
+            if(!first.fingerprint().equals(fingerprint)) {
+                mismatched.increment();
+                response.sendError(422, IDEMPOTENCY_KEY + " was already used for a different request");
+                return;
+            }
+
+            StoredResponse stored;
+            if(first.response().isDone()) {
+                stored = first.response().join();
+            } else {
+                collapsed.increment();
+                try {
+                    stored = first.response().get(waitTimeout.toNanos(), TimeUnit.NANOSECONDS);
+                } catch (TimeoutException e) {
+                    timedOut.increment();
+                    response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+                    response.sendError(HttpServletResponse.SC_CONFLICT,
+                            "A request with this " + IDEMPOTENCY_KEY + " is still in progress");
+                    return;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new ServletException(e);
+                } catch (ExecutionException e) {
+                    throw new ServletException(e.getCause());
+                }
+            }
+            if(stored != null) {
+                replayed.increment();
+                replay(stored, response);
+                return;
+            }
+            // the first attempt failed and was dropped; take its place
+        }
+    }
+
+    private void execute(String cacheKey, Execution execution, HttpServletRequest request,
+                         HttpServletResponse response, FilterChain chain) throws ServletException, IOException {
+        ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+        StoredResponse stored = null;
+        try {
+            chain.doFilter(request, wrapper);
+            if(wrapper.getStatus() < 500 && !request.isAsyncStarted()) {
+                stored = store(wrapper);
+            }
+        } finally {
+            execution.response().complete(stored);
+            if(stored != null) {
+                // the TTL runs from completion rather than from the first attempt
+                completed.put(cacheKey, execution);
+            }
+            running.remove(cacheKey, execution);
+        }
+        wrapper.copyBodyToResponse();
+    }
+
+    private static StoredResponse store(ContentCachingResponseWrapper response) {
+        Map<String, List<String>> headers = new LinkedHashMap<>();
+        for(String name: response.getHeaderNames()) {
+            if(!name.equalsIgnoreCase(HttpHeaders.CONTENT_TYPE) && !name.equalsIgnoreCase(HttpHeaders.CONTENT_LENGTH)) {
+                headers.put(name, new ArrayList<>(response.getHeaders(name)));
+            }
+        }
+        return new StoredResponse(response.getStatus(), headers, response.getContentType(),
+                response.getContentAsByteArray());
+    }
+
+    private static void replay(StoredResponse stored, HttpServletResponse response) throws IOException {
+        response.setStatus(stored.status());
+        stored.headers().forEach((name, values) -> values.forEach(value -> response.addHeader(name, value)));
+        response.setHeader(IDEMPOTENT_REPLAYED, "true");
+        if(stored.contentType() != null) {
+            response.setContentType(stored.contentType());
+        }
+        response.setContentLength(stored.body().length);
+        response.getOutputStream().write(stored.body());
+    }
+
+    private static String fingerprint(String query, byte[] body) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            if(query != null) {
+                digest.update(query.getBytes(StandardCharsets.UTF_8));
+            }
+            digest.update((byte) 0);
+            return HexFormat.of().formatHex(digest.digest(body));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Counter request(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("users.idempotency.requests")
+                .description("Requests carrying an Idempotency-Key by outcome")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    /** Hands the already read body on to the handler. */
+    private static class CachedBodyRequest extends HttpServletRequestWrapper {
+        private final byte[] body;
+
+        CachedBodyRequest(HttpServletRequest request, byte[] body) {
+            super(request);
+            this.body = body;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream in = new ByteArrayInputStream(body);
+            return new ServletInputStream() {
+                @Override
+                public int read() {
+                    return in.read();
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) {
+                    return in.read(b, off, len);
+                }
+
+                @Override
+                public boolean isFinished() {
+                    return in.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setReadListener(ReadListener listener) {
+                    throw new UnsupportedOperationException();
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            String encoding = getCharacterEncoding();
+            Charset charset = encoding != null ? Charset.forName(encoding) : StandardCharsets.UTF_8;
+            return new BufferedReader(new InputStreamReader(getInputStream(), charset));
+        }
+
+        @Override
+        public int getContentLength() {
+            return body.length;
+        }
+
+        @Override
+        public long getContentLengthLong() {
+            return body.length;
+        }
+    }
+}
@@ -0,0 +1,396 @@
+package com.example.User.index;
+
+import com.example.User.entities.User;
+import com.example.User.events.UserChangedEvent;
+import com.example.User.events.UsersCreatedEvent;
+import com.example.User.repositories.UserRepository;
+import com.example.User.sharding.ShardTemplate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.ObjIntConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * In-memory index of user ids ordered by (birthDate, id), stored as two
+ * parallel primitive arrays: {@code long} epoch milliseconds and {@code int}
+ * ids. An open-addressing map from id to birth date lets a change find the
+ * entry it replaces by binary search instead of a scan; together about 36
+ * bytes per user. Loaded once the application is ready and kept
+ * current from committed {@link UserChangedEvent}s and {@link UsersCreatedEvent}s.
+ * With several shards, each is read in turn and the ordered runs are merged.
+ * Disabled unless {@code users.index.birth-date.enabled=true}.
+ */
+@Component
+@Profile("!reactive")
+public class BirthDateIndex {
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final UserRepository userRepository;
+    private final ShardTemplate shardTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private long[] keys = new long[INITIAL_CAPACITY];
+    private int[] ids = new int[INITIAL_CAPACITY];
+    private int size;
+    private KeyById keyById = new KeyById(INITIAL_CAPACITY);
+    private List<Runnable> pending;
+    private volatile boolean ready;
+
+    @Autowired
+    public BirthDateIndex(UserRepository userRepository, ShardTemplate shardTemplate,
+                          PlatformTransactionManager transactionManager,
+                          @Value("${users.index.birth-date.enabled}") boolean enabled) {
+        this.userRepository = userRepository;
+        this.shardTemplate = shardTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.enabled = enabled;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Ids of users born strictly between {@code from} and {@code to}, ordered by (birthDate, id).
+     */
+    public int[] findIds(Date from, Date to) {
+        lock.readLock().lock();
+        try {
+            int start = upperBound(from.getTime());
+            int end = lowerBound(to.getTime());
+            return start < end ? Arrays.copyOfRange(ids, start, end) : new int[0];
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        if (!enabled) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            pending = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        List<Loader> loaders = new ArrayList<>();
+        shardTemplate.forEachShard(shard -> {
+            Loader shardLoader = new Loader();
+            transactionTemplate.executeWithoutResult(status -> userRepository.forEachIdAndBirthDate(shardLoader));
+            loaders.add(shardLoader);
+        });
+        Loader loader = loaders.stream().reduce(Loader::merge).orElseThrow();
+        KeyById loaded = new KeyById(loader.size);
+        for (int i = 0; i < loader.size; i++)
+            loaded.put(loader.ids[i], loader.keys[i]);
+
+        lock.writeLock().lock();
+        try {
+            keys = loader.keys;
+            ids = loader.ids;
+            size = loader.size;
+            keyById = loaded;
+            pending.forEach(Runnable::run);
+            pending = null;
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserChanged(UserChangedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        switch (event.getType()) {
+            case CREATED, UPDATED -> {
+                if (event.getChanges().get("birthDate") instanceof Date birthDate) {
+                    apply(() -> put(event.getId(), birthDate.getTime()));
+                }
+            }
+            case DELETED -> apply(() -> remove(event.getId()));
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUsersCreated(UsersCreatedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        List<User> users = event.getUsers();
+        apply(() -> putAll(users));
+    }
+
+    private void apply(Runnable change) {
+        lock.writeLock().lock();
+        try {
+            if (pending != null) {
+                pending.add(change);
+            } else {
+                change.run();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Inserts or moves one entry. Caller holds the write lock. */
+    void put(int id, long key) {
+        remove(id);
+        int position = insertionPoint(key, id);
+        ensureCapacity(size + 1);
+        System.arraycopy(keys, position, keys, position + 1, size - position);
+        System.arraycopy(ids, position, ids, position + 1, size - position);
+        keys[position] = key;
+        ids[position] = id;
+        size++;
+        keyById.put(id, key);
+    }
+
+    /** Caller holds the write lock. */
+    void remove(int id) {
+        long key = keyById.remove(id);
+        if (key != KeyById.NONE) {
+            removeAt(insertionPoint(key, id));
+        }
+    }
+
+    /**
+     * Merges a batch of new users in one pass instead of shifting the arrays
+     * once per user. Only users already indexed, as when the load saw them
+     * before their event was replayed, are removed first. Caller holds the
+     * write lock.
+     */
+    void putAll(List<User> users) {
+        for (User user : users)
+            remove(user.getId());
+        Integer[] order = IntStream.range(0, users.size())
+                .filter(i -> users.get(i).getBirthDate() != null)
+                .boxed()
+                .sorted(Comparator.<Integer>comparingLong(i -> users.get(i).getBirthDate().getTime())
+                        .thenComparingInt(i -> users.get(i).getId()))
+                .toArray(Integer[]::new);
+
+        long[] mergedKeys = new long[Math.max(INITIAL_CAPACITY, size + order.length)];
+        int[] mergedIds = new int[mergedKeys.length];
+        int i = 0, j = 0, k = 0;
+        while (i < size || j < order.length) {
+            boolean takeNew;
+            if (i == size) {
+                takeNew = true;
+            } else if (j == order.length) {
+                takeNew = false;
+            } else {
+                User user = users.get(order[j]);
+                long key = user.getBirthDate().getTime();
+                takeNew = key < keys[i] || (key == keys[i] && user.getId() < ids[i]);
+            }
+            if (takeNew) {
+                User user = users.get(order[j++]);
+                mergedKeys[k] = user.getBirthDate().getTime();
+                mergedIds[k++] = user.getId();
+            } else {
+                mergedKeys[k] = keys[i];
+                mergedIds[k++] = ids[i++];
+            }
+        }
+        keys = mergedKeys;
+        ids = mergedIds;
+        size = k;
+        for (Integer position : order) {
+            User user = users.get(position);
+            keyById.put(user.getId(), user.getBirthDate().getTime());
+        }
+    }
+
+    private void removeAt(int position) {
+        System.arraycopy(keys, position + 1, keys, position, size - position - 1);
+        System.arraycopy(ids, position + 1, ids, position, size - position - 1);
+        size--;
+    }
+
+    /** First position whose (key, id) is greater than the given pair. */
+    private int insertionPoint(long key, int id) {
+        int low = 0, high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (keys[mid] < key || (keys[mid] == key && ids[mid] < id))
+                low = mid + 1;
+            else
+                high = mid;
+        }
+        return low;
+    }
+
+    /** First position whose key is greater than or equal to {@code key}. */
+    private int lowerBound(long key) {
+        int low = 0, high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (keys[mid] < key)
+                low = mid + 1;
+            else
+                high = mid;
+        }
+        return low;
+    }
+
+    /** First position whose key is greater than {@code key}. */
+    private int upperBound(long key) {
+        int low = 0, high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (keys[mid] <= key)
+                low = mid + 1;
+            else
+                high = mid;
+        }
+        return low;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > keys.length) {
+            int grown = Math.max(capacity, keys.length + (keys.length >> 1));
+            keys = Arrays.copyOf(keys, grown);
+            ids = Arrays.copyOf(ids, grown);
+        }
+    }
+
+    /**
+     * Map from {@code int} id to {@code long} key with linear probing, so it
+     * costs two array slots per user instead of boxed entries.
+     */
+    static class KeyById {
+        static final long NONE = Long.MIN_VALUE;
+        private static final int FREE = Integer.MIN_VALUE;
+
+        private int[] ids;
+        private long[] keys;
+        private int size;
+
+        KeyById(int expected) {
+            allocate(Math.max(16, Integer.highestOneBit(Math.max(1, expected) * 2 - 1) << 1));
+        }
+
+        void put(int id, long key) {
+            if ((size + 1) * 3 > ids.length * 2) {
+                int[] oldIds = ids;
+                long[] oldKeys = keys;
+                allocate(ids.length * 2);
+                for (int i = 0; i < oldIds.length; i++)
+                    if (oldIds[i] != FREE)
+                        put(oldIds[i], oldKeys[i]);
+            }
+            int slot = slot(id);
+            while (ids[slot] != FREE && ids[slot] != id)
+                slot = (slot + 1) & (ids.length - 1);
+            if (ids[slot] == FREE)
+                size++;
+            ids[slot] = id;
+            keys[slot] = key;
+        }
+
+        /** @return the key removed, or {@link #NONE} */
+        long remove(int id) {
+            int mask = ids.length - 1;
+            int slot = slot(id);
+            while (ids[slot] != id) {
+                if (ids[slot] == FREE)
+                    return NONE;
+                slot = (slot + 1) & mask;
+            }
+            long key = keys[slot];
+            size--;
+            // shifts later entries of the probe run back so lookups never stop early at the hole
+            int hole = slot;
+            for (int next = (hole + 1) & mask; ids[next] != FREE; next = (next + 1) & mask) {
+                int home = slot(ids[next]);
+                if (((next - home) & mask) >= ((next - hole) & mask)) {
+                    ids[hole] = ids[next];
+                    keys[hole] = keys[next];
+                    hole = next;
+                }
+            }
+            ids[hole] = FREE;
+            return key;
+        }
+
+        private int slot(int id) {
+            return (id * 0x9E3779B9) >>> (32 - Integer.numberOfTrailingZeros(ids.length));
+        }
+
+        private void allocate(int capacity) {
+            ids = new int[capacity];
+            keys = new long[capacity];
+            Arrays.fill(ids, FREE);
+            size = 0;
+        }
+    }
+
+    /** Appends rows that arrive already ordered by (birthDate, id). */
+    private static class Loader implements ObjIntConsumer<Date> {
+        private long[] keys = new long[INITIAL_CAPACITY];
+        private int[] ids = new int[INITIAL_CAPACITY];
+        private int size;
+
+        @Override
+        public void accept(Date birthDate, int id) {
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size + (size >> 1));
+                ids = Arrays.copyOf(ids, size + (size >> 1));
+            }
+            keys[size] = birthDate.getTime();
+            ids[size++] = id;
+        }
+
+        /** Merges two ordered runs into a new one. */
+        Loader merge(Loader other) {
+            Loader merged = new Loader();
+            merged.keys = new long[Math.max(INITIAL_CAPACITY, size + other.size)];
+            merged.ids = new int[merged.keys.length];
+            int i = 0, j = 0;
+            while (i < size || j < other.size) {
+                boolean takeOther = i == size || (j < other.size
+                        && (other.keys[j] < keys[i] || (other.keys[j] == keys[i] && other.ids[j] < ids[i])));
+                if (takeOther) {
+                    merged.keys[merged.size] = other.keys[j];
+                    merged.ids[merged.size++] = other.ids[j++];
+                } else {
+                    merged.keys[merged.size] = keys[i];
+                    merged.ids[merged.size++] = ids[i++];
+                }
+            }
+            return merged;
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.User.index;
+
+/**
+ * Counting Bloom filter over strings with 4-bit counters, sixteen to a
+ * {@code long}, so entries can be removed as well as added. Sized for
+ * {@code expectedEntries} at false-positive probability {@code fpp}: about
+ * {@code -ln(fpp) / ln(2)^2} counters per entry, 4.8 bits per entry and
+ * counter at 1%. Counters that reach 15 saturate and are never decremented,
+ * which can only cause false positives. Not thread-safe.
+ */
+public class CountingBloomFilter {
+    private static final int MAX_COUNT = 15;
+
+    private final long[] counters;
+    private final int size;
+    private final int hashes;
+
+    public CountingBloomFilter(long expectedEntries, double fpp) {
+        long n = Math.max(1, expectedEntries);
+        long m = (long) Math.ceil(-n * Math.log(fpp) / (Math.log(2) * Math.log(2)));
+        this.size = (int) Math.min(Math.max(m, 64), Integer.MAX_VALUE - 15);
+        this.hashes = Math.max(1, (int) Math.round((double) size / n * Math.log(2)));
+        this.counters = new long[(size + 15) >>> 4];
+    }
+
+    public void add(String key) {
+        long h1 = hash(key);
+        long h2 = mix(h1 ^ 0x9E3779B97F4A7C15L) | 1;
+        for(int i = 0; i < hashes; i++) {
+            int index = (int) Math.floorMod(h1 + i * h2, (long) size);
+            if(count(index) < MAX_COUNT) {
+                counters[index >>> 4] += 1L << shift(index);
+            }
+        }
+    }
+
+    /** Removes one occurrence of a key that was added. */
+    public void remove(String key) {
+        if(!mightContain(key)) {
+            return;
+        }
+        long h1 = hash(key);
+        long h2 = mix(h1 ^ 0x9E3779B97F4A7C15L) | 1;
+        for(int i = 0; i < hashes; i++) {
+            int index = (int) Math.floorMod(h1 + i * h2, (long) size);
+            long count = count(index);
+            if(count > 0 && count < MAX_COUNT) {
+                counters[index >>> 4] -= 1L << shift(index);
+            }
+        }
+    }
+
+    /**
+     * @return {@code false} if {@code key} was definitely never added
+     */
+    public boolean mightContain(String key) {
+        long h1 = hash(key);
+        long h2 = mix(h1 ^ 0x9E3779B97F4A7C15L) | 1;
+        for(int i = 0; i < hashes; i++)
+            if(count((int) Math.floorMod(h1 + i * h2, (long) size)) == 0)
+                return false;
+        return true;
+    }
+
+    /** False-positive probability once {@code entries} keys are in the filter. */
+    public double expectedFpp(long entries) {
+        return Math.pow(1 - Math.exp(-(double) hashes * entries / size), hashes);
+    }
+
+    public long memoryBytes() {
+        return 16 + 8L * counters.length;
+    }
+
+    private long count(int index) {
+        return (counters[index >>> 4] >>> shift(index)) & MAX_COUNT;
+    }
+
+    private static int shift(int index) {
+        return (index & 15) << 2;
+    }
+
+    /** 64-bit FNV-1a over the UTF-16 code units, finished with a Murmur3 mix. */
+    private static long hash(String key) {
+        long h = 0xcbf29ce484222325L;
+        for(int i = 0; i < key.length(); i++) {
+            h ^= key.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return mix(h);
+    }
+
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
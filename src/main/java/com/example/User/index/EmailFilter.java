@@ -0,0 +1,283 @@
+package com.example.User.index;
+
+import com.example.User.entities.User;
+import com.example.User.events.CommitBarrier;
+import com.example.User.events.UserChangedEvent;
+import com.example.User.events.UsersCreatedEvent;
+import com.example.User.repositories.UserRepository;
+import com.example.User.sharding.ShardTemplate;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Email uniqueness check that only goes to the database when it has to. A
+ * {@link CountingBloomFilter} of every user's lower-cased email answers
+ * "definitely not taken" for most new emails; only possible duplicates are
+ * looked up. The unique index on {@code email} stays the source of truth:
+ * a concurrent create slipping past the check fails on insert instead. With
+ * several shards the filter covers all of them and a lookup asks each; the
+ * unique index only guards its own shard.
+ * <p>
+ * The filter is seeded once the application is ready, updated from committed
+ * {@link UserChangedEvent}s and {@link UsersCreatedEvent}s, and rebuilt every
+ * {@code users.email-filter.rebuild-interval}, sized for at least twice the
+ * current user count. Emails changed away from are only dropped by the next
+ * rebuild, which costs nothing but a lookup meanwhile. Until the first load,
+ * and when {@code users.email-filter.enabled=false}, every check queries.
+ */
+@Component
+@Profile("!reactive")
+public class EmailFilter {
+    private static final Logger log = LoggerFactory.getLogger(EmailFilter.class);
+
+    private final UserRepository userRepository;
+    private final ShardTemplate shardTemplate;
+    private final CommitBarrier commitBarrier;
+    private final boolean enabled;
+    private final long expectedEntries;
+    private final double fpp;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private CountingBloomFilter filter;
+    private final AtomicLong entries = new AtomicLong();
+    private List<Runnable> pending;
+    private volatile boolean ready;
+
+    private final Counter negatives;
+    private final Counter duplicates;
+    private final Counter falsePositives;
+    private final Counter unfiltered;
+    private final Timer rebuildTimer;
+
+    @Autowired
+    public EmailFilter(UserRepository userRepository, ShardTemplate shardTemplate,
+                       CommitBarrier commitBarrier, MeterRegistry meterRegistry,
+                       @Value("${users.email-filter.enabled}") boolean enabled,
+                       @Value("${users.email-filter.expected-entries}") long expectedEntries,
+                       @Value("${users.email-filter.fpp}") double fpp) {
+        this.userRepository = userRepository;
+        this.shardTemplate = shardTemplate;
+        this.commitBarrier = commitBarrier;
+        this.enabled = enabled;
+        this.expectedEntries = expectedEntries;
+        this.fpp = fpp;
+
+        this.negatives = check(meterRegistry, "negative");
+        this.duplicates = check(meterRegistry, "duplicate");
+        this.falsePositives = check(meterRegistry, "false-positive");
+        this.unfiltered = check(meterRegistry, "unfiltered");
+        this.rebuildTimer = Timer.builder("users.email-filter.rebuild")
+                .description("Time to rebuild the email filter from the database")
+                .register(meterRegistry);
+        Gauge.builder("users.email-filter.entries", entries, AtomicLong::get)
+                .description("Emails counted in the email filter")
+                .register(meterRegistry);
+        Gauge.builder("users.email-filter.expected-fpp", this, EmailFilter::expectedFpp)
+                .description("False-positive probability of the email filter at its current fill")
+                .register(meterRegistry);
+        Gauge.builder("users.email-filter.memory", this, EmailFilter::memoryBytes)
+                .description("Heap used by the email filter counters")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Whether a user with {@code email} exists. The filter is case-insensitive;
+     * the lookup follows the column collation (case-insensitive on MySQL).
+     */
+    public boolean exists(String email) {
+        String key = key(email);
+        if(ready) {
+            lock.readLock().lock();
+            try {
+                if(!filter.mightContain(key)) {
+                    negatives.increment();
+                    return false;
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+        boolean exists = shardTemplate.executeOnAll(shard -> userRepository.existsByEmail(email.trim())).contains(true);
+        (!ready ? unfiltered : exists ? duplicates : falsePositives).increment();
+        return exists;
+    }
+
+    public double expectedFpp() {
+        lock.readLock().lock();
+        try {
+            return filter == null ? 1 : filter.expectedFpp(entries.get());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long memoryBytes() {
+        lock.readLock().lock();
+        try {
+            return filter == null ? 0 : filter.memoryBytes();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        rebuild();
+    }
+
+    /**
+     * Replaces the filter with one freshly counted from the database. Changes
+     * whose events arrive after the scan's snapshots are taken are applied on
+     * top once it is done; earlier ones are already counted, and applying
+     * them again would leave a counter too high after an add or, worse, too
+     * low after a remove.
+     */
+    @Scheduled(initialDelayString = "${users.email-filter.rebuild-interval}",
+            fixedDelayString = "${users.email-filter.rebuild-interval}")
+    public void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        long start = System.nanoTime();
+        CountingBloomFilter rebuilt;
+        AtomicLong count = new AtomicLong();
+        try {
+            long users = shardTemplate.executeOnAll(shard -> userRepository.count()).stream()
+                    .mapToLong(Long::longValue)
+                    .sum();
+            CountingBloomFilter next = new CountingBloomFilter(Math.max(expectedEntries, 2 * users), fpp);
+            commitBarrier.read(() -> {
+                lock.writeLock().lock();
+                try {
+                    pending = new ArrayList<>();
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            }, shard -> {
+                userRepository.forEachEmail(email -> {
+                    synchronized (next) {
+                        next.add(key(email));
+                    }
+                    count.incrementAndGet();
+                });
+                return null;
+            });
+            rebuilt = next;
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                pending = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw e;
+        }
+
+        lock.writeLock().lock();
+        try {
+            filter = rebuilt;
+            entries.set(count.get());
+            pending.forEach(Runnable::run);
+            pending = null;
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        rebuildTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        log.info("Email filter rebuilt with {} emails, {} KiB, expected false-positive rate {}",
+                count.get(), memoryBytes() / 1024, String.format(Locale.ROOT, "%.4f", expectedFpp()));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserChanged(UserChangedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        switch (event.getType()) {
+            case CREATED, UPDATED -> {
+                if (event.getChanges().get("email") instanceof String email) {
+                    apply(() -> add(email));
+                }
+            }
+            case DELETED -> {
+                if (event.getPrevious().get("email") instanceof String email) {
+                    apply(() -> remove(email));
+                }
+            }
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUsersCreated(UsersCreatedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        List<User> users = event.getUsers();
+        apply(() -> users.forEach(user -> {
+            if (user.getEmail() != null) {
+                add(user.getEmail());
+            }
+        }));
+    }
+
+    private void apply(Runnable change) {
+        lock.writeLock().lock();
+        try {
+            if (pending != null) {
+                pending.add(change);
+            }
+            if (filter != null) {
+                change.run();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Caller holds the write lock. */
+    private void add(String email) {
+        filter.add(key(email));
+        entries.incrementAndGet();
+    }
+
+    /** Caller holds the write lock. */
+    private void remove(String email) {
+        filter.remove(key(email));
+        entries.decrementAndGet();
+    }
+
+    private static String key(String email) {
+        return email.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static Counter check(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("users.email-filter.checks")
+                .description("Email uniqueness checks by outcome")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+}
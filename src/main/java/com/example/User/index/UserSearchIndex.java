@@ -0,0 +1,408 @@
+package com.example.User.index;
+
+import com.example.User.entities.User;
+import com.example.User.events.UserChangedEvent;
+import com.example.User.events.UsersCreatedEvent;
+import com.example.User.repositories.UserRepository;
+import com.example.User.sharding.ShardTemplate;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory trigram index over the lower-cased {@code lastName},
+ * {@code firstName} and {@code email} of every user, for type-ahead search.
+ * Each trigram maps to a sorted {@code int[]} posting list of user ids; terms
+ * are also indexed with two leading start markers so one- and two-character
+ * queries match as prefixes. Queries of three or more characters match
+ * anywhere in a term.
+ * <p>
+ * A query intersects the posting lists of its trigrams, smallest first, then
+ * checks at most {@code users.search.max-candidates} candidates against the
+ * stored terms, so latency stays bounded however common the query is. Results
+ * rank exact matches before prefix matches before substring matches, then by id.
+ * <p>
+ * Loaded once the application is ready and kept current from committed
+ * {@link UserChangedEvent}s and {@link UsersCreatedEvent}s, like
+ * {@link BirthDateIndex}. Disabled unless {@code users.index.search.enabled=true}.
+ */
+@Component
+@Profile("!reactive")
+public class UserSearchIndex {
+    private static final Logger log = LoggerFactory.getLogger(UserSearchIndex.class);
+
+    private static final char START = '\u0002';
+    private static final int EXACT = 0, PREFIX = 1, SUBSTRING = 2, NO_MATCH = 3;
+
+    private final UserRepository userRepository;
+    private final ShardTemplate shardTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final int maxCandidates;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private Trigrams trigrams = new Trigrams();
+    private List<Runnable> pending;
+    private volatile boolean ready;
+
+    @Autowired
+    public UserSearchIndex(UserRepository userRepository, ShardTemplate shardTemplate,
+                           PlatformTransactionManager transactionManager, MeterRegistry meterRegistry,
+                           @Value("${users.index.search.enabled}") boolean enabled,
+                           @Value("${users.search.max-candidates}") int maxCandidates) {
+        this.userRepository = userRepository;
+        this.shardTemplate = shardTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.enabled = enabled;
+        this.maxCandidates = maxCandidates;
+        Gauge.builder("users.search.index.size", this, UserSearchIndex::size)
+                .description("Users in the search index")
+                .register(meterRegistry);
+        Gauge.builder("users.search.index.memory", this, UserSearchIndex::memoryBytes)
+                .description("Estimated heap used by the search index")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return trigrams.terms.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Estimated heap footprint in bytes, assuming compressed oops and
+     * compact (Latin-1) strings.
+     */
+    public long memoryBytes() {
+        lock.readLock().lock();
+        try {
+            return trigrams.memoryBytes();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Ids of at most {@code limit} users matching {@code query}, best match first.
+     */
+    public int[] search(String query, int limit) {
+        String term = query.trim().toLowerCase(Locale.ROOT);
+        if(term.isEmpty() || limit <= 0) {
+            return new int[0];
+        }
+        lock.readLock().lock();
+        try {
+            return trigrams.search(term, limit, maxCandidates);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        if (!enabled) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            pending = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        Trigrams loaded = new Trigrams();
+        shardTemplate.forEachShard(shard -> transactionTemplate.executeWithoutResult(status ->
+                userRepository.forEachIdNamesAndEmail(user -> loaded.put(user.getId(),
+                        new String[] { user.getLastName(), user.getFirstName(), user.getEmail() }))));
+        loaded.trim();
+
+        lock.writeLock().lock();
+        try {
+            trigrams = loaded;
+            pending.forEach(Runnable::run);
+            pending = null;
+            ready = true;
+            log.info("Search index loaded {} users in {} trigrams, about {} KiB",
+                    trigrams.terms.size(), trigrams.postings.size(), trigrams.memoryBytes() / 1024);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserChanged(UserChangedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        Map<String, Object> changes = event.getChanges();
+        switch (event.getType()) {
+            case CREATED -> apply(() -> trigrams.put(event.getId(), new String[] {
+                    (String) changes.get("lastName"), (String) changes.get("firstName"), (String) changes.get("email") }));
+            case UPDATED -> {
+                if (changes.containsKey("lastName") || changes.containsKey("firstName") || changes.containsKey("email")) {
+                    apply(() -> trigrams.update(event.getId(), changes));
+                }
+            }
+            case DELETED -> apply(() -> trigrams.remove(event.getId()));
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUsersCreated(UsersCreatedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        List<User> users = event.getUsers();
+        apply(() -> users.forEach(user ->
+                trigrams.put(user.getId(), new String[] { user.getLastName(), user.getFirstName(), user.getEmail() })));
+    }
+
+    private void apply(Runnable change) {
+        lock.writeLock().lock();
+        try {
+            if (pending != null) {
+                pending.add(change);
+            } else {
+                change.run();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Packs three characters into one map key. */
+    private static long key(char first, char second, char third) {
+        return (long) first << 32 | (long) second << 16 | third;
+    }
+
+    /**
+     * Trigrams of {@code term}: all of them for queries of three or more
+     * characters, otherwise the single padded prefix trigram.
+     */
+    private static long[] queryKeys(String term) {
+        if (term.length() == 1) {
+            return new long[] { key(START, START, term.charAt(0)) };
+        }
+        if (term.length() == 2) {
+            return new long[] { key(START, term.charAt(0), term.charAt(1)) };
+        }
+        long[] keys = new long[term.length() - 2];
+        for (int i = 0; i < keys.length; i++)
+            keys[i] = key(term.charAt(i), term.charAt(i + 1), term.charAt(i + 2));
+        return keys;
+    }
+
+    /** Trigrams of all fields of one user, start-padded. */
+    private static Set<Long> documentKeys(String[] fields) {
+        Set<Long> keys = new HashSet<>();
+        for (String field : fields) {
+            if (field == null || field.isEmpty()) {
+                continue;
+            }
+            String padded = "" + START + START + field;
+            for (int i = 0; i + 2 < padded.length(); i++)
+                keys.add(key(padded.charAt(i), padded.charAt(i + 1), padded.charAt(i + 2)));
+        }
+        return keys;
+    }
+
+    private static int rank(String[] fields, String term) {
+        int best = NO_MATCH;
+        for (String field : fields) {
+            if (field == null) {
+                continue;
+            }
+            if (field.equals(term)) {
+                return EXACT;
+            }
+            if (field.startsWith(term)) {
+                best = PREFIX;
+            } else if (best == NO_MATCH && term.length() >= 3 && field.contains(term)) {
+                best = SUBSTRING;
+            }
+        }
+        return best;
+    }
+
+    private static String[] lowerCase(String[] fields) {
+        String[] lower = new String[fields.length];
+        for (int i = 0; i < fields.length; i++)
+            lower[i] = fields[i] == null ? null : fields[i].toLowerCase(Locale.ROOT);
+        return lower;
+    }
+
+    /** The index proper; guarded by the enclosing lock once published. */
+    private static class Trigrams {
+        private final Map<Long, Postings> postings = new HashMap<>();
+        private final Map<Integer, String[]> terms = new HashMap<>();
+
+        void put(int id, String[] fields) {
+            remove(id);
+            String[] lower = lowerCase(fields);
+            terms.put(id, lower);
+            for (long key : documentKeys(lower))
+                postings.computeIfAbsent(key, k -> new Postings()).add(id);
+        }
+
+        void update(int id, Map<String, Object> changes) {
+            String[] fields = terms.getOrDefault(id, new String[3]).clone();
+            if (changes.containsKey("lastName")) {
+                fields[0] = (String) changes.get("lastName");
+            }
+            if (changes.containsKey("firstName")) {
+                fields[1] = (String) changes.get("firstName");
+            }
+            if (changes.containsKey("email")) {
+                fields[2] = (String) changes.get("email");
+            }
+            put(id, fields);
+        }
+
+        void remove(int id) {
+            String[] fields = terms.remove(id);
+            if (fields == null) {
+                return;
+            }
+            for (long key : documentKeys(fields)) {
+                Postings list = postings.get(key);
+                if (list != null && list.remove(id) && list.size == 0) {
+                    postings.remove(key);
+                }
+            }
+        }
+
+        void trim() {
+            postings.values().forEach(Postings::trim);
+        }
+
+        int[] search(String term, int limit, int maxCandidates) {
+            long[] keys = queryKeys(term);
+            Postings[] lists = new Postings[keys.length];
+            for (int i = 0; i < keys.length; i++) {
+                lists[i] = postings.get(keys[i]);
+                if (lists[i] == null) {
+                    return new int[0];
+                }
+            }
+            Arrays.sort(lists, Comparator.comparingInt(list -> list.size));
+
+            // worst (rank, id) on top, so it is the one replaced by a better match
+            PriorityQueue<long[]> best = new PriorityQueue<>(limit + 1,
+                    Comparator.<long[]>comparingLong(entry -> entry[0]).thenComparingLong(entry -> entry[1]).reversed());
+            Postings smallest = lists[0];
+            int checked = 0;
+            for (int i = 0; i < smallest.size && checked < maxCandidates; i++) {
+                int id = smallest.ids[i];
+                if (!containedInAll(lists, id)) {
+                    continue;
+                }
+                checked++;
+                int rank = rank(terms.get(id), term);
+                if (rank == NO_MATCH) {
+                    continue;
+                }
+                best.add(new long[] { rank, id });
+                if (best.size() > limit) {
+                    best.poll();
+                }
+                if (best.size() == limit && best.peek()[0] == EXACT) {
+                    break;
+                }
+            }
+            int[] ids = new int[best.size()];
+            for (int i = ids.length - 1; i >= 0; i--)
+                ids[i] = (int) best.poll()[1];
+            return ids;
+        }
+
+        private static boolean containedInAll(Postings[] lists, int id) {
+            for (int i = 1; i < lists.length; i++)
+                if (Arrays.binarySearch(lists[i].ids, 0, lists[i].size, id) < 0)
+                    return false;
+            return true;
+        }
+
+        long memoryBytes() {
+            // per entry: map node, boxed key and table slot 64, object or array header 16
+            long bytes = 0;
+            for (Postings list : postings.values())
+                bytes += 64 + 16 + 16 + 4L * list.ids.length;
+            for (String[] fields : terms.values()) {
+                bytes += 56 + 16 + 4L * fields.length;
+                for (String field : fields)
+                    if (field != null)
+                        bytes += 24 + 16 + field.length();
+            }
+            return bytes;
+        }
+    }
+
+    /** Sorted, growable list of user ids. */
+    private static class Postings {
+        private int[] ids = new int[2];
+        private int size;
+
+        void add(int id) {
+            int position = size == 0 || ids[size - 1] < id ? size : Arrays.binarySearch(ids, 0, size, id);
+            if (position >= 0 && position < size) {
+                return;
+            }
+            if (position < 0) {
+                position = -position - 1;
+            }
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size + (size >> 1) + 1);
+            }
+            System.arraycopy(ids, position, ids, position + 1, size - position);
+            ids[position] = id;
+            size++;
+        }
+
+        boolean remove(int id) {
+            int position = Arrays.binarySearch(ids, 0, size, id);
+            if (position < 0) {
+                return false;
+            }
+            System.arraycopy(ids, position + 1, ids, position, size - position - 1);
+            size--;
+            return true;
+        }
+
+        void trim() {
+            if (ids.length > size) {
+                ids = Arrays.copyOf(ids, Math.max(1, size));
+            }
+        }
+    }
+}
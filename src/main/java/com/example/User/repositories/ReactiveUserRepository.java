@@ -0,0 +1,176 @@
+package com.example.User.repositories;
+
+import com.example.User.entities.User;
+import io.r2dbc.spi.Readable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.r2dbc.core.DatabaseClient.GenericExecuteSpec;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Date;
+
+/**
+ * R2DBC counterpart of {@link UserRepository} for the reactive profile. It maps
+ * the same {@code User} table and columns as the JPA entity, and like it
+ * skips rows soft deleted by the servlet stack.
+ * <p>
+ * Ids come from the same {@code user_seq} table Hibernate's pooled generator
+ * uses on MySQL, reserved the same way: a block of {@value #ID_BLOCK} ids per
+ * compare-and-set update of {@code next_val}. So both stacks can write to one
+ * unsharded database without handing out the same id twice.
+ */
+@Repository
+@Profile("reactive")
+public class ReactiveUserRepository {
+    /** Must match the increment of {@code user_seq} on {@code User.id}. */
+    private static final int ID_BLOCK = 50;
+    private static final int MAX_RESERVE_ATTEMPTS = 100;
+
+    private final DatabaseClient databaseClient;
+    private final Object idLock = new Object();
+    private long nextId = 1;
+    private long maxId;
+
+    @Autowired
+    public ReactiveUserRepository(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    public Mono<User> insert(User user) {
+        return nextId().flatMap(id -> {
+            GenericExecuteSpec spec = databaseClient.sql(
+                    "insert into User (id, email, lastname, firstname, birthdate, address, phonenumber) " +
+                            "values (:id, :email, :lastName, :firstName, :birthDate, :address, :phoneNumber)");
+            return bindColumns(spec, user)
+                    .bind("id", id)
+                    .fetch()
+                    .rowsUpdated()
+                    .map(inserted -> {
+                        user.setId(id);
+                        return user;
+                    });
+        });
+    }
+
+    public Mono<Long> update(int id, User user) {
+        GenericExecuteSpec spec = databaseClient.sql(
+                "update User set email = :email, lastname = :lastName, firstname = :firstName, " +
+                        "birthdate = :birthDate, address = :address, phonenumber = :phoneNumber, version = version + 1 " +
+                        "where id = :id and deleted_at is null");
+        return bindColumns(spec, user)
+                .bind("id", id)
+                .fetch()
+                .rowsUpdated();
+    }
+
+    public Mono<Long> updateAddress(int id, String address) {
+        return bind(databaseClient.sql("update User set address = :address, version = version + 1 where id = :id and deleted_at is null"), "address", address, String.class)
+                .bind("id", id)
+                .fetch()
+                .rowsUpdated();
+    }
+
+    public Mono<Long> updatePhoneNumber(int id, String phoneNumber) {
+        return bind(databaseClient.sql("update User set phonenumber = :phoneNumber, version = version + 1 where id = :id and deleted_at is null"), "phoneNumber", phoneNumber, String.class)
+                .bind("id", id)
+                .fetch()
+                .rowsUpdated();
+    }
+
+    public Mono<Long> deleteById(int id) {
+        return databaseClient.sql("delete from User where id = :id")
+                .bind("id", id)
+                .fetch()
+                .rowsUpdated();
+    }
+
+    /**
+     * Users born strictly between {@code from} and {@code to}, ordered by
+     * (birthDate, id). Rows are pulled from the driver as downstream demands them.
+     */
+    public Flux<User> findUsersByBirthDateAfterAndBirthDateBefore(Date from, Date to) {
+        return databaseClient.sql("select id, email, lastname, firstname, birthdate, address, phonenumber from User " +
+                        "where birthdate > :from and birthdate < :to and deleted_at is null order by birthdate, id")
+                .bind("from", toLocalDateTime(from))
+                .bind("to", toLocalDateTime(to))
+                .map(ReactiveUserRepository::toUser)
+                .all();
+    }
+
+    private Mono<Integer> nextId() {
+        synchronized (idLock) {
+            if (nextId <= maxId) {
+                return Mono.just(Math.toIntExact(nextId++));
+            }
+        }
+        return reserveIdBlock().map(hi -> {
+            long lo = Math.max(1, hi - ID_BLOCK + 1);
+            synchronized (idLock) {
+                // a block reserved concurrently may have refilled the pool; the rest of this one is then skipped
+                if (nextId > maxId) {
+                    nextId = lo + 1;
+                    maxId = hi;
+                }
+            }
+            return Math.toIntExact(lo);
+        });
+    }
+
+    /**
+     * Advances {@code user_seq} by one block, retrying when another writer
+     * advanced it first, as Hibernate's table-backed sequence does.
+     *
+     * @return the highest id of the reserved block
+     */
+    private Mono<Long> reserveIdBlock() {
+        return databaseClient.sql("select next_val from user_seq")
+                .map(row -> row.get("next_val", Long.class))
+                .one()
+                .flatMap(current -> databaseClient.sql("update user_seq set next_val = :next where next_val = :current")
+                        .bind("next", current + ID_BLOCK)
+                        .bind("current", current)
+                        .fetch()
+                        .rowsUpdated()
+                        .filter(updated -> updated == 1)
+                        .map(updated -> current))
+                .repeatWhenEmpty(MAX_RESERVE_ATTEMPTS, attempts -> attempts);
+    }
+
+    private static GenericExecuteSpec bindColumns(GenericExecuteSpec spec, User user) {
+        spec = bind(spec, "email", user.getEmail(), String.class);
+        spec = bind(spec, "lastName", user.getLastName(), String.class);
+        spec = bind(spec, "firstName", user.getFirstName(), String.class);
+        spec = bind(spec, "birthDate", toLocalDateTime(user.getBirthDate()), LocalDateTime.class);
+        spec = bind(spec, "address", user.getAddress(), String.class);
+        return bind(spec, "phoneNumber", user.getPhoneNumber(), String.class);
+    }
+
+    private static GenericExecuteSpec bind(GenericExecuteSpec spec, String name, Object value, Class<?> type) {
+        return value == null ? spec.bindNull(name, type) : spec.bind(name, value);
+    }
+
+    private static User toUser(Readable row) {
+        return User.builder()
+                .id(row.get("id", Integer.class))
+                .email(row.get("email", String.class))
+                .lastName(row.get("lastname", String.class))
+                .firstName(row.get("firstname", String.class))
+                .birthDate(toDate(row.get("birthdate", LocalDateTime.class)))
+                .address(row.get("address", String.class))
+                .phoneNumber(row.get("phonenumber", String.class))
+                .build();
+    }
+
+    private static LocalDateTime toLocalDateTime(Date date) {
+        return date == null ? null : LocalDateTime.ofInstant(date.toInstant(), ZoneId.systemDefault());
+    }
+
+    private static Date toDate(LocalDateTime dateTime) {
+        return dateTime == null ? null : Date.from(dateTime.atZone(ZoneId.systemDefault()).toInstant());
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.User.repositories;
+
+import com.example.User.entities.UserChangeHead;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface UserChangeHeadRepository extends JpaRepository<UserChangeHead, Integer> {
+
+    /** Loads the head row and locks it until the transaction ends. */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select h from UserChangeHead h where h.id = " + UserChangeHead.ID)
+    Optional<UserChangeHead> lockHead();
+}
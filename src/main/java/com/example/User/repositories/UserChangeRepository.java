@@ -0,0 +1,33 @@
+package com.example.User.repositories;
+
+import com.example.User.entities.UserChange;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Date;
+import java.util.List;
+
+@Repository
+public interface UserChangeRepository extends JpaRepository<UserChange, Long> {
+
+    @Query("select c from UserChange c where c.position > :afterPosition order by c.position")
+    List<UserChange> findBatch(@Param("afterPosition") long afterPosition, Limit limit);
+
+    /**
+     * Committed rows the relay has not given a position yet, oldest write
+     * first.
+     */
+    @Query("select c from UserChange c where c.position is null order by c.createdAt, c.id")
+    List<UserChange> findUnsequenced(Limit limit);
+
+    @Query("select coalesce(max(c.position), 0) from UserChange c")
+    long findMaxPosition();
+
+    @Modifying
+    @Query("delete from UserChange c where c.createdAt < :before")
+    int deleteCreatedBefore(@Param("before") Date before);
+}
@@ -1,14 +1,91 @@
 package com.example.User.repositories;
 
 import com.example.User.entities.User;
+import org.springframework.data.domain.Limit;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
-public interface UserRepository extends JpaRepository<User, Integer> {
-    List<User> findUsersByBirthDateAfterAndBirthDateBefore(Date from, Date to);
+public interface UserRepository extends JpaRepository<User, Integer>, UserRepositoryCustom {
+    List<User> findUsersByBirthDateAfterAndBirthDateBeforeOrderByBirthDateAscIdAsc(Date from, Date to);
+
+    @Query("select u from User u where u.birthDate > :from and u.birthDate < :to " +
+            "and (u.birthDate > :afterDate or (u.birthDate = :afterDate and u.id > :afterId)) " +
+            "order by u.birthDate, u.id")
+    List<User> findPageByBirthDateRange(@Param("from") Date from, @Param("to") Date to,
+                                        @Param("afterDate") Date afterDate, @Param("afterId") int afterId,
+                                        Limit limit);
+
+    @Query("select u from User u where u.id > :afterId and u.id <= :toId order by u.id")
+    List<User> findPageByIdRange(@Param("afterId") int afterId, @Param("toId") int toId, Limit limit);
+
+    boolean existsByEmail(String email);
+
+    /** Takes a connection without reading any table. */
+    @Query(value = "select 1", nativeQuery = true)
+    int ping();
+
+    @Query("select coalesce(max(u.id), 0) from User u")
+    int findMaxId();
+
+    @Query("select u.version from User u where u.id = :id")
+    Optional<Integer> findVersionById(@Param("id") int id);
+
+    @Query("select u.birthDate from User u where u.id = :id")
+    Optional<Date> findBirthDateById(@Param("id") int id);
+
+    /**
+     * Number of users per distinct birth date, as {@code [Date, Long]} rows.
+     */
+    @Query("select u.birthDate, count(u) from User u where u.birthDate is not null group by u.birthDate")
+    List<Object[]> countByBirthDate();
+
+    /**
+     * Users whose lastName, firstName or email starts with {@code prefix},
+     * which must be lower case with {@code %}, {@code _} and {@code !}
+     * escaped by {@code !}; the search fallback while the index loads.
+     * {@code lower()} keeps any index on these columns from being used, so
+     * this scans the table and is only fit for that short window.
+     */
+    @Query("select u from User u where lower(u.lastName) like concat(:prefix, '%') escape '!' " +
+            "or lower(u.firstName) like concat(:prefix, '%') escape '!' " +
+            "or lower(u.email) like concat(:prefix, '%') escape '!' " +
+            "order by u.id")
+    List<User> findByNameOrEmailPrefix(@Param("prefix") String prefix, Limit limit);
+
+    /**
+     * Ids of users born strictly between {@code from} and {@code to} with an
+     * id above {@code afterId}, ordered by id; read without locking.
+     */
+    @Query("select u.id from User u where u.birthDate > :from and u.birthDate < :to and u.id > :afterId " +
+            "order by u.id")
+    List<Integer> findIdsByBirthDateRange(@Param("from") Date from, @Param("to") Date to,
+                                          @Param("afterId") int afterId, Limit limit);
+
+    /**
+     * Loads users by primary key and locks their rows until the transaction
+     * ends, so a following bulk delete removes exactly the users loaded.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select u from User u where u.id in :ids")
+    List<User> findAllByIdForUpdate(@Param("ids") Collection<Integer> ids);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("delete from User u where u.id in :ids")
+    int deleteAllByIdIn(@Param("ids") Collection<Integer> ids);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update User u set u.deletedAt = :deletedAt, u.version = u.version + 1 where u.id in :ids")
+    int softDeleteAllByIdIn(@Param("ids") Collection<Integer> ids, @Param("deletedAt") Date deletedAt);
 
 }
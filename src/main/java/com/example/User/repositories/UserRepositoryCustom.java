@@ -0,0 +1,68 @@
+package com.example.User.repositories;
+
+import com.example.User.entities.User;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.ObjIntConsumer;
+
+public interface UserRepositoryCustom {
+    /**
+     * Persists new users in JDBC batches of {@code users.batch-size},
+     * flushing and clearing the persistence context after every batch.
+     */
+    void batchInsert(List<User> users);
+
+    /**
+     * Reads users born strictly between {@code from} and {@code to} through a
+     * forward-only cursor of {@code users.fetch-size} rows, ordered by
+     * (birthDate, id). Each user is detached after {@code action} returns.
+     */
+    void forEachByBirthDateRange(Date from, Date to, Consumer<User> action);
+
+    /**
+     * Streams users with {@code afterId < id <= toId} ordered by id, with the
+     * same cursor and detaching behaviour as {@link #forEachByBirthDateRange}.
+     */
+    void forEachByIdRange(int afterId, int toId, Consumer<User> action);
+
+    /**
+     * Reads (birthDate, id) of every user ordered by (birthDate, id) through a
+     * forward-only cursor, without materialising entities.
+     */
+    void forEachIdAndBirthDate(ObjIntConsumer<Date> action);
+
+    /**
+     * Reads the email of every user that has one through a forward-only cursor.
+     */
+    void forEachEmail(Consumer<String> action);
+
+    /**
+     * Reads id, lastName, firstName and email of every user through a
+     * forward-only cursor into transient users with only those fields set.
+     */
+    void forEachIdNamesAndEmail(Consumer<User> action);
+
+    /**
+     * Sets only the given attributes of one user in a single
+     * {@code UPDATE ... WHERE id = ?} without loading the row first, and bumps
+     * its version. With an {@code expectedVersion} the row is only updated if
+     * its version still matches, so concurrent writers never overwrite each
+     * other and no row lock is held between read and write.
+     *
+     * @return the number of updated rows, {@code 0} when no user has that id,
+     * it is soft deleted or the version did not match
+     */
+    int updateFields(int id, Map<String, Object> changes, Integer expectedVersion);
+
+    /**
+     * Hard deletes up to {@code limit} users soft deleted before
+     * {@code before}: a select of their ids, then one delete by primary key,
+     * so only those rows are locked.
+     *
+     * @return the number of users deleted
+     */
+    int purgeDeleted(Date before, int limit);
+}
@@ -0,0 +1,151 @@
+package com.example.User.repositories;
+
+import com.example.User.entities.User;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaUpdate;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.ObjIntConsumer;
+import java.util.stream.Stream;
+
+public class UserRepositoryImpl implements UserRepositoryCustom {
+    private final EntityManager entityManager;
+    private final int batchSize;
+    private final int fetchSize;
+
+    @Autowired
+    public UserRepositoryImpl(EntityManager entityManager,
+                              @Value("${users.batch-size}") int batchSize,
+                              @Value("${users.fetch-size}") int fetchSize) {
+        this.entityManager = entityManager;
+        this.batchSize = batchSize;
+        this.fetchSize = fetchSize;
+    }
+
+    @Override
+    public void batchInsert(List<User> users) {
+        for (int i = 0; i < users.size(); i++) {
+            entityManager.persist(users.get(i));
+            if ((i + 1) % batchSize == 0) {
+                entityManager.flush();
+                entityManager.clear();
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Override
+    public void forEachByBirthDateRange(Date from, Date to, Consumer<User> action) {
+        TypedQuery<User> query = entityManager.createQuery(
+                        "select u from User u where u.birthDate > :from and u.birthDate < :to " +
+                                "order by u.birthDate, u.id", User.class)
+                .setParameter("from", from)
+                .setParameter("to", to);
+        forEach(query, action);
+    }
+
+    @Override
+    public void forEachByIdRange(int afterId, int toId, Consumer<User> action) {
+        TypedQuery<User> query = entityManager.createQuery(
+                        "select u from User u where u.id > :afterId and u.id <= :toId order by u.id", User.class)
+                .setParameter("afterId", afterId)
+                .setParameter("toId", toId);
+        forEach(query, action);
+    }
+
+    /**
+     * Streams read-only results through a forward-only cursor, detaching each
+     * user once handled so the persistence context does not grow.
+     */
+    private void forEach(TypedQuery<User> query, Consumer<User> action) {
+        query.setHint(HibernateHints.HINT_FETCH_SIZE, fetchSize)
+                .setHint(HibernateHints.HINT_READ_ONLY, true);
+        try (Stream<User> users = query.getResultStream()) {
+            users.forEach(user -> {
+                action.accept(user);
+                entityManager.detach(user);
+            });
+        }
+    }
+
+    @Override
+    public void forEachIdAndBirthDate(ObjIntConsumer<Date> action) {
+        TypedQuery<Object[]> query = entityManager.createQuery(
+                        "select u.birthDate, u.id from User u order by u.birthDate, u.id", Object[].class)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, fetchSize);
+        try (Stream<Object[]> rows = query.getResultStream()) {
+            rows.forEach(row -> action.accept((Date) row[0], (Integer) row[1]));
+        }
+    }
+
+    @Override
+    public void forEachEmail(Consumer<String> action) {
+        TypedQuery<String> query = entityManager.createQuery(
+                        "select u.email from User u where u.email is not null", String.class)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, fetchSize);
+        try (Stream<String> emails = query.getResultStream()) {
+            emails.forEach(action);
+        }
+    }
+
+    @Override
+    public void forEachIdNamesAndEmail(Consumer<User> action) {
+        TypedQuery<Object[]> query = entityManager.createQuery(
+                        "select u.id, u.lastName, u.firstName, u.email from User u", Object[].class)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, fetchSize);
+        try (Stream<Object[]> rows = query.getResultStream()) {
+            rows.forEach(row -> action.accept(User.builder()
+                    .id((Integer) row[0])
+                    .lastName((String) row[1])
+                    .firstName((String) row[2])
+                    .email((String) row[3])
+                    .build()));
+        }
+    }
+
+    @Override
+    public int updateFields(int id, Map<String, Object> changes, Integer expectedVersion) {
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaUpdate<User> update = criteriaBuilder.createCriteriaUpdate(User.class);
+        Root<User> root = update.from(User.class);
+        Path<Integer> version = root.get("version");
+        changes.forEach(update::set);
+        update.set(version, criteriaBuilder.sum(version, 1));
+        Predicate byId = criteriaBuilder.equal(root.get("id"), id);
+        update.where(expectedVersion == null ? byId
+                : criteriaBuilder.and(byId, criteriaBuilder.equal(version, expectedVersion)));
+        return entityManager.createQuery(update).executeUpdate();
+    }
+
+    /**
+     * Native SQL, as the entity's restriction hides soft deleted rows from
+     * every JPQL query.
+     */
+    @Override
+    public int purgeDeleted(Date before, int limit) {
+        @SuppressWarnings("unchecked")
+        List<Number> ids = entityManager.createNativeQuery(
+                        "select id from user where deleted_at < :before order by deleted_at")
+                .setParameter("before", before)
+                .setMaxResults(limit)
+                .getResultList();
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        return entityManager.createNativeQuery("delete from user where id in (:ids)")
+                .setParameter("ids", ids.stream().map(Number::intValue).toList())
+                .executeUpdate();
+    }
+}
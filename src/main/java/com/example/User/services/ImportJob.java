@@ -0,0 +1,108 @@
+package com.example.User.services;
+
+import com.example.User.dto.ImportReportDTO;
+import com.example.User.dto.ImportReportDTO.RejectedRow;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Progress of one {@link UserImportService} run. Counters are updated by the
+ * pipeline threads and can be read at any time through {@link #toReport()}.
+ */
+public class ImportJob {
+    public enum Status { RUNNING, COMPLETED, FAILED }
+
+    private final String id;
+    private final String source;
+    private final int maxRejects;
+    private final long startedAt = System.currentTimeMillis();
+    private final AtomicLong read = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final List<RejectedRow> rejects = new ArrayList<>();
+    private volatile Status status = Status.RUNNING;
+    private volatile String failure;
+    private volatile long finishedAt;
+
+    ImportJob(String id, String source, int maxRejects) {
+        this.id = id;
+        this.source = source;
+        this.maxRejects = maxRejects;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public boolean isRunning() {
+        return status == Status.RUNNING;
+    }
+
+    void recordRead() {
+        read.incrementAndGet();
+    }
+
+    void recordRejected(long line, String message) {
+        rejected.incrementAndGet();
+        synchronized (rejects) {
+            if(rejects.size() < maxRejects) {
+                rejects.add(new RejectedRow(line, message));
+            }
+        }
+    }
+
+    void recordWritten(int count) {
+        written.addAndGet(count);
+    }
+
+    synchronized void complete() {
+        if(status != Status.RUNNING) {
+            return;
+        }
+        finishedAt = System.currentTimeMillis();
+        status = Status.COMPLETED;
+    }
+
+    /** Marks the job failed; only the first failure is kept. */
+    synchronized void fail(Throwable cause) {
+        if(status != Status.RUNNING) {
+            return;
+        }
+        failure = cause.getClass().getSimpleName() + ": " + cause.getMessage();
+        finishedAt = System.currentTimeMillis();
+        status = Status.FAILED;
+    }
+
+    boolean isFailed() {
+        return status == Status.FAILED;
+    }
+
+    public ImportReportDTO toReport() {
+        long elapsed = (status == Status.RUNNING ? System.currentTimeMillis() : finishedAt) - startedAt;
+        long writtenNow = written.get();
+        List<RejectedRow> rejectsNow;
+        synchronized (rejects) {
+            rejectsNow = List.copyOf(rejects);
+        }
+        return ImportReportDTO.builder()
+                .id(id)
+                .source(source)
+                .status(status.name())
+                .startedAt(new Date(startedAt))
+                .elapsedMillis(elapsed)
+                .read(read.get())
+                .rejected(rejected.get())
+                .written(writtenNow)
+                .usersPerSecond(elapsed == 0 ? 0 : writtenNow * 1000.0 / elapsed)
+                .rejects(rejectsNow)
+                .failure(failure)
+                .build();
+    }
+}
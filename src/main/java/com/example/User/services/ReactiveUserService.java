@@ -0,0 +1,66 @@
+package com.example.User.services;
+
+import com.example.User.entities.User;
+import com.example.User.exceptions.UserNotFoundException;
+import com.example.User.repositories.ReactiveUserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Date;
+
+/**
+ * Non-blocking counterpart of {@link UserService} for the reactive profile.
+ */
+@Service
+@Profile("reactive")
+public class ReactiveUserService {
+    private final ReactiveUserRepository userRepository;
+
+    @Autowired
+    public ReactiveUserService(ReactiveUserRepository userRepository) {
+        this.userRepository = userRepository;
+    }
+
+    @Transactional
+    public Mono<User> save(User user) {
+        return userRepository.insert(user);
+    }
+
+    @Transactional
+    public Mono<Void> update(int id, User updated) {
+        return requireUpdated(id, userRepository.update(id, updated));
+    }
+
+    @Transactional
+    public Mono<Void> delete(int id) {
+        return userRepository.deleteById(id).then();
+    }
+
+    @Transactional
+    public Mono<Void> updateAddress(int id, String newAddress) {
+        return requireUpdated(id, userRepository.updateAddress(id, newAddress));
+    }
+
+    @Transactional
+    public Mono<Void> updatePhone(int id, String newPhone) {
+        return requireUpdated(id, userRepository.updatePhoneNumber(id, newPhone));
+    }
+
+    @Transactional(readOnly = true)
+    public Flux<User> findByDateRange(Date from, Date to) {
+        if(from.after(to)) {
+            return Flux.error(new IllegalArgumentException("\'from\' should be before \'to\'"));
+        }
+        return userRepository.findUsersByBirthDateAfterAndBirthDateBefore(from, to);
+    }
+
+    private Mono<Void> requireUpdated(int id, Mono<Long> rowsUpdated) {
+        return rowsUpdated.flatMap(rows -> rows == 0
+                ? Mono.error(new UserNotFoundException("User with id " + id + " not found"))
+                : Mono.empty());
+    }
+}
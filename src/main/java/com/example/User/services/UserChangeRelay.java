@@ -0,0 +1,525 @@
+package com.example.User.services;
+
+import com.example.User.dto.UserChangeDTO;
+import com.example.User.entities.UserChange;
+import com.example.User.entities.UserChangeHead;
+import com.example.User.repositories.UserChangeHeadRepository;
+import com.example.User.repositories.UserChangeRepository;
+import com.example.User.sharding.ShardTemplate;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+/**
+ * Single reader of the {@code user_change} outbox that fans changes out to
+ * every change feed subscriber, so the table is polled once per
+ * {@code users.changes.poll-interval} however many clients listen.
+ * <p>
+ * Each poll first gives the committed rows that have none a feed position,
+ * under the lock of the {@link UserChangeHead} row. A row only becomes
+ * visible once its transaction commits, so positions follow commit order and
+ * the feed never skips a row that commits late. The most recent
+ * {@code users.changes.buffer-size} changes are kept in memory so resuming
+ * subscribers are served without a query; older offsets are read back from
+ * the outbox for that subscriber only, a page of
+ * {@code users.changes.batch-size} at a time on the sender threads, and it
+ * only receives live changes once it has caught up.
+ * <p>
+ * With several shards every shard has its own outbox, head and positions, in
+ * the same transactions as its users, and the relay keeps a cursor per shard.
+ * An event id is then the position reached on each shard, joined by
+ * {@code .}; unsharded it is the plain position. Changes of one user stay in
+ * order, changes on different shards have no order between them.
+ * <p>
+ * Queries and sends happen outside the relay's lock. Every subscriber has
+ * its own queue of at most {@code users.changes.subscriber-queue-size}
+ * changes, sent on a thread of its own while it has any, so a slow client
+ * only holds up itself; one that falls further behind is dropped and can
+ * resume from its last event id.
+ */
+@Service
+@Profile("!reactive")
+public class UserChangeRelay {
+    private static final Logger log = LoggerFactory.getLogger(UserChangeRelay.class);
+
+    /** Receives relayed changes in feed order. */
+    public interface Listener {
+        /**
+         * @param eventId offset to resume after {@code change} from, as
+         *                {@code lastEventId} of {@link #subscribe}
+         */
+        void onChange(String eventId, UserChangeDTO change) throws IOException;
+
+        /**
+         * Called instead of further changes once the listener fell too far
+         * behind and was unsubscribed.
+         */
+        default void onDropped() {
+        }
+    }
+
+    private final UserChangeRepository changeRepository;
+    private final UserChangeHeadRepository headRepository;
+    private final ShardTemplate shardTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Executor sender;
+    private final int batchSize;
+    private final int bufferSize;
+    private final int queueSize;
+    private final Duration retention;
+
+    /** Guards {@link #subscriptions}, {@link #recent} and {@link #cursors}; never held across I/O. */
+    private final ReentrantLock lock = new ReentrantLock();
+    private final ReentrantLock pollLock = new ReentrantLock();
+    private final List<Subscription> subscriptions = new ArrayList<>();
+    private final ArrayDeque<Relayed> recent = new ArrayDeque<>();
+    /** Last position relayed per shard; {@code null} until started. */
+    private long[] cursors;
+
+    @Autowired
+    public UserChangeRelay(UserChangeRepository changeRepository, UserChangeHeadRepository headRepository,
+                           ShardTemplate shardTemplate, PlatformTransactionManager transactionManager,
+                           @Value("${users.changes.batch-size}") int batchSize,
+                           @Value("${users.changes.buffer-size}") int bufferSize,
+                           @Value("${users.changes.subscriber-queue-size}") int queueSize,
+                           @Value("${users.changes.retention}") Duration retention) {
+        this(changeRepository, headRepository, shardTemplate, transactionManager, senderPool(),
+                batchSize, bufferSize, queueSize, retention);
+    }
+
+    UserChangeRelay(UserChangeRepository changeRepository, UserChangeHeadRepository headRepository,
+                    ShardTemplate shardTemplate, PlatformTransactionManager transactionManager, Executor sender,
+                    int batchSize, int bufferSize, int queueSize, Duration retention) {
+        this.changeRepository = changeRepository;
+        this.headRepository = headRepository;
+        this.shardTemplate = shardTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_READ_COMMITTED);
+        this.sender = sender;
+        this.batchSize = batchSize;
+        this.bufferSize = bufferSize;
+        this.queueSize = queueSize;
+        this.retention = retention;
+    }
+
+    /**
+     * Starts the feed at the current end of the outbox; earlier changes are
+     * only sent to subscribers that ask for them.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        long[] ends = shardTemplate.executeOnAll(shard -> changeRepository.findMaxPosition()).stream()
+                .mapToLong(Long::longValue)
+                .toArray();
+        lock.lock();
+        try {
+            cursors = ends;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Registers {@code listener} and returns at once; the changes after
+     * {@code lastEventId} are then sent to it from a sender thread before any
+     * live change. Without {@code lastEventId} only changes relayed from now
+     * on are sent.
+     *
+     * @throws IllegalArgumentException if {@code lastEventId} is not an event
+     *                                  id of this feed
+     */
+    public void subscribe(String lastEventId, Listener listener) {
+        long[] after = lastEventId == null ? null : parseEventId(lastEventId);
+        Subscription subscription;
+        lock.lock();
+        try {
+            if(after == null) {
+                after = cursors == null ? new long[shardTemplate.getShardCount()] : cursors.clone();
+            }
+            subscription = new Subscription(listener, after);
+            subscriptions.add(subscription);
+        } finally {
+            lock.unlock();
+        }
+        sender.execute(() -> catchUp(subscription));
+    }
+
+    public void unsubscribe(Listener listener) {
+        lock.lock();
+        try {
+            subscriptions.removeIf(subscription -> {
+                if(subscription.listener != listener) {
+                    return false;
+                }
+                subscription.close();
+                return true;
+            });
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int subscribers() {
+        lock.lock();
+        try {
+            return subscriptions.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${users.changes.poll-interval}")
+    public void poll() {
+        pollLock.lock();
+        try {
+            shardTemplate.forEachShard(this::poll);
+        } finally {
+            pollLock.unlock();
+        }
+    }
+
+    /** Caller holds the poll lock and has bound {@code shard}. */
+    private void poll(int shard) {
+        sequence();
+        List<Relayed> batch;
+        do {
+            long after;
+            lock.lock();
+            try {
+                if(cursors == null) {
+                    return;
+                }
+                after = cursors[shard];
+            } finally {
+                lock.unlock();
+            }
+            batch = changeRepository.findBatch(after, Limit.of(batchSize)).stream()
+                    .map(change -> new Relayed(shard, UserChangeDTO.of(change)))
+                    .toList();
+            if(batch.isEmpty()) {
+                return;
+            }
+
+            List<Subscription> targets;
+            lock.lock();
+            try {
+                for(Relayed relayed: batch) {
+                    recent.addLast(relayed);
+                    if(recent.size() > bufferSize) {
+                        recent.removeFirst();
+                    }
+                }
+                cursors[shard] = batch.get(batch.size() - 1).change.getId();
+                targets = List.copyOf(subscriptions);
+            } finally {
+                lock.unlock();
+            }
+            for(Subscription subscription: targets)
+                if(!subscription.offer(batch))
+                    remove(subscription);
+        } while (batch.size() == batchSize);
+    }
+
+    @Scheduled(fixedDelayString = "${users.changes.purge-interval}")
+    public void purge() {
+        Date before = new Date(System.currentTimeMillis() - retention.toMillis());
+        int deleted = shardTemplate.executeOnAll(shard ->
+                        transactionTemplate.execute(status -> changeRepository.deleteCreatedBefore(before))).stream()
+                .mapToInt(Integer::intValue)
+                .sum();
+        if(deleted > 0) {
+            log.info("Purged {} user changes older than {}", deleted, retention);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if(sender instanceof ExecutorService executor) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Gives the committed rows of the bound shard without a position the next
+     * positions, in batches, each in a transaction holding the head row's lock.
+     */
+    private void sequence() {
+        int sequenced;
+        do {
+            try {
+                sequenced = transactionTemplate.execute(status -> {
+                    UserChangeHead head = headRepository.lockHead()
+                            .orElseGet(() -> headRepository.save(new UserChangeHead(UserChangeHead.ID, 1)));
+                    List<UserChange> changes = changeRepository.findUnsequenced(Limit.of(batchSize));
+                    long next = head.getNextPosition();
+                    for(UserChange change: changes)
+                        change.setPosition(next++);
+                    head.setNextPosition(next);
+                    return changes.size();
+                });
+            } catch (DataIntegrityViolationException e) {
+                log.debug("Another relay created the change feed head first", e);
+                return;
+            }
+        } while (sequenced == batchSize);
+    }
+
+    /**
+     * Sends {@code subscription} the changes it missed, a page at a time from
+     * {@link #recent} or, once that no longer reaches back far enough, from
+     * the outbox, until none is left and it goes live.
+     */
+    private void catchUp(Subscription subscription) {
+        long[] after = subscription.positions;
+        try {
+            while (true) {
+                List<Relayed> page = new ArrayList<>();
+                int behind = -1;
+                long bufferedFrom = 0;
+                lock.lock();
+                try {
+                    for(int shard = 0; shard < after.length && behind < 0; shard++) {
+                        bufferedFrom = bufferedFrom(shard);
+                        if(after[shard] < bufferedFrom) {
+                            behind = shard;
+                        }
+                    }
+                    if(behind < 0) {
+                        for(Relayed relayed: recent) {
+                            if(page.size() == batchSize) {
+                                break;
+                            }
+                            if(relayed.change.getId() > after[relayed.shard]) {
+                                page.add(relayed);
+                            }
+                        }
+                        if(page.isEmpty()) {
+                            // under the lock, so every batch relayed from here on is offered to it
+                            subscription.goLive();
+                            return;
+                        }
+                    }
+                } finally {
+                    lock.unlock();
+                }
+                if(behind >= 0) {
+                    int shard = behind;
+                    long from = after[shard];
+                    long end = bufferedFrom;
+                    shardTemplate.execute(shard, () -> changeRepository.findBatch(from, Limit.of(batchSize))).stream()
+                            .filter(change -> change.getPosition() <= end)
+                            .map(change -> new Relayed(shard, UserChangeDTO.of(change)))
+                            .forEach(page::add);
+                    if(page.isEmpty()) {
+                        after[shard] = end;
+                        continue;
+                    }
+                }
+                if(!subscription.catchUp(page)) {
+                    remove(subscription);
+                    return;
+                }
+            }
+        } catch (RuntimeException e) {
+            log.warn("Could not catch up change feed subscriber", e);
+            subscription.close();
+            remove(subscription);
+            subscription.listener.onDropped();
+        }
+    }
+
+    /**
+     * Position on {@code shard} from which {@link #recent} holds every relayed
+     * change. Caller holds the lock.
+     */
+    private long bufferedFrom(int shard) {
+        if(cursors == null) {
+            return 0;
+        }
+        for(Relayed relayed: recent)
+            if(relayed.shard == shard)
+                return relayed.change.getId() - 1;
+        return cursors[shard];
+    }
+
+    private long[] parseEventId(String eventId) {
+        String[] positions = eventId.split("\\.", -1);
+        if(positions.length != shardTemplate.getShardCount()) {
+            throw new IllegalArgumentException("Event id " + eventId + " is not from this change feed");
+        }
+        try {
+            return Arrays.stream(positions).mapToLong(Long::parseLong).toArray();
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Event id " + eventId + " is not from this change feed", e);
+        }
+    }
+
+    private static String eventId(long[] positions) {
+        return Arrays.stream(positions).mapToObj(Long::toString).collect(Collectors.joining("."));
+    }
+
+    private void remove(Subscription subscription) {
+        lock.lock();
+        try {
+            subscriptions.remove(subscription);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static ExecutorService senderPool() {
+        AtomicInteger threads = new AtomicInteger();
+        return Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "users-change-feed-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /** A change and the shard whose outbox it came from. */
+    private record Relayed(int shard, UserChangeDTO change) {
+    }
+
+    /**
+     * One subscriber's queue and the position it reached on each shard. At
+     * most one task sends from it at a time, and only while it is not empty.
+     * Until it is live, live batches are left to its catch-up.
+     */
+    private class Subscription {
+        private final Listener listener;
+        private final long[] positions;
+        private final ArrayDeque<Relayed> queue = new ArrayDeque<>();
+        private boolean sending;
+        private boolean closed;
+        private boolean dropped;
+        private boolean live;
+
+        private Subscription(Listener listener, long[] positions) {
+            this.listener = listener;
+            this.positions = positions;
+        }
+
+        /** Queues {@code batch}; {@code false} once the subscription is closed. */
+        boolean offer(List<Relayed> batch) {
+            boolean open;
+            synchronized (this) {
+                if(closed) {
+                    return false;
+                }
+                if(!live) {
+                    // caught up from the buffer or the outbox instead
+                    return true;
+                }
+                boolean start = enqueue(batch);
+                open = !closed;
+                if(!start) {
+                    return open;
+                }
+            }
+            sender.execute(this::send);
+            return open;
+        }
+
+        /**
+         * Queues a page of missed changes and sends it on the calling thread,
+         * so catching up holds at most one page; {@code false} once closed.
+         */
+        boolean catchUp(List<Relayed> page) {
+            synchronized (this) {
+                if(closed || !enqueue(page)) {
+                    return false;
+                }
+            }
+            send();
+            synchronized (this) {
+                return !closed;
+            }
+        }
+
+        synchronized void goLive() {
+            live = true;
+        }
+
+        synchronized void close() {
+            closed = true;
+            queue.clear();
+        }
+
+        /** Caller holds the monitor; {@code true} if the caller has to start sending. */
+        private boolean enqueue(List<Relayed> batch) {
+            if(queue.size() + batch.size() > queueSize) {
+                queue.clear();
+                closed = true;
+                dropped = true;
+            } else {
+                queue.addAll(batch);
+            }
+            if(sending) {
+                return false;
+            }
+            sending = true;
+            return true;
+        }
+
+        private void send() {
+            while (true) {
+                Relayed relayed;
+                boolean notifyDropped = false;
+                synchronized (this) {
+                    relayed = queue.poll();
+                    if(relayed == null) {
+                        sending = false;
+                        notifyDropped = dropped;
+                        dropped = false;
+                    }
+                }
+                if(relayed == null) {
+                    if(notifyDropped) {
+                        log.debug("Dropping change feed subscriber more than {} changes behind", queueSize);
+                        listener.onDropped();
+                    }
+                    return;
+                }
+                if(relayed.change.getId() <= positions[relayed.shard]) {
+                    // already sent while catching up
+                    continue;
+                }
+                positions[relayed.shard] = relayed.change.getId();
+                try {
+                    listener.onChange(eventId(positions), relayed.change);
+                } catch (IOException | RuntimeException e) {
+                    log.debug("Dropping change feed subscriber", e);
+                    close();
+                    remove(this);
+                    return;
+                }
+            }
+        }
+    }
+}
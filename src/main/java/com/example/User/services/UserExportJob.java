@@ -0,0 +1,89 @@
+package com.example.User.services;
+
+import com.example.User.util.UserRecordReader.Format;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Nightly dump of the user table into {@code users.export.directory}/&lt;date&gt;,
+ * scheduled by {@code users.export.cron} ({@code -} disables it).
+ * <p>
+ * The dump is split into gzip-compressed parts of {@code users.export.part-ids}
+ * consecutive ids, each written through a {@link FileChannel} to a temporary
+ * file and renamed once complete. A rerun on the same day skips parts that
+ * already exist, so a failed export resumes where it stopped.
+ */
+@Component
+@Profile("!reactive")
+public class UserExportJob {
+    private static final Logger log = LoggerFactory.getLogger(UserExportJob.class);
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final UserExportService exportService;
+    private final Path directory;
+    private final Format format;
+    private final int partIds;
+
+    @Autowired
+    public UserExportJob(UserExportService exportService,
+                         @Value("${users.export.directory}") Path directory,
+                         @Value("${users.export.format}") Format format,
+                         @Value("${users.export.part-ids}") int partIds) {
+        this.exportService = exportService;
+        this.directory = directory;
+        this.format = format;
+        this.partIds = partIds;
+    }
+
+    @Scheduled(cron = "${users.export.cron}")
+    public void run() throws IOException {
+        export(directory.resolve(LocalDate.now().toString()));
+    }
+
+    /**
+     * @return the parts written by this call, not counting parts skipped because they already existed
+     */
+    public List<Path> export(Path target) throws IOException {
+        Files.createDirectories(target);
+        int maxId = exportService.findMaxId();
+        String extension = format.name().toLowerCase(Locale.ROOT) + ".gz";
+        List<Path> written = new ArrayList<>();
+        for(long afterId = 0; afterId < maxId; afterId += partIds) {
+            int toId = (int) Math.min(Integer.MAX_VALUE, afterId + partIds);
+            Path part = target.resolve(String.format("users-%010d-%010d.%s", afterId + 1, toId, extension));
+            if(Files.exists(part)) {
+                continue;
+            }
+            Path temporary = part.resolveSibling(part.getFileName() + ".tmp");
+            long count;
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+                 OutputStream out = new GZIPOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE)) {
+                count = exportService.export(format, (int) afterId, toId, out);
+            }
+            Files.move(temporary, part, StandardCopyOption.ATOMIC_MOVE);
+            log.info("Exported {} users to {}", count, part);
+            written.add(part);
+        }
+        return written;
+    }
+}
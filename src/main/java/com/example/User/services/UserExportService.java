@@ -0,0 +1,136 @@
+package com.example.User.services;
+
+import com.example.User.entities.User;
+import com.example.User.repositories.UserRepository;
+import com.example.User.sharding.ShardTemplate;
+import com.example.User.util.UserRecordReader.Format;
+import com.example.User.util.UserRecordWriter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.Consumer;
+
+/**
+ * Dumps users ordered by id without materialising them in a list: rows are
+ * read through the repository cursor and encoded straight into the output,
+ * so heap use does not depend on the table size.
+ * <p>
+ * With several shards each one is read {@code users.fetch-size} users at a
+ * time, each page in its own transaction, and the pages are merged by id, so
+ * the output has the same order and at most one page per shard is held.
+ */
+@Service
+@Profile("!reactive")
+public class UserExportService {
+    private final UserRepository userRepository;
+    private final ShardTemplate shardTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final int pageSize;
+
+    @Autowired
+    public UserExportService(UserRepository userRepository, ShardTemplate shardTemplate,
+                             PlatformTransactionManager transactionManager, ObjectMapper objectMapper,
+                             @Value("${users.fetch-size}") int pageSize) {
+        this.userRepository = userRepository;
+        this.shardTemplate = shardTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.objectMapper = objectMapper;
+        this.pageSize = pageSize;
+    }
+
+    /**
+     * Writes users with {@code afterId < id <= toId} to {@code out}. An
+     * interrupted export can be resumed by passing the last id received as
+     * {@code afterId}.
+     *
+     * @return the number of users written
+     */
+    public long export(Format format, int afterId, int toId, OutputStream out) throws IOException {
+        if(afterId > toId) {
+            throw new IllegalArgumentException("\'afterId\' should not be greater than \'toId\'");
+        }
+        UserRecordWriter writer = new UserRecordWriter(out, format, objectMapper);
+        long[] count = {0};
+        Consumer<User> write = user -> {
+            try {
+                writer.write(user);
+                count[0]++;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        };
+        try {
+            if(shardTemplate.getShardCount() == 1) {
+                transactionTemplate.executeWithoutResult(status -> userRepository.forEachByIdRange(afterId, toId, write));
+            } else {
+                forEachMerged(afterId, toId, write);
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.flush();
+        return count[0];
+    }
+
+    public int findMaxId() {
+        return shardTemplate.executeOnAll(shard -> userRepository.findMaxId()).stream()
+                .mapToInt(Integer::intValue)
+                .max()
+                .orElse(0);
+    }
+
+    /** Hands users of every shard to {@code action} in id order. */
+    private void forEachMerged(int afterId, int toId, Consumer<User> action) {
+        int shards = shardTemplate.getShardCount();
+        List<ArrayDeque<User>> pages = new ArrayList<>(shards);
+        int[] after = new int[shards];
+        boolean[] exhausted = new boolean[shards];
+        PriorityQueue<Integer> heads = new PriorityQueue<>(shards,
+                Comparator.comparingInt(shard -> pages.get(shard).getFirst().getId()));
+        for(int shard = 0; shard < shards; shard++) {
+            pages.add(new ArrayDeque<>());
+            after[shard] = afterId;
+            fill(shard, pages.get(shard), after, exhausted, toId);
+            if(!pages.get(shard).isEmpty()) {
+                heads.add(shard);
+            }
+        }
+        while(!heads.isEmpty()) {
+            int shard = heads.poll();
+            ArrayDeque<User> page = pages.get(shard);
+            action.accept(page.removeFirst());
+            if(page.isEmpty() && !exhausted[shard]) {
+                fill(shard, page, after, exhausted, toId);
+            }
+            if(!page.isEmpty()) {
+                heads.add(shard);
+            }
+        }
+    }
+
+    private void fill(int shard, ArrayDeque<User> page, int[] after, boolean[] exhausted, int toId) {
+        List<User> users = shardTemplate.execute(shard, () -> transactionTemplate.execute(status ->
+                userRepository.findPageByIdRange(after[shard], toId, Limit.of(pageSize))));
+        page.addAll(users);
+        exhausted[shard] = users.size() < pageSize;
+        if(!users.isEmpty()) {
+            after[shard] = users.get(users.size() - 1).getId();
+        }
+    }
+}
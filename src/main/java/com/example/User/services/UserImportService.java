@@ -0,0 +1,290 @@
+package com.example.User.services;
+
+import com.example.User.dto.ImportReportDTO;
+import com.example.User.entities.User;
+import com.example.User.exceptions.ImportNotFoundException;
+import com.example.User.sharding.ShardTemplate;
+import com.example.User.util.ErrorMessages;
+import com.example.User.util.UserRecordReader;
+import com.example.User.util.UserRecordReader.Format;
+import com.example.User.util.UserRecordReader.Record;
+import com.example.User.util.UserValidator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.Validator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.validation.BeanPropertyBindingResult;
+import org.springframework.validation.BindingResult;
+import org.springframework.validation.beanvalidation.SpringValidatorAdapter;
+
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bulk import of users from CSV or NDJSON streams.
+ * <p>
+ * The calling thread parses the input and hands records to
+ * {@code users.import.workers} validation threads through a bounded queue;
+ * valid users go through a second bounded queue to a single writer that
+ * inserts them with {@link UserService#saveAll} in transactions of
+ * {@code users.batch-size}. When the writer falls behind both queues fill up
+ * and parsing blocks, so memory stays bounded whatever the input size.
+ * <p>
+ * A batch that violates a constraint, typically a duplicate email that
+ * validation could not see because both records were still queued, is
+ * retried user by user and the users still failing are rejected, so one bad
+ * record does not fail the import.
+ * <p>
+ * With several shards the writer keeps a batch per shard and places each
+ * user by a hash of its email, so two records with the same email always
+ * meet the same shard's unique index.
+ */
+@Service
+@Profile("!reactive")
+public class UserImportService {
+    private static final Logger log = LoggerFactory.getLogger(UserImportService.class);
+
+    private static final Record END_OF_RECORDS = new Record(-1, null, null);
+    private static final long POLL_MILLIS = 100;
+    private static final int HISTORY_SIZE = 100;
+
+    private final UserService userService;
+    private final ShardTemplate shardTemplate;
+    private final UserValidator userValidator;
+    private final SpringValidatorAdapter validator;
+    private final ObjectMapper objectMapper;
+    private final int batchSize;
+    private final int workers;
+    private final int queueCapacity;
+    private final int maxRejects;
+    private final int maxRecordLength;
+    private final AtomicInteger threadCount = new AtomicInteger();
+
+    private final Map<String, ImportJob> jobs = new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, ImportJob> eldest) {
+            return size() > HISTORY_SIZE && !eldest.getValue().isRunning();
+        }
+    };
+
+    @Autowired
+    public UserImportService(UserService userService, ShardTemplate shardTemplate,
+                             UserValidator userValidator, Validator validator,
+                             ObjectMapper objectMapper,
+                             @Value("${users.batch-size}") int batchSize,
+                             @Value("${users.import.workers}") int workers,
+                             @Value("${users.import.queue-capacity}") int queueCapacity,
+                             @Value("${users.import.max-rejects}") int maxRejects,
+                             @Value("${users.import.max-record-length}") int maxRecordLength) {
+        this.userService = userService;
+        this.shardTemplate = shardTemplate;
+        this.userValidator = userValidator;
+        this.validator = new SpringValidatorAdapter(validator);
+        this.objectMapper = objectMapper;
+        this.batchSize = batchSize;
+        this.workers = workers;
+        this.queueCapacity = queueCapacity;
+        this.maxRejects = maxRejects;
+        this.maxRecordLength = maxRecordLength;
+    }
+
+    public List<ImportJob> findAll() {
+        synchronized (jobs) {
+            return new ArrayList<>(jobs.values());
+        }
+    }
+
+    public ImportJob findById(String id) {
+        synchronized (jobs) {
+            ImportJob job = jobs.get(id);
+            if(job == null) {
+                throw new ImportNotFoundException("Import with id " + id + " not found");
+            }
+            return job;
+        }
+    }
+
+    /**
+     * Imports all records of {@code in} and returns once they are written or
+     * the import failed. Rejected records do not fail the import; they are
+     * counted and reported on the job. The stream is read but not closed.
+     */
+    public ImportJob run(InputStream in, Format format, String source) {
+        ImportJob job = new ImportJob(UUID.randomUUID().toString(), source, maxRejects);
+        synchronized (jobs) {
+            jobs.put(job.getId(), job);
+        }
+        log.info("Import {} of {} started", job.getId(), source);
+
+        BlockingQueue<Record> records = new ArrayBlockingQueue<>(queueCapacity);
+        BlockingQueue<Record> users = new ArrayBlockingQueue<>(queueCapacity);
+        ExecutorService executor = Executors.newFixedThreadPool(workers + 1,
+                runnable -> new Thread(runnable, "users-import-" + threadCount.incrementAndGet()));
+        try {
+            List<Future<?>> validators = new ArrayList<>();
+            for(int i = 0; i < workers; i++)
+                validators.add(executor.submit(() -> validate(job, records, users)));
+            Future<?> writer = executor.submit(() -> write(job, users));
+
+            UserRecordReader reader = new UserRecordReader(
+                    new InputStreamReader(in, StandardCharsets.UTF_8), format, objectMapper, maxRecordLength);
+            Record record;
+            while ((record = reader.next()) != null) {
+                job.recordRead();
+                put(job, records, record);
+            }
+            for(int i = 0; i < workers; i++)
+                put(job, records, END_OF_RECORDS);
+            for(Future<?> validation: validators)
+                validation.get();
+            put(job, users, END_OF_RECORDS);
+            writer.get();
+            job.complete();
+        } catch (Exception e) {
+            job.fail(e instanceof ExecutionException ? e.getCause() : e);
+        } finally {
+            executor.shutdownNow();
+        }
+        ImportReportDTO report = job.toReport();
+        log.info("Import {} {}: {} read, {} written, {} rejected", job.getId(), report.getStatus(),
+                report.getRead(), report.getWritten(), report.getRejected());
+        return job;
+    }
+
+    private void validate(ImportJob job, BlockingQueue<Record> records, BlockingQueue<Record> users) {
+        try {
+            Record record;
+            while ((record = take(job, records)) != END_OF_RECORDS) {
+                if(record.error() != null) {
+                    job.recordRejected(record.line(), record.error());
+                    continue;
+                }
+                BindingResult bindingResult = new BeanPropertyBindingResult(record.user(), "user");
+                validator.validate(record.user(), bindingResult);
+                userValidator.validateNew(record.user(), bindingResult);
+                if(bindingResult.hasErrors()) {
+                    job.recordRejected(record.line(), ErrorMessages.of(bindingResult));
+                } else {
+                    put(job, users, record);
+                }
+            }
+        } catch (RuntimeException e) {
+            job.fail(e);
+            throw e;
+        }
+    }
+
+    private void write(ImportJob job, BlockingQueue<Record> users) {
+        try {
+            List<List<Record>> batches = new ArrayList<>();
+            for(int shard = 0; shard < shardTemplate.getShardCount(); shard++)
+                batches.add(new ArrayList<>(batchSize));
+            Record record;
+            while ((record = take(job, users)) != END_OF_RECORDS) {
+                int shard = shardOf(record.user());
+                List<Record> batch = batches.get(shard);
+                batch.add(record);
+                if(batch.size() == batchSize) {
+                    flush(job, shard, batch);
+                }
+            }
+            for(int shard = 0; shard < batches.size(); shard++)
+                flush(job, shard, batches.get(shard));
+        } catch (RuntimeException e) {
+            job.fail(e);
+            throw e;
+        }
+    }
+
+    private void flush(ImportJob job, int shard, List<Record> batch) {
+        if(batch.isEmpty()) {
+            return;
+        }
+        try {
+            save(shard, batch.stream().map(Record::user).toList());
+            job.recordWritten(batch.size());
+        } catch (DataIntegrityViolationException batchFailure) {
+            for(Record record: batch) {
+                try {
+                    save(shard, List.of(record.user()));
+                    job.recordWritten(1);
+                } catch (DataIntegrityViolationException e) {
+                    job.recordRejected(record.line(), ErrorMessages.of(e));
+                }
+            }
+        }
+        batch.clear();
+    }
+
+    private void save(int shard, List<User> users) {
+        // a rolled back insert leaves its generated ids behind
+        users.forEach(user -> {
+            user.setId(0);
+            user.setVersion(0);
+        });
+        shardTemplate.execute(shard, () -> {
+            userService.saveAll(users);
+            return null;
+        });
+    }
+
+    private int shardOf(User user) {
+        if(user.getEmail() == null) {
+            return 0;
+        }
+        return Math.floorMod(user.getEmail().trim().toLowerCase(Locale.ROOT).hashCode(), shardTemplate.getShardCount());
+    }
+
+    /**
+     * Blocks while {@code queue} is full, giving up once another stage has failed.
+     */
+    private static <T> void put(ImportJob job, BlockingQueue<T> queue, T item) {
+        try {
+            while (!queue.offer(item, POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                checkNotFailed(job);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Import interrupted", e);
+        }
+    }
+
+    private static <T> T take(ImportJob job, BlockingQueue<T> queue) {
+        try {
+            T item;
+            while ((item = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS)) == null) {
+                checkNotFailed(job);
+            }
+            return item;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Import interrupted", e);
+        }
+    }
+
+    private static void checkNotFailed(ImportJob job) {
+        if(job.isFailed()) {
+            throw new IllegalStateException("Import " + job.getId() + " failed");
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.User.services;
+
+import com.example.User.repositories.UserRepository;
+import com.example.User.sharding.ShardTemplate;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hard deletes users soft deleted more than {@code users.soft-delete.retention}
+ * ago. Rows go in chunks of {@code users.soft-delete.purge-batch-size}, each
+ * in its own short transaction, so the purge never holds many row locks or
+ * one long transaction however much has piled up.
+ */
+@Service
+@Profile("!reactive")
+@ConditionalOnProperty(value = "users.soft-delete.enabled", havingValue = "true")
+public class UserPurger {
+    private static final Logger log = LoggerFactory.getLogger(UserPurger.class);
+
+    private final UserRepository userRepository;
+    private final ShardTemplate shardTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration retention;
+    private final int batchSize;
+    private final Counter purged;
+
+    @Autowired
+    public UserPurger(UserRepository userRepository, ShardTemplate shardTemplate,
+                      PlatformTransactionManager transactionManager, MeterRegistry meterRegistry,
+                      @Value("${users.soft-delete.retention}") Duration retention,
+                      @Value("${users.soft-delete.purge-batch-size}") int batchSize) {
+        this.userRepository = userRepository;
+        this.shardTemplate = shardTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.retention = retention;
+        this.batchSize = batchSize;
+        this.purged = Counter.builder("users.soft-delete.purged")
+                .description("Soft deleted users removed by the purger")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${users.soft-delete.purge-interval}")
+    public void purge() {
+        Date before = new Date(System.currentTimeMillis() - retention.toMillis());
+        AtomicInteger total = new AtomicInteger();
+        shardTemplate.forEachShard(shard -> {
+            int deleted;
+            do {
+                deleted = transactionTemplate.execute(status -> userRepository.purgeDeleted(before, batchSize));
+                purged.increment(deleted);
+                total.addAndGet(deleted);
+            } while(deleted == batchSize);
+        });
+        if(total.get() > 0) {
+            log.info("Purged {} users soft deleted more than {} ago", total.get(), retention);
+        }
+    }
+}
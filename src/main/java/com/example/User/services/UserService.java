@@ -1,63 +1,437 @@
 package com.example.User.services;
 
+import com.example.User.config.ReadWriteRoutingDataSource;
+import com.example.User.dto.UserPageDTO;
 import com.example.User.entities.User;
+import com.example.User.events.UserChangedEvent;
+import com.example.User.events.UsersCreatedEvent;
 import com.example.User.exceptions.UserNotFoundException;
+import com.example.User.exceptions.UserPreconditionFailedException;
+import com.example.User.index.BirthDateIndex;
+import com.example.User.index.UserSearchIndex;
 import com.example.User.repositories.UserRepository;
+import com.example.User.sharding.ShardKey;
+import com.example.User.sharding.ShardTemplate;
+import com.example.User.sharding.Sharded;
+import com.example.User.util.PageToken;
+import io.micrometer.core.annotation.Timed;
+import org.springframework.beans.BeanWrapper;
+import org.springframework.beans.BeanWrapperImpl;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * With sharding configured, calls for one user run on the shard owning it
+ * ({@link Sharded}); queries over many users scatter to every shard in
+ * parallel and merge the ordered results.
+ */
+@Timed(value = "users.service", histogram = true)
 @Service
+@Profile("!reactive")
 public class UserService {
+    public static final Set<String> PATCHABLE_FIELDS =
+            Set.of("email", "lastName", "firstName", "birthDate", "address", "phoneNumber");
+
+    private static final Comparator<User> BIRTH_DATE_ORDER =
+            Comparator.comparing(User::getBirthDate).thenComparingInt(User::getId);
+    private static final Comparator<User> ID_ORDER = Comparator.comparingInt(User::getId);
+
     private final UserRepository userRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final BirthDateIndex birthDateIndex;
+    private final UserSearchIndex searchIndex;
+    private final ShardTemplate shardTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate readOnlyTransactionTemplate;
+    private final int maxPageSize;
+    private final int batchSize;
+    private final boolean softDelete;
 
     @Autowired
-    public UserService(UserRepository userRepository) {
+    public UserService(UserRepository userRepository, ApplicationEventPublisher eventPublisher,
+                       BirthDateIndex birthDateIndex, UserSearchIndex searchIndex,
+                       ShardTemplate shardTemplate, PlatformTransactionManager transactionManager,
+                       @Value("${users.page.max-size}") int maxPageSize,
+                       @Value("${users.batch-size}") int batchSize,
+                       @Value("${users.soft-delete.enabled}") boolean softDelete) {
         this.userRepository = userRepository;
+        this.eventPublisher = eventPublisher;
+        this.birthDateIndex = birthDateIndex;
+        this.searchIndex = searchIndex;
+        this.shardTemplate = shardTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate.setReadOnly(true);
+        this.maxPageSize = maxPageSize;
+        this.batchSize = batchSize;
+        this.softDelete = softDelete;
     }
 
     public List<User> findAll() {
-        return userRepository.findAll();
+        return shardTemplate.executeOnAll(shard -> userRepository.findAll()).stream()
+                .flatMap(List::stream)
+                .toList();
+    }
+
+    /**
+     * Cache misses are read from the primary: the shared cache would keep a
+     * lagging replica's row for every client until it expires.
+     */
+    @Transactional(readOnly = true)
+    @Cacheable(cacheNames = "users", key = "#id")
+    @Sharded
+    public User findById(@ShardKey int id) {
+        return ReadWriteRoutingDataSource.onPrimary(() -> userRepository.findById(id))
+                .orElseThrow(() -> new UserNotFoundException("User with id " + id + " not found"));
+    }
+
+    /**
+     * Current version of a user, read without loading the row.
+     */
+    @Transactional(readOnly = true)
+    @Sharded
+    public int findVersion(@ShardKey int id) {
+        return userRepository.findVersionById(id)
+                .orElseThrow(() -> new UserNotFoundException("User with id " + id + " not found"));
     }
 
     @Transactional
+    @CacheEvict(cacheNames = "users", key = "#user.id")
+    @Sharded
     public void save(User user) {
-        userRepository.save(user);
+        User saved = userRepository.save(user);
+        eventPublisher.publishEvent(UserChangedEvent.created(saved));
     }
 
+    /** Stores the whole batch on one shard, in one transaction. */
     @Transactional
-    public void update(int id, User updated){
-        updated.setId(id);
-        userRepository.save(updated);
+    @Sharded
+    public void saveAll(List<User> users) {
+        userRepository.batchInsert(users);
+        eventPublisher.publishEvent(new UsersCreatedEvent(users));
     }
 
     @Transactional
-    public void delete(int id) {
-        userRepository.deleteById(id);
+    @CacheEvict(cacheNames = "users", key = "#id")
+    @Sharded
+    public void update(@ShardKey int id, User updated, Integer expectedVersion){
+        updateFields(id, UserChangedEvent.fields(updated), expectedVersion);
     }
 
     @Transactional
-    public void updateAddress(int id, String newAddress){
-        User user = userRepository.findById(id).orElseThrow(() -> new UserNotFoundException("User with id " + id + " not found"));
-        user.setAddress(newAddress);
-        userRepository.save(user);
+    @CacheEvict(cacheNames = "users", key = "#id")
+    @Sharded
+    public void delete(@ShardKey int id) {
+        deleteLocked(List.of(id), user -> true);
+    }
+
+    /**
+     * Deletes users by id, in one transaction per {@code users.batch-size}
+     * ids on each shard, so row locks are held briefly; ids of users that do
+     * not exist are ignored.
+     *
+     * @return the number of users deleted
+     */
+    @CacheEvict(cacheNames = "users", allEntries = true)
+    public int deleteAll(Collection<Integer> ids) {
+        Map<Integer, List<Integer>> idsByShard = ids.stream()
+                .distinct()
+                .collect(Collectors.groupingBy(shardTemplate::shardOf));
+        return shardTemplate.executeOnAll(shard -> {
+                    List<Integer> shardIds = idsByShard.getOrDefault(shard, List.of());
+                    int deleted = 0;
+                    for(int i = 0; i < shardIds.size(); i += batchSize) {
+                        List<Integer> chunk = shardIds.subList(i, Math.min(i + batchSize, shardIds.size()));
+                        deleted += transactionTemplate.execute(status -> deleteLocked(chunk, user -> true));
+                    }
+                    return deleted;
+                }).stream()
+                .mapToInt(Integer::intValue)
+                .sum();
+    }
+
+    /**
+     * Deletes users born strictly between {@code from} and {@code to}. Ids are
+     * read in {@code users.batch-size} chunks without locking; each chunk is
+     * then locked by primary key, checked against the range again and deleted
+     * in its own transaction, so a large range never locks the table.
+     *
+     * @return the number of users deleted
+     */
+    @CacheEvict(cacheNames = "users", allEntries = true)
+    public int deleteByDateRange(Date from, Date to) {
+        checkDateRange(from, to);
+        return shardTemplate.executeOnAll(shard -> {
+                    int deleted = 0;
+                    int afterId = 0;
+                    List<Integer> chunk;
+                    do {
+                        chunk = findIdsByBirthDateRange(from, to, afterId);
+                        if(!chunk.isEmpty()) {
+                            List<Integer> ids = chunk;
+                            deleted += transactionTemplate.execute(status -> deleteLocked(ids, user -> inRange(user, from, to)));
+                            afterId = chunk.get(chunk.size() - 1);
+                        }
+                    } while(chunk.size() == batchSize);
+                    return deleted;
+                }).stream()
+                .mapToInt(Integer::intValue)
+                .sum();
+    }
+
+    /** Reads from the primary, so users created just before are deleted too. */
+    private List<Integer> findIdsByBirthDateRange(Date from, Date to, int afterId) {
+        return transactionTemplate.execute(status ->
+                userRepository.findIdsByBirthDateRange(from, to, afterId, Limit.of(batchSize)));
+    }
+
+    private static boolean inRange(User user, Date from, Date to) {
+        return user.getBirthDate() != null && user.getBirthDate().after(from) && user.getBirthDate().before(to);
+    }
+
+    /**
+     * Locks and loads the users with {@code ids} in one select, then removes
+     * those matching {@code filter} in one bulk statement: an {@code UPDATE}
+     * of {@code deleted_at} with {@code users.soft-delete.enabled}, otherwise
+     * a {@code DELETE}. The loaded users provide the previous values for the
+     * events. Runs in the caller's transaction.
+     */
+    private int deleteLocked(Collection<Integer> ids, Predicate<User> filter) {
+        List<User> users = userRepository.findAllByIdForUpdate(ids).stream()
+                .filter(filter)
+                .toList();
+        if(users.isEmpty()) {
+            return 0;
+        }
+        List<Integer> found = users.stream().map(User::getId).toList();
+        int deleted = softDelete ? userRepository.softDeleteAllByIdIn(found, new Date())
+                : userRepository.deleteAllByIdIn(found);
+        users.forEach(user -> eventPublisher.publishEvent(UserChangedEvent.deleted(user)));
+        return deleted;
+    }
+
+    @Transactional
+    @CacheEvict(cacheNames = "users", key = "#id")
+    @Sharded
+    public void updateAddress(@ShardKey int id, String newAddress, Integer expectedVersion){
+        updateFields(id, Collections.singletonMap("address", newAddress), expectedVersion);
+    }
+
+    @Transactional
+    @CacheEvict(cacheNames = "users", key = "#id")
+    @Sharded
+    public void updatePhone(@ShardKey int id, String newPhone, Integer expectedVersion){
+        updateFields(id, Collections.singletonMap("phoneNumber", newPhone), expectedVersion);
     }
 
     @Transactional
-    public void updatePhone(int id, String newPhone){
-        User user = userRepository.findById(id).orElseThrow(() -> new UserNotFoundException("User with id " + id + " not found"));
-        user.setPhoneNumber(newPhone);
-        userRepository.save(user);
+    @CacheEvict(cacheNames = "users", key = "#id")
+    @Sharded
+    public void patch(@ShardKey int id, Map<String, Object> changes, Integer expectedVersion) {
+        if(!PATCHABLE_FIELDS.containsAll(changes.keySet())) {
+            throw new IllegalArgumentException("Only " + PATCHABLE_FIELDS + " can be patched");
+        }
+        if(changes.isEmpty()) {
+            checkVersion(id, findVersion(id), expectedVersion);
+            return;
+        }
+        updateFields(id, changes, expectedVersion);
     }
 
+    /**
+     * Applies field changes to many users in one transaction per shard: a
+     * single select for all rows, then JDBC-batched UPDATEs from dirty checking.
+     *
+     * @return ids of users that no longer exist
+     */
     @Transactional
+    public Set<Integer> updateAll(Map<Integer, Map<String, Object>> changesById) {
+        Map<Integer, Set<Integer>> idsByShard = changesById.keySet().stream()
+                .collect(Collectors.groupingBy(shardTemplate::shardOf, Collectors.toSet()));
+        Set<Integer> missing = new HashSet<>(changesById.keySet());
+        shardTemplate.executeOnAll(shard -> idsByShard.containsKey(shard)
+                        ? transactionTemplate.execute(status -> updateAll(idsByShard.get(shard), changesById))
+                        : List.<Integer>of())
+                .forEach(updated -> updated.forEach(missing::remove));
+        return missing;
+    }
+
+    /** @return ids of the users updated */
+    private List<Integer> updateAll(Set<Integer> ids, Map<Integer, Map<String, Object>> changesById) {
+        List<Integer> updated = new ArrayList<>();
+        for(User user: userRepository.findAllById(ids)) {
+            Map<String, Object> changes = changesById.get(user.getId());
+            Map<String, Object> previous = changes.containsKey("birthDate")
+                    ? Collections.singletonMap("birthDate", user.getBirthDate())
+                    : Collections.emptyMap();
+            BeanWrapper wrapper = new BeanWrapperImpl(user);
+            changes.forEach(wrapper::setPropertyValue);
+            updated.add(user.getId());
+            eventPublisher.publishEvent(UserChangedEvent.updated(user.getId(), changes, previous));
+        }
+        return updated;
+    }
+
+    /**
+     * Writes {@code changes} in one conditional update. Only when no row was
+     * updated is the version read again, to tell a missing user from a stale one.
+     * The previous birth date is read first when it changes, for listeners
+     * that keep per-date counts.
+     */
+    private void updateFields(int id, Map<String, Object> changes, Integer expectedVersion) {
+        Map<String, Object> previous = changes.containsKey("birthDate")
+                ? userRepository.findBirthDateById(id)
+                        .<Map<String, Object>>map(birthDate -> Collections.singletonMap("birthDate", birthDate))
+                        .orElse(Collections.emptyMap())
+                : Collections.emptyMap();
+        if(userRepository.updateFields(id, changes, expectedVersion) == 0) {
+            checkVersion(id, findVersion(id), expectedVersion);
+            throw new UserPreconditionFailedException("User with id " + id + " was modified concurrently");
+        }
+        eventPublisher.publishEvent(UserChangedEvent.updated(id, changes, previous));
+    }
+
+    @Transactional(readOnly = true)
     public List<User> findByDateRange(Date from, Date to) {
+        checkDateRange(from, to);
+        if(!birthDateIndex.isReady()) {
+            return ShardTemplate.merge(shardTemplate.executeOnAll(shard -> readOnlyTransactionTemplate.execute(status ->
+                    userRepository.findUsersByBirthDateAfterAndBirthDateBeforeOrderByBirthDateAscIdAsc(from, to))),
+                    BIRTH_DATE_ORDER, Integer.MAX_VALUE);
+        }
+        return findAllInOrder(birthDateIndex.findIds(from, to));
+    }
+
+    /**
+     * Type-ahead search on lastName, firstName and email, best match first.
+     * Falls back to a prefix query, a table scan, while the search index is
+     * not ready; wildcards in {@code query} match only themselves.
+     */
+    @Transactional(readOnly = true)
+    public List<User> search(String query, int limit) {
+        if(query == null || query.isBlank()) {
+            throw new IllegalArgumentException("\'q\' should not be blank");
+        }
+        if(limit < 1 || limit > maxPageSize) {
+            throw new IllegalArgumentException("\'limit\' should be between 1 and " + maxPageSize);
+        }
+        if(!searchIndex.isReady()) {
+            String prefix = query.trim().toLowerCase(Locale.ROOT).replaceAll("[!%_]", "!$0");
+            return ShardTemplate.merge(shardTemplate.executeOnAll(shard -> readOnlyTransactionTemplate.execute(status ->
+                    userRepository.findByNameOrEmailPrefix(prefix, Limit.of(limit)))), ID_ORDER, limit);
+        }
+        return findAllInOrder(searchIndex.search(query, limit));
+    }
+
+    /**
+     * Loads users by primary key in chunks of {@code users.batch-size}, each
+     * from all shards holding part of it, and returns them in the order of
+     * {@code ids}; ids deleted meanwhile are skipped.
+     */
+    private List<User> findAllInOrder(int[] ids) {
+        List<User> users = new ArrayList<>(ids.length);
+        for(int start = 0; start < ids.length; start += batchSize) {
+            int[] chunk = Arrays.copyOfRange(ids, start, Math.min(ids.length, start + batchSize));
+            Map<Integer, List<Integer>> chunkByShard = Arrays.stream(chunk).boxed()
+                    .collect(Collectors.groupingBy(shardTemplate::shardOf));
+            Map<Integer, User> byId = shardTemplate.executeOnAll(shard -> chunkByShard.containsKey(shard)
+                            ? readOnlyTransactionTemplate.execute(status -> userRepository.findAllById(chunkByShard.get(shard)))
+                            : List.<User>of()).stream()
+                    .flatMap(List::stream)
+                    .collect(Collectors.toMap(User::getId, Function.identity()));
+            for(int id : chunk) {
+                User user = byId.get(id);
+                if(user != null) {
+                    users.add(user);
+                }
+            }
+        }
+        return users;
+    }
+
+    @Transactional(readOnly = true)
+    public UserPageDTO findPageByDateRange(Date from, Date to, String token, int size) {
+        checkDateRange(from, to);
+        if(size < 1 || size > maxPageSize) {
+            throw new IllegalArgumentException("\'size\' should be between 1 and " + maxPageSize);
+        }
+        PageToken after = token == null ? new PageToken(from, 0) : PageToken.decode(token);
+        List<User> users = findPageByBirthDateRange(from, to, after, size + 1);
+        if(users.size() <= size) {
+            return new UserPageDTO(users, null);
+        }
+        List<User> page = users.subList(0, size);
+        return new UserPageDTO(page, PageToken.of(page.get(size - 1)).encode());
+    }
+
+    /**
+     * Users after {@code after} in birth date order, merged from every shard's
+     * first {@code limit}.
+     */
+    private List<User> findPageByBirthDateRange(Date from, Date to, PageToken after, int limit) {
+        return ShardTemplate.merge(shardTemplate.executeOnAll(shard -> readOnlyTransactionTemplate.execute(status ->
+                userRepository.findPageByBirthDateRange(from, to, after.birthDate(), after.id(), Limit.of(limit)))),
+                BIRTH_DATE_ORDER, limit);
+    }
+
+    /**
+     * Streams through a database cursor; across shards, through merged pages
+     * of {@code users.batch-size}.
+     */
+    @Transactional(readOnly = true)
+    public void streamByDateRange(Date from, Date to, Consumer<User> action) {
+        checkDateRange(from, to);
+        if(shardTemplate.getShardCount() == 1) {
+            userRepository.forEachByBirthDateRange(from, to, action);
+            return;
+        }
+        PageToken after = new PageToken(from, 0);
+        List<User> page;
+        do {
+            page = findPageByBirthDateRange(from, to, after, batchSize);
+            page.forEach(action);
+            if(!page.isEmpty()) {
+                after = PageToken.of(page.get(page.size() - 1));
+            }
+        } while (page.size() == batchSize);
+    }
+
+    private void checkVersion(int id, int version, Integer expectedVersion) {
+        if(expectedVersion != null && expectedVersion != version) {
+            throw new UserPreconditionFailedException("User with id " + id + " has version " + version
+                    + ", expected " + expectedVersion);
+        }
+    }
+
+    private void checkDateRange(Date from, Date to) {
         if(from.after(to)) {
             throw new IllegalArgumentException("\'from\' should be before \'to\'");
         }
-        return userRepository.findUsersByBirthDateAfterAndBirthDateBefore(from, to);
     }
 
 }
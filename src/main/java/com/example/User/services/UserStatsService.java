@@ -0,0 +1,223 @@
+package com.example.User.services;
+
+import com.example.User.dto.UserStatsDTO;
+import com.example.User.entities.User;
+import com.example.User.events.CommitBarrier;
+import com.example.User.events.UserChangedEvent;
+import com.example.User.events.UsersCreatedEvent;
+import com.example.User.repositories.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.Period;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * User counts per birth date, kept in memory so {@code /users/stats} never
+ * scans the table. Counters are loaded once the application is ready, updated
+ * from committed {@link UserChangedEvent}s and {@link UsersCreatedEvent}s, and
+ * rebuilt from a {@code GROUP BY} query on every shard every
+ * {@code users.stats.reconcile-interval} to correct any drift.
+ * <p>
+ * Counts are kept per day rather than per year so age buckets stay exact as
+ * users have birthdays. The report is computed from at most one entry per
+ * distinct birth date and cached until the next write or the next day.
+ */
+@Service
+@Profile("!reactive")
+public class UserStatsService {
+    private static final Logger log = LoggerFactory.getLogger(UserStatsService.class);
+
+    private final UserRepository userRepository;
+    private final CommitBarrier commitBarrier;
+    private final int ageThreshold;
+    private final int bucketWidth;
+    private final int bucketCount;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private Map<LocalDate, Long> countsByDay = new HashMap<>();
+    private List<Runnable> pending;
+    private long modifications;
+    private Instant reconciledAt;
+    private UserStatsDTO report;
+    private long reportModifications = -1;
+    private LocalDate reportDay;
+
+    @Autowired
+    public UserStatsService(UserRepository userRepository, CommitBarrier commitBarrier,
+                            @Value("${age}") int ageThreshold,
+                            @Value("${users.stats.age-bucket-width}") int bucketWidth,
+                            @Value("${users.stats.age-bucket-count}") int bucketCount) {
+        this.userRepository = userRepository;
+        this.commitBarrier = commitBarrier;
+        this.ageThreshold = ageThreshold;
+        this.bucketWidth = bucketWidth;
+        this.bucketCount = bucketCount;
+    }
+
+    public UserStatsDTO getStats() {
+        LocalDate today = LocalDate.now();
+        lock.lock();
+        try {
+            if(report == null || reportModifications != modifications || !today.equals(reportDay)) {
+                report = computeReport(today);
+                reportModifications = modifications;
+                reportDay = today;
+            }
+            return report;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        reconcile();
+    }
+
+    /**
+     * Replaces the counters with a fresh count from the database. Changes
+     * whose events arrive after the counts' snapshots are taken are applied
+     * on top once the query finishes; earlier ones are already counted.
+     */
+    @Scheduled(initialDelayString = "${users.stats.reconcile-interval}",
+            fixedDelayString = "${users.stats.reconcile-interval}")
+    public void reconcile() {
+        Map<LocalDate, Long> counted = new HashMap<>();
+        try {
+            List<List<Object[]>> rows = commitBarrier.read(() -> {
+                lock.lock();
+                try {
+                    pending = new ArrayList<>();
+                } finally {
+                    lock.unlock();
+                }
+            }, shard -> userRepository.countByBirthDate());
+            for(List<Object[]> shardRows: rows)
+                for(Object[] row: shardRows)
+                    counted.merge(toDay((Date) row[0]), (Long) row[1], Long::sum);
+        } catch (RuntimeException e) {
+            lock.lock();
+            try {
+                pending = null;
+            } finally {
+                lock.unlock();
+            }
+            throw e;
+        }
+
+        lock.lock();
+        try {
+            if(!counted.equals(countsByDay) && reconciledAt != null) {
+                log.info("User stats drifted from the database and were reconciled");
+            }
+            countsByDay = counted;
+            pending.forEach(Runnable::run);
+            pending = null;
+            reconciledAt = Instant.now();
+            modifications++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserChanged(UserChangedEvent event) {
+        switch (event.getType()) {
+            case CREATED -> apply(() -> add((Date) event.getChanges().get("birthDate"), 1));
+            case UPDATED -> {
+                if(event.getChanges().containsKey("birthDate")) {
+                    apply(() -> {
+                        add((Date) event.getPrevious().get("birthDate"), -1);
+                        add((Date) event.getChanges().get("birthDate"), 1);
+                    });
+                }
+            }
+            case DELETED -> apply(() -> add((Date) event.getPrevious().get("birthDate"), -1));
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUsersCreated(UsersCreatedEvent event) {
+        List<User> users = event.getUsers();
+        apply(() -> users.forEach(user -> add(user.getBirthDate(), 1)));
+    }
+
+    /**
+     * Applies a change now and, while a reconciliation is running, records it
+     * to be applied again on top of the recounted values.
+     */
+    private void apply(Runnable change) {
+        lock.lock();
+        try {
+            change.run();
+            if(pending != null) {
+                pending.add(change);
+            }
+            modifications++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Caller holds the lock. */
+    private void add(Date birthDate, long delta) {
+        if(birthDate == null) {
+            return;
+        }
+        countsByDay.merge(toDay(birthDate), delta, (count, d) -> count + d == 0 ? null : count + d);
+    }
+
+    /** Caller holds the lock. */
+    private UserStatsDTO computeReport(LocalDate today) {
+        TreeMap<Integer, Long> byBirthYear = new TreeMap<>();
+        Map<String, Long> byAgeBucket = new LinkedHashMap<>();
+        byAgeBucket.put("<" + ageThreshold, 0L);
+        for(int i = 0; i < bucketCount; i++)
+            byAgeBucket.put(bucketName(i), 0L);
+
+        long total = 0;
+        for(Map.Entry<LocalDate, Long> entry: countsByDay.entrySet()) {
+            long count = entry.getValue();
+            total += count;
+            byBirthYear.merge(entry.getKey().getYear(), count, Long::sum);
+            int age = Period.between(entry.getKey(), today).getYears();
+            String bucket = age < ageThreshold ? "<" + ageThreshold
+                    : bucketName(Math.min(bucketCount - 1, (age - ageThreshold) / bucketWidth));
+            byAgeBucket.merge(bucket, count, Long::sum);
+        }
+        return UserStatsDTO.builder()
+                .total(total)
+                .byBirthYear(byBirthYear)
+                .byAgeBucket(byAgeBucket)
+                .reconciledAt(reconciledAt == null ? null : Date.from(reconciledAt))
+                .build();
+    }
+
+    private String bucketName(int index) {
+        int from = ageThreshold + index * bucketWidth;
+        return index == bucketCount - 1 ? from + "+" : from + "-" + (from + bucketWidth - 1);
+    }
+
+    private LocalDate toDay(Date date) {
+        return LocalDate.ofInstant(Instant.ofEpochMilli(date.getTime()), ZoneId.systemDefault());
+    }
+}
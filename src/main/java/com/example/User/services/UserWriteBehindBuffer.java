@@ -0,0 +1,271 @@
+package com.example.User.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Opt-in write-behind for high-frequency field updates such as address and
+ * phone changes. Updates are acknowledged once queued and coalesced per user,
+ * the last value of each field winning, then written by a background thread
+ * through {@link UserService#updateAll} in transactions of
+ * {@code users.write-behind.batch-size} users, whenever that many users are
+ * pending or every {@code users.write-behind.flush-interval}.
+ * <p>
+ * At most {@code users.write-behind.max-pending} users are held; beyond that
+ * {@link #enqueue} refuses new users and callers write synchronously. Pending
+ * updates are flushed on shutdown, but are lost if the process dies, and
+ * updates of users deleted meanwhile are dropped.
+ * <p>
+ * Synchronous writes of a user must call {@link #flush(int)} first, and
+ * deletes {@link #discard}, so queued updates, which were accepted earlier,
+ * never land on top of a later write. Users are claimed while their updates
+ * are written, and these only wait for a write of the same user; no lock is
+ * held across a transaction.
+ */
+@Service
+@Profile("!reactive")
+public class UserWriteBehindBuffer {
+    private static final Logger log = LoggerFactory.getLogger(UserWriteBehindBuffer.class);
+
+    private final UserService userService;
+    private final Cache cache;
+    private final boolean enabled;
+    private final int batchSize;
+    private final int maxPending;
+
+    private final Map<Integer, Map<String, Object>> pending = new ConcurrentHashMap<>();
+    /** Users whose updates are being written, completed once written. */
+    private final Map<Integer, CompletableFuture<Void>> writing = new ConcurrentHashMap<>();
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    private final ScheduledExecutorService executor;
+    private final Timer flushTimer;
+    private final Counter coalesced;
+    private final Counter dropped;
+
+    @Autowired
+    public UserWriteBehindBuffer(UserService userService, CacheManager cacheManager, MeterRegistry meterRegistry,
+                                 @Value("${users.write-behind.enabled}") boolean enabled,
+                                 @Value("${users.write-behind.batch-size}") int batchSize,
+                                 @Value("${users.write-behind.max-pending}") int maxPending,
+                                 @Value("${users.write-behind.flush-interval}") Duration flushInterval) {
+        this.userService = userService;
+        this.cache = cacheManager.getCache("users");
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.maxPending = maxPending;
+
+        Gauge.builder("users.write-behind.pending", pending, Map::size)
+                .description("Users with updates waiting to be written")
+                .register(meterRegistry);
+        this.flushTimer = Timer.builder("users.write-behind.flush")
+                .description("Time to write one batch of coalesced updates")
+                .register(meterRegistry);
+        this.coalesced = Counter.builder("users.write-behind.coalesced")
+                .description("Field updates overwritten before being written")
+                .register(meterRegistry);
+        this.dropped = Counter.builder("users.write-behind.dropped")
+                .description("Users whose updates could not be written")
+                .register(meterRegistry);
+
+        if(enabled) {
+            executor = Executors.newSingleThreadScheduledExecutor(runnable -> new Thread(runnable, "users-write-behind"));
+            long interval = flushInterval.toMillis();
+            executor.scheduleWithFixedDelay(this::flush, interval, interval, TimeUnit.MILLISECONDS);
+        } else {
+            executor = null;
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int pending() {
+        return pending.size();
+    }
+
+    /**
+     * Queues {@code field = value} for user {@code id}.
+     *
+     * @return {@code false} if write-behind is disabled or full, in which case
+     *         the caller must write the update itself
+     */
+    public boolean enqueue(int id, String field, Object value) {
+        if(!enabled || executor.isShutdown()) {
+            return false;
+        }
+        if(pending.size() >= maxPending && !pending.containsKey(id)) {
+            requestFlush();
+            return false;
+        }
+        pending.compute(id, (key, changes) -> {
+            if(changes == null) {
+                changes = new HashMap<>();
+            }
+            if(changes.put(field, value) != null) {
+                coalesced.increment();
+            }
+            return changes;
+        });
+        if(pending.size() >= batchSize) {
+            requestFlush();
+        }
+        return true;
+    }
+
+    /**
+     * Writes every update pending when called, except of users another
+     * thread is writing, which stay pending. Runs on the write-behind thread;
+     * callable directly to drain the buffer.
+     */
+    public void flush() {
+        flushRequested.set(false);
+        Map<Integer, Map<String, Object>> batch = new HashMap<>();
+        CompletableFuture<Void> written = new CompletableFuture<>();
+        for(Integer id: pending.keySet()) {
+            if(writing.putIfAbsent(id, written) != null) {
+                continue;
+            }
+            Map<String, Object> changes = pending.remove(id);
+            if(changes != null) {
+                batch.put(id, changes);
+            } else {
+                writing.remove(id, written);
+            }
+            if(batch.size() == batchSize) {
+                write(batch, written);
+                batch = new HashMap<>();
+                written = new CompletableFuture<>();
+            }
+        }
+        write(batch, written);
+    }
+
+    /**
+     * Writes the updates pending for user {@code id} now, after any flush
+     * already writing them has finished; returns at once if there are none.
+     */
+    public void flush(int id) {
+        if(!enabled || !pending.containsKey(id) && !writing.containsKey(id)) {
+            return;
+        }
+        CompletableFuture<Void> written = claim(id);
+        try {
+            Map<String, Object> changes = pending.remove(id);
+            if(changes != null) {
+                write(Map.of(id, changes));
+            }
+        } finally {
+            release(Set.of(id), written);
+        }
+    }
+
+    /**
+     * Drops the updates pending for user {@code id}, after any flush already
+     * writing them has finished; returns at once if there are none.
+     */
+    public void discard(int id) {
+        if(!enabled || !pending.containsKey(id) && !writing.containsKey(id)) {
+            return;
+        }
+        CompletableFuture<Void> written = claim(id);
+        pending.remove(id);
+        release(Set.of(id), written);
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        if(executor == null) {
+            return;
+        }
+        executor.shutdown();
+        if(!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+            log.warn("Write-behind flush did not finish in time");
+        }
+        flush();
+    }
+
+    private void requestFlush() {
+        if(flushRequested.compareAndSet(false, true)) {
+            try {
+                executor.execute(this::flush);
+            } catch (RuntimeException e) {
+                flushRequested.set(false);
+            }
+        }
+    }
+
+    /** Claims user {@code id} for the caller, once no other thread writes it. */
+    private CompletableFuture<Void> claim(int id) {
+        CompletableFuture<Void> written = new CompletableFuture<>();
+        CompletableFuture<Void> previous;
+        while ((previous = writing.putIfAbsent(id, written)) != null) {
+            previous.join();
+        }
+        return written;
+    }
+
+    /** Writes {@code batch}, whose users are claimed by {@code written}, and releases them. */
+    private void write(Map<Integer, Map<String, Object>> batch, CompletableFuture<Void> written) {
+        try {
+            if(!batch.isEmpty()) {
+                write(batch);
+            }
+        } finally {
+            release(batch.keySet(), written);
+        }
+    }
+
+    private void release(Set<Integer> ids, CompletableFuture<Void> written) {
+        ids.forEach(id -> writing.remove(id, written));
+        written.complete(null);
+    }
+
+    /**
+     * Writes one batch; if the transaction fails, users are retried one by one
+     * so a single bad value does not discard the whole batch.
+     */
+    private void write(Map<Integer, Map<String, Object>> batch) {
+        try {
+            flushTimer.record(() -> dropMissing(userService.updateAll(batch)));
+        } catch (RuntimeException batchFailure) {
+            if(batch.size() == 1) {
+                dropped.increment();
+                log.error("Dropping write-behind updates of user {}", batch.keySet(), batchFailure);
+            } else {
+                batch.forEach((id, changes) -> write(Map.of(id, changes)));
+            }
+        } finally {
+            batch.keySet().forEach(cache::evict);
+        }
+    }
+
+    private void dropMissing(Set<Integer> missing) {
+        if(!missing.isEmpty()) {
+            dropped.increment(missing.size());
+            log.debug("Dropping write-behind updates of deleted users {}", missing);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.User.sharding;
+
+/**
+ * The shard the current thread works on, read by the routing data source when
+ * a connection is requested and by {@link ShardedSequenceGenerator}. Unbound
+ * means the default shard, 0.
+ */
+public final class ShardContext {
+    private static final ThreadLocal<Integer> CURRENT = new ThreadLocal<>();
+
+    private ShardContext() {
+    }
+
+    public static Integer current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Binds {@code shard} to the current thread.
+     *
+     * @return the previously bound shard, to hand to {@link #restore}
+     */
+    static Integer bind(int shard) {
+        Integer previous = CURRENT.get();
+        CURRENT.set(shard);
+        return previous;
+    }
+
+    static void restore(Integer previous) {
+        if (previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.User.sharding;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+
+import java.lang.annotation.Annotation;
+
+/**
+ * Binds the shard of {@link Sharded} methods before any other advice runs, so
+ * the transaction, and the connection it takes, are already on that shard.
+ */
+@Aspect
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class ShardRoutingAspect {
+    private final ShardTemplate shardTemplate;
+
+    public ShardRoutingAspect(ShardTemplate shardTemplate) {
+        this.shardTemplate = shardTemplate;
+    }
+
+    @Around("@annotation(com.example.User.sharding.Sharded)")
+    public Object route(ProceedingJoinPoint joinPoint) throws Throwable {
+        Integer previous = ShardContext.bind(shard(joinPoint));
+        try {
+            return joinPoint.proceed();
+        } finally {
+            ShardContext.restore(previous);
+        }
+    }
+
+    private int shard(ProceedingJoinPoint joinPoint) {
+        Annotation[][] annotations = ((MethodSignature) joinPoint.getSignature()).getMethod().getParameterAnnotations();
+        for (int i = 0; i < annotations.length; i++) {
+            for (Annotation annotation : annotations[i]) {
+                if (annotation instanceof ShardKey) {
+                    return shardTemplate.shardOf(((Number) joinPoint.getArgs()[i]).intValue());
+                }
+            }
+        }
+        Integer bound = ShardContext.current();
+        return bound != null ? bound : shardTemplate.nextShard();
+    }
+}
@@ -0,0 +1,175 @@
+package com.example.User.sharding;
+
+import java.lang.reflect.UndeclaredThrowableException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+/**
+ * Runs work on one or on every shard. A user lives on shard
+ * {@code id mod shardCount}, which {@link ShardedSequenceGenerator} encodes
+ * into every id it hands out.
+ * <p>
+ * With a single shard, when sharding is not configured, everything runs
+ * inline on the calling thread without binding a shard, so it joins the
+ * caller's transaction. With several, {@link #executeOnAll} scatters to a
+ * pool of {@code users.sharding.scatter-threads} threads, where each call
+ * runs outside the caller's transaction and has to start its own.
+ */
+public class ShardTemplate {
+    private final int shardCount;
+    private final ExecutorService executor;
+    private final AtomicInteger next = new AtomicInteger();
+    private final AtomicInteger threadCount = new AtomicInteger();
+
+    public ShardTemplate(int shardCount, int scatterThreads) {
+        if (shardCount < 1) {
+            throw new IllegalArgumentException("shardCount should be at least 1");
+        }
+        this.shardCount = shardCount;
+        this.executor = shardCount == 1 ? null : Executors.newFixedThreadPool(scatterThreads,
+                runnable -> new Thread(runnable, "users-shard-" + threadCount.incrementAndGet()));
+    }
+
+    public int getShardCount() {
+        return shardCount;
+    }
+
+    public int shardOf(int id) {
+        return Math.floorMod(id, shardCount);
+    }
+
+    /** Shard for new users, round robin. */
+    public int nextShard() {
+        return Math.floorMod(next.getAndIncrement(), shardCount);
+    }
+
+    public <T> T execute(int shard, Supplier<T> action) {
+        if (shardCount == 1) {
+            return action.get();
+        }
+        Integer previous = ShardContext.bind(shard);
+        try {
+            return action.get();
+        } finally {
+            ShardContext.restore(previous);
+        }
+    }
+
+    /** Runs {@code action} on each shard in turn, on the calling thread. */
+    public void forEachShard(IntConsumer action) {
+        for (int shard = 0; shard < shardCount; shard++) {
+            int current = shard;
+            execute(shard, () -> {
+                action.accept(current);
+                return null;
+            });
+        }
+    }
+
+    /**
+     * Runs {@code action} on every shard in parallel and returns the results in
+     * shard order. The first failure is rethrown once all calls are done.
+     */
+    public <T> List<T> executeOnAll(IntFunction<T> action) {
+        if (shardCount == 1) {
+            return Collections.singletonList(action.apply(0));
+        }
+        List<Future<T>> futures = new ArrayList<>(shardCount);
+        for (int shard = 0; shard < shardCount; shard++) {
+            int current = shard;
+            futures.add(executor.submit(() -> execute(current, () -> action.apply(current))));
+        }
+        List<T> results = new ArrayList<>(shardCount);
+        Throwable failure = null;
+        for (Future<T> future : futures) {
+            try {
+                results.add(future.get());
+            } catch (ExecutionException e) {
+                failure = failure == null ? e.getCause() : failure;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                futures.forEach(pending -> pending.cancel(true));
+                throw new IllegalStateException("Interrupted while waiting for shards", e);
+            }
+        }
+        if (failure instanceof RuntimeException e) {
+            throw e;
+        }
+        if (failure instanceof Error e) {
+            throw e;
+        }
+        if (failure != null) {
+            throw new UndeclaredThrowableException(failure);
+        }
+        return results;
+    }
+
+    /**
+     * Merges per-shard results, each sorted by {@code order}, into the first
+     * {@code limit} overall.
+     */
+    public static <T> List<T> merge(List<List<T>> sorted, Comparator<? super T> order, int limit) {
+        if (sorted.size() == 1) {
+            List<T> only = sorted.get(0);
+            return only.size() <= limit ? only : only.subList(0, limit);
+        }
+        PriorityQueue<PeekingIterator<T>> heads = new PriorityQueue<>(sorted.size(),
+                (a, b) -> order.compare(a.peek(), b.peek()));
+        for (List<T> results : sorted) {
+            if (!results.isEmpty()) {
+                heads.add(new PeekingIterator<>(results.iterator()));
+            }
+        }
+        List<T> merged = new ArrayList<>();
+        while (merged.size() < limit && !heads.isEmpty()) {
+            PeekingIterator<T> head = heads.poll();
+            merged.add(head.next());
+            if (head.hasNext()) {
+                heads.add(head);
+            }
+        }
+        return merged;
+    }
+
+    public void shutdown() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    private static final class PeekingIterator<T> {
+        private final Iterator<T> iterator;
+        private T next;
+
+        PeekingIterator(Iterator<T> iterator) {
+            this.iterator = iterator;
+            this.next = iterator.next();
+        }
+
+        T peek() {
+            return next;
+        }
+
+        boolean hasNext() {
+            return next != null;
+        }
+
+        T next() {
+            T current = next;
+            next = iterator.hasNext() ? iterator.next() : null;
+            return current;
+        }
+    }
+}
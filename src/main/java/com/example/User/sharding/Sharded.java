@@ -0,0 +1,17 @@
+package com.example.User.sharding;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Runs the method, including its transaction, on the shard owning the
+ * {@link ShardKey} parameter. Without one the method creates users, and runs
+ * on the shard bound by {@link ShardTemplate#execute} if any, else on the next
+ * shard round robin.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Sharded {
+}
@@ -0,0 +1,85 @@
+package com.example.User.sharding;
+
+import org.hibernate.HibernateException;
+import org.hibernate.MappingException;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.engine.config.spi.StandardConverters;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.enhanced.Optimizer;
+import org.hibernate.id.enhanced.OptimizerDescriptor;
+import org.hibernate.id.enhanced.OptimizerFactory;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Sequence generator that makes ids unique across shards without a central
+ * allocator. Every shard has its own copy of the sequence; a value {@code n}
+ * drawn from shard {@code s} becomes id {@code n * shardCount + s}, so the
+ * owning shard can be read back from any id. Each shard gets its own pooled
+ * optimizer, since values cached from one shard's sequence must not be handed
+ * out on another.
+ * <p>
+ * Unsharded ({@value #SHARD_COUNT} unset or 1) it behaves exactly like the
+ * plain sequence generator.
+ */
+public class ShardedSequenceGenerator extends SequenceStyleGenerator {
+    /** Hibernate setting holding the number of shards. */
+    public static final String SHARD_COUNT = "users.sharding.shard-count";
+
+    private int shardCount;
+    private OptimizerDescriptor optimizerType;
+    private int incrementSize;
+    private int initialValue;
+    private Class<?> returnedClass;
+    private final Map<Integer, Optimizer> optimizers = new ConcurrentHashMap<>();
+
+    @Override
+    public void configure(Type type, Properties parameters, ServiceRegistry serviceRegistry) throws MappingException {
+        super.configure(type, parameters, serviceRegistry);
+        shardCount = serviceRegistry.requireService(ConfigurationService.class)
+                .getSetting(SHARD_COUNT, StandardConverters.INTEGER, 1);
+        returnedClass = type.getReturnedClass();
+    }
+
+    @Override
+    protected OptimizerDescriptor determineOptimizationStrategy(Properties parameters, int incrementSize) {
+        optimizerType = super.determineOptimizationStrategy(parameters, incrementSize);
+        return optimizerType;
+    }
+
+    @Override
+    protected int determineAdjustedIncrementSize(OptimizerDescriptor optimizationStrategy, int incrementSize) {
+        this.incrementSize = super.determineAdjustedIncrementSize(optimizationStrategy, incrementSize);
+        return this.incrementSize;
+    }
+
+    @Override
+    protected int determineInitialValue(Properties parameters) {
+        initialValue = super.determineInitialValue(parameters);
+        return initialValue;
+    }
+
+    @Override
+    public Object generate(SharedSessionContractImplementor session, Object object) throws HibernateException {
+        if (shardCount <= 1) {
+            return super.generate(session, object);
+        }
+        Integer current = ShardContext.current();
+        int shard = current == null ? 0 : current;
+        Optimizer optimizer = optimizers.computeIfAbsent(shard,
+                key -> OptimizerFactory.buildOptimizer(optimizerType, returnedClass, incrementSize, initialValue));
+        long value = ((Number) optimizer.generate(getDatabaseStructure().buildCallback(session))).longValue();
+        long id = value * shardCount + shard;
+        return returnedClass == Long.class ? (Object) id : (Object) Math.toIntExact(id);
+    }
+
+    @Override
+    public boolean supportsBulkInsertionIdentifierGeneration() {
+        return shardCount <= 1 && super.supportsBulkInsertionIdentifierGeneration();
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.User.util;
+
+import com.example.User.exceptions.UserPreconditionFailedException;
+
+/**
+ * Maps {@code User} versions to strong entity tags and back.
+ */
+public final class ETags {
+
+    private ETags() {
+    }
+
+    public static String of(int version) {
+        return "\"" + version + "\"";
+    }
+
+    /**
+     * Reads the version a write is conditional on from an {@code If-Match}
+     * header. Only a single strong tag can be matched against the version
+     * column, so weak or multiple tags never match.
+     *
+     * @return the expected version, or {@code null} when the header is absent or {@code *}
+     */
+    public static Integer parseIfMatch(String ifMatch) {
+        if(ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String tag = ifMatch.trim();
+        if(tag.length() > 2 && tag.startsWith("\"") && tag.endsWith("\"")) {
+            try {
+                return Integer.parseInt(tag.substring(1, tag.length() - 1));
+            } catch (NumberFormatException ignored) {
+            }
+        }
+        throw new UserPreconditionFailedException("If-Match " + ifMatch + " does not match the current version");
+    }
+}
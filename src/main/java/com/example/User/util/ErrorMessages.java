@@ -0,0 +1,39 @@
+package com.example.User.util;
+
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.validation.Errors;
+import org.springframework.validation.FieldError;
+import org.springframework.validation.ObjectError;
+
+import java.util.List;
+import java.util.Locale;
+
+public final class ErrorMessages {
+
+    private ErrorMessages() {
+    }
+
+    /**
+     * Joins validation errors into the {@code field - message;} form returned to clients.
+     */
+    public static String of(Errors errors) {
+        StringBuilder errorMsg = new StringBuilder();
+
+        for(ObjectError error: errors.getGlobalErrors())
+            errorMsg.append(error.getDefaultMessage()).append(";");
+        List<FieldError> fieldErrors = errors.getFieldErrors();
+        for(FieldError error: fieldErrors)
+            errorMsg.append(error.getField()).append(" - ")
+                    .append(error.getDefaultMessage()).append(";");
+        return errorMsg.toString();
+    }
+
+    /**
+     * Describes a constraint violation of a user write, naming a duplicate
+     * email when the unique index on it was hit.
+     */
+    public static String of(DataIntegrityViolationException e) {
+        return String.valueOf(e.getMessage()).toLowerCase(Locale.ROOT).contains("ux_user_email")
+                ? "email - User with this email already exists;" : "User conflicts with existing data";
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.User.util;
+
+import com.example.User.entities.User;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Date;
+
+/**
+ * Opaque continuation token for keyset pagination on (birthDate, id).
+ */
+public record PageToken(Date birthDate, int id) {
+
+    public static PageToken of(User user) {
+        return new PageToken(user.getBirthDate(), user.getId());
+    }
+
+    public String encode() {
+        String raw = birthDate.getTime() + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static PageToken decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = raw.indexOf(':');
+            return new PageToken(new Date(Long.parseLong(raw.substring(0, separator))),
+                    Integer.parseInt(raw.substring(separator + 1)));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid page token");
+        }
+    }
+}
@@ -0,0 +1,236 @@
+package com.example.User.util;
+
+import com.example.User.entities.User;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads users one record at a time from a CSV or NDJSON stream, so an import
+ * never holds more than the current record in memory. CSV input needs a
+ * header row naming {@link User} properties; quoted fields may contain commas,
+ * doubled quotes and line breaks. Records that can not be parsed are returned
+ * with an error instead of failing the whole stream, and any {@code id} in the
+ * input is ignored because imported users are always created.
+ * <p>
+ * A record longer than {@code maxRecordLength} characters is rejected and
+ * reading resumes at the next line, so neither a huge line nor a quote that
+ * is never closed can make the reader buffer the rest of the input.
+ */
+public class UserRecordReader implements Closeable {
+    public enum Format { CSV, NDJSON }
+
+    /** One input record: either {@code user} or {@code error} is set. */
+    public record Record(long line, User user, String error) {
+    }
+
+    private final Reader reader;
+    private final Format format;
+    private final ObjectMapper objectMapper;
+    private final int maxRecordLength;
+    private final char[] buffer = new char[8192];
+    private int position;
+    private int limit;
+    private List<String> header;
+    private long line;
+    /** Set when the last line or CSV row read was cut off at {@code maxRecordLength}. */
+    private boolean tooLong;
+
+    public UserRecordReader(Reader reader, Format format, ObjectMapper objectMapper, int maxRecordLength) {
+        this.reader = reader;
+        this.format = format;
+        this.objectMapper = objectMapper;
+        this.maxRecordLength = maxRecordLength;
+    }
+
+    /**
+     * @return the next record, or {@code null} at the end of the input
+     */
+    public Record next() throws IOException {
+        return format == Format.CSV ? nextCsv() : nextNdjson();
+    }
+
+    private Record nextNdjson() throws IOException {
+        String text;
+        do {
+            text = readLine(maxRecordLength);
+            line++;
+            if(text == null) {
+                return null;
+            }
+        } while (text.isBlank() && !tooLong);
+        if(tooLong) {
+            return tooLong(line);
+        }
+        try {
+            return accepted(line, objectMapper.readValue(text, User.class));
+        } catch (IOException | IllegalArgumentException e) {
+            return new Record(line, null, "Malformed record - " + firstLine(e.getMessage()) + ";");
+        }
+    }
+
+    private Record nextCsv() throws IOException {
+        if(header == null) {
+            List<String> names = readCsvRow();
+            if(names == null) {
+                return null;
+            }
+            if(tooLong) {
+                throw new IOException("CSV header is longer than " + maxRecordLength + " characters");
+            }
+            header = names.stream().map(String::trim).toList();
+        }
+        List<String> values;
+        long start;
+        do {
+            start = line + 1;
+            values = readCsvRow();
+            if(values == null) {
+                return null;
+            }
+        } while (values.size() == 1 && values.get(0).isBlank() && !tooLong);
+        if(tooLong) {
+            return tooLong(start);
+        }
+        if(values.size() != header.size()) {
+            return new Record(start, null,
+                    "Malformed record - expected " + header.size() + " columns but got " + values.size() + ";");
+        }
+        Map<String, String> row = new HashMap<>();
+        for(int i = 0; i < header.size(); i++)
+            row.put(header.get(i), values.get(i).isEmpty() ? null : values.get(i));
+        try {
+            return accepted(start, objectMapper.convertValue(row, User.class));
+        } catch (IllegalArgumentException e) {
+            return new Record(start, null, "Malformed record - " + firstLine(e.getMessage()) + ";");
+        }
+    }
+
+    /**
+     * Reads one CSV row, continuing onto following lines while a quoted field
+     * is open. A row running past {@code maxRecordLength} ends at the end of
+     * the line where it did, with {@code tooLong} set.
+     *
+     * @return the fields, or {@code null} at the end of the input
+     */
+    private List<String> readCsvRow() throws IOException {
+        String text = readLine(maxRecordLength);
+        if(text == null) {
+            return null;
+        }
+        line++;
+        int length = text.length();
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        int i = 0;
+        while (true) {
+            if(i == text.length()) {
+                if(!quoted || tooLong) {
+                    break;
+                }
+                text = readLine(maxRecordLength - length - 1);
+                if(text == null) {
+                    break;
+                }
+                line++;
+                length += text.length() + 1;
+                tooLong |= length > maxRecordLength;
+                field.append('\n');
+                i = 0;
+                continue;
+            }
+            char c = text.charAt(i++);
+            if(quoted) {
+                if(c != '"') {
+                    field.append(c);
+                } else if(i < text.length() && text.charAt(i) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if(c == '"') {
+                quoted = true;
+            } else if(c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    /**
+     * Reads one line, ending at {@code \n}, {@code \r\n} or {@code \r}.
+     * Characters past {@code max} are skipped up to the end of the line and
+     * {@code tooLong} is set.
+     *
+     * @return the line without its terminator, or {@code null} at the end of the input
+     */
+    private String readLine(int max) throws IOException {
+        StringBuilder text = new StringBuilder();
+        tooLong = false;
+        boolean read = false;
+        while (true) {
+            if(position == limit) {
+                limit = reader.read(buffer);
+                position = 0;
+                if(limit < 0) {
+                    limit = 0;
+                    return read ? text.toString() : null;
+                }
+            }
+            read = true;
+            char c = buffer[position++];
+            if(c == '\n') {
+                return text.toString();
+            }
+            if(c == '\r') {
+                if(position == limit) {
+                    limit = Math.max(reader.read(buffer), 0);
+                    position = 0;
+                }
+                if(position < limit && buffer[position] == '\n') {
+                    position++;
+                }
+                return text.toString();
+            }
+            if(text.length() < max) {
+                text.append(c);
+            } else {
+                tooLong = true;
+            }
+        }
+    }
+
+    private Record tooLong(long line) {
+        return new Record(line, null, "Malformed record - longer than " + maxRecordLength + " characters;");
+    }
+
+    private static Record accepted(long line, User user) {
+        user.setId(0);
+        return new Record(line, user, null);
+    }
+
+    private static String firstLine(String message) {
+        if(message == null) {
+            return "unreadable value";
+        }
+        int end = message.indexOf('\n');
+        return end < 0 ? message : message.substring(0, end);
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
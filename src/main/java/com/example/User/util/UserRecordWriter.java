@@ -0,0 +1,87 @@
+package com.example.User.util;
+
+import com.example.User.entities.User;
+import com.example.User.util.UserRecordReader.Format;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes users one record at a time as CSV or NDJSON, in the form
+ * {@link UserRecordReader} reads back. CSV output starts with a header row.
+ * Output is buffered; call {@link #flush()} when done. The underlying stream
+ * is never closed.
+ */
+public class UserRecordWriter {
+    public static final List<String> CSV_COLUMNS =
+            List.of("id", "email", "lastName", "firstName", "birthDate", "address", "phoneNumber");
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Writer writer;
+    private final Format format;
+    private final ObjectMapper objectMapper;
+    private final ObjectWriter userWriter;
+    private boolean headerWritten;
+
+    public UserRecordWriter(OutputStream out, Format format, ObjectMapper objectMapper) {
+        this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+        this.format = format;
+        this.objectMapper = objectMapper;
+        this.userWriter = objectMapper.writerFor(User.class);
+    }
+
+    public void write(User user) throws IOException {
+        if(format == Format.NDJSON) {
+            writer.write(userWriter.writeValueAsString(user));
+            writer.write('\n');
+            return;
+        }
+        writeHeader();
+        Map<?, ?> values = objectMapper.convertValue(user, Map.class);
+        for(int i = 0; i < CSV_COLUMNS.size(); i++) {
+            if(i > 0) {
+                writer.write(',');
+            }
+            Object value = values.get(CSV_COLUMNS.get(i));
+            if(value != null) {
+                writeCsvField(value.toString());
+            }
+        }
+        writer.write('\n');
+    }
+
+    /** Writes buffered output, and the CSV header if no user was written. */
+    public void flush() throws IOException {
+        if(format == Format.CSV) {
+            writeHeader();
+        }
+        writer.flush();
+    }
+
+    private void writeHeader() throws IOException {
+        if(!headerWritten) {
+            writer.write(String.join(",", CSV_COLUMNS));
+            writer.write('\n');
+            headerWritten = true;
+        }
+    }
+
+    private void writeCsvField(String value) throws IOException {
+        if(value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+}
@@ -1,7 +1,9 @@
 package com.example.User.util;
 
 import com.example.User.entities.User;
-import com.example.User.services.UserService;
+import com.example.User.index.EmailFilter;
+import io.micrometer.core.annotation.Timed;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.PropertySource;
 import org.springframework.core.env.Environment;
@@ -15,13 +17,21 @@ import java.util.Date;
 @Component
 @PropertySource("classpath:application.properties")
 public class UserValidator implements Validator {
-    private final UserService userService;
     private final Environment environment;
+    private final EmailFilter emailFilter;
+
+    public UserValidator(Environment environment) {
+        this(environment, (EmailFilter) null);
+    }
 
     @Autowired
-    public UserValidator(UserService userService, Environment environment) {
-        this.userService = userService;
+    public UserValidator(Environment environment, ObjectProvider<EmailFilter> emailFilter) {
+        this(environment, emailFilter.getIfAvailable());
+    }
+
+    private UserValidator(Environment environment, EmailFilter emailFilter) {
         this.environment = environment;
+        this.emailFilter = emailFilter;
     }
 
     @Override
@@ -30,12 +40,25 @@ public class UserValidator implements Validator {
     }
 
     @Override
+    @Timed(value = "users.validation", histogram = true)
     public void validate(Object target, Errors errors) {
         User user = (User) target;
         int age = Integer.parseInt(environment.getProperty("age"));
         LocalDate max = LocalDate.now().minusYears(age);
         Date date = new Date(max.getYear() - 1900, max.getMonthValue(), max.getDayOfMonth());
-        if(user.getBirthDate().after(date))
+        if(user.getBirthDate() != null && user.getBirthDate().after(date))
             errors.rejectValue("birthDate", "", "User should be more than 18 y o");
     }
+
+    /**
+     * {@link #validate} for a user about to be created, also rejecting an
+     * email that is already taken. Without an {@link EmailFilter}, as in the
+     * reactive profile, only the unique index guards against duplicates.
+     */
+    public void validateNew(User user, Errors errors) {
+        validate(user, errors);
+        if(emailFilter != null && user.getEmail() != null && !errors.hasFieldErrors("email")
+                && emailFilter.exists(user.getEmail()))
+            errors.rejectValue("email", "", "User with this email already exists");
+    }
 }
@@ -0,0 +1,18 @@
+create table if not exists User (
+    id int not null primary key,
+    email varchar(255),
+    lastname varchar(255),
+    firstname varchar(255),
+    birthdate datetime(6),
+    address varchar(255),
+    phonenumber varchar(255),
+    version int not null default 0,
+    deleted_at datetime(6)
+);
+
+-- Shared with the servlet stack, whose Hibernate generator creates the same table on MySQL
+create table if not exists user_seq (
+    next_val bigint
+);
+
+insert into user_seq (next_val) select 1 from dual where not exists (select * from user_seq);
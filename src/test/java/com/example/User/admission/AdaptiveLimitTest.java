@@ -0,0 +1,51 @@
+package com.example.User.admission;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class AdaptiveLimitTest {
+    private static final long THRESHOLD = 1_000;
+
+    @Test
+    public void rejectsAboveLimitTest() {
+        AdaptiveLimit limit = new AdaptiveLimit(2, 1, 10, 0.5, THRESHOLD);
+
+        assertTrue(limit.tryAcquire());
+        assertTrue(limit.tryAcquire());
+        assertFalse(limit.tryAcquire());
+
+        limit.release();
+        assertTrue(limit.tryAcquire());
+    }
+
+    @Test
+    public void slowResponsesDecreaseOncePerRoundTripTest() {
+        AdaptiveLimit limit = new AdaptiveLimit(8, 1, 10, 0.5, THRESHOLD);
+        long start = System.nanoTime();
+        limit.tryAcquire();
+        limit.tryAcquire();
+
+        limit.release(start, start + 2 * THRESHOLD);
+        limit.release(start, start + 3 * THRESHOLD);
+
+        assertEquals(4, limit.getLimit());
+        assertEquals(0, limit.getInFlight());
+    }
+
+    @Test
+    public void fastResponsesIncreaseUsedLimitTest() {
+        AdaptiveLimit limit = new AdaptiveLimit(2, 1, 3, 0.5, THRESHOLD);
+        for(int i = 0; i < 10; i++) {
+            limit.tryAcquire();
+            limit.tryAcquire();
+            long start = System.nanoTime();
+            limit.release(start, start);
+            limit.release(start, start);
+        }
+
+        assertEquals(3, limit.getLimit());
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.User.config;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.cache.CacheProperties;
+import org.springframework.cache.Cache;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class CacheConfigTest {
+    private Cache cache;
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    void setUp() {
+        CacheProperties cacheProperties = new CacheProperties();
+        cacheProperties.setCacheNames(List.of("users"));
+        cacheProperties.getCaffeine().setSpec("maximumSize=100");
+        cache = new CacheConfig().cacheManager(cacheProperties).getCache("users");
+        transactionTemplate = new TransactionTemplate(new AbstractPlatformTransactionManager() {
+            @Override
+            protected Object doGetTransaction() {
+                return new Object();
+            }
+
+            @Override
+            protected void doBegin(Object transaction, TransactionDefinition definition) {
+            }
+
+            @Override
+            protected void doCommit(DefaultTransactionStatus status) {
+            }
+
+            @Override
+            protected void doRollback(DefaultTransactionStatus status) {
+            }
+        });
+    }
+
+    @Test
+    public void readCommittingAfterUpdateDoesNotRestoreOldValueTest() throws Exception {
+        CountDownLatch read = new CountDownLatch(1);
+        CountDownLatch updated = new CountDownLatch(1);
+        CompletableFuture<Void> reader = CompletableFuture.runAsync(() -> transactionTemplate.executeWithoutResult(status -> {
+            cache.put(7, "old");
+            read.countDown();
+            await(updated);
+        }));
+        await(read);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            cache.evict(7);
+            assertEquals("old", cache.get(7, String.class));
+        });
+        updated.countDown();
+        reader.get(5, TimeUnit.SECONDS);
+
+        assertNull(cache.get(7));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
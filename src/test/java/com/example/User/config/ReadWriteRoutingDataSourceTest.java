@@ -0,0 +1,95 @@
+package com.example.User.config;
+
+import jakarta.servlet.http.Cookie;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+public class ReadWriteRoutingDataSourceTest {
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate readOnly;
+    private TransactionTemplate readWrite;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource primary = database("primary");
+        DriverManagerDataSource replica = database("replica");
+        ReadWriteRoutingDataSource routing = new ReadWriteRoutingDataSource(primary, List.of(replica), Duration.ofSeconds(5));
+        routing.afterPropertiesSet();
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(routing);
+
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        readWrite = new TransactionTemplate(transactionManager);
+    }
+
+    @AfterEach
+    void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    public void routesReadOnlyTransactionsToReplicaTest() {
+        assertEquals("replica", readOnly.execute(status -> name()));
+        assertEquals("primary", readWrite.execute(status -> name()));
+        assertEquals("primary", name());
+    }
+
+    @Test
+    public void readsOnPrimaryWhenAskedTest() {
+        assertEquals("primary", readOnly.execute(status -> ReadWriteRoutingDataSource.onPrimary(this::name)));
+        assertEquals("replica", readOnly.execute(status -> name()));
+    }
+
+    @Test
+    public void readYourWritesAfterCommitTest() {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request, response));
+
+        readWrite.execute(status -> name());
+
+        assertEquals("primary", readOnly.execute(status -> name()));
+        Cookie cookie = response.getCookie(ReadWriteRoutingDataSource.PRIMARY_UNTIL_COOKIE);
+        assertNotNull(cookie);
+
+        MockHttpServletRequest next = new MockHttpServletRequest();
+        next.setCookies(cookie);
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(next, new MockHttpServletResponse()));
+        assertEquals("primary", readOnly.execute(status -> name()));
+
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+        assertEquals("replica", readOnly.execute(status -> name()));
+    }
+
+    private String name() {
+        return jdbcTemplate.queryForObject("select name from db_name", String.class);
+    }
+
+    private static DriverManagerDataSource database(String name) {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:routing-" + name + ";DB_CLOSE_DELAY=-1", "sa", "");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("create table if not exists db_name (name varchar(16))");
+        jdbcTemplate.update("delete from db_name");
+        jdbcTemplate.update("insert into db_name values (?)", name);
+        return dataSource;
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.User.controllers;
+
+import com.example.User.services.UserService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+@SpringBootTest(properties = {
+        "users.admission.enabled=true",
+        "users.admission.max-concurrency=0",
+        "users.admission.retry-after=PT3S"
+})
+@AutoConfigureMockMvc
+public class UserControllerAdmissionTest {
+    @Autowired
+    private MockMvc mvc;
+
+    @MockBean
+    private UserService userService;
+
+    @Test
+    public void overloadedIsServiceUnavailableWithRetryAfterTest() throws Exception {
+        MockHttpServletResponse response = mvc.perform(get("/users/7")).andReturn().getResponse();
+
+        assertEquals(503, response.getStatus());
+        assertEquals("3", response.getHeader(HttpHeaders.RETRY_AFTER));
+        verify(userService, never()).findById(anyInt());
+    }
+}
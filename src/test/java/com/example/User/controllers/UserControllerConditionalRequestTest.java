@@ -0,0 +1,155 @@
+package com.example.User.controllers;
+
+import com.example.User.entities.User;
+import com.example.User.exceptions.UserPreconditionFailedException;
+import com.example.User.services.UserService;
+import com.example.User.services.UserWriteBehindBuffer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.RequestBuilder;
+
+import java.util.Date;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+public class UserControllerConditionalRequestTest {
+    private static final String USER_JSON = "{\"email\":\"etag@mail.com\",\"lastName\":\"Last\","
+            + "\"firstName\":\"First\",\"birthDate\":\"1990-01-01\"}";
+
+    @Autowired
+    private MockMvc mvc;
+
+    @MockBean
+    private UserService userService;
+
+    @MockBean
+    private UserWriteBehindBuffer writeBehindBuffer;
+
+    @BeforeEach
+    void setUp() {
+        when(userService.findVersion(7)).thenReturn(3);
+        when(userService.findById(7)).thenReturn(User.builder()
+                .id(7)
+                .email("etag@mail.com")
+                .lastName("Last")
+                .firstName("First")
+                .birthDate(new Date(631_152_000_000L))
+                .version(3)
+                .build());
+    }
+
+    @Test
+    public void getReturnsETagTest() throws Exception {
+        MockHttpServletResponse response = perform(get("/users/7"));
+
+        assertEquals(200, response.getStatus());
+        assertEquals("\"3\"", response.getHeader(HttpHeaders.ETAG));
+    }
+
+    @Test
+    public void getWithMatchingIfNoneMatchIsNotModifiedTest() throws Exception {
+        MockHttpServletResponse response = perform(get("/users/7").header(HttpHeaders.IF_NONE_MATCH, "\"3\""));
+
+        assertEquals(304, response.getStatus());
+        assertEquals("\"3\"", response.getHeader(HttpHeaders.ETAG));
+        assertEquals(0, response.getContentLength());
+        verify(userService, never()).findById(anyInt());
+    }
+
+    @Test
+    public void getWithStaleIfNoneMatchReturnsUserTest() throws Exception {
+        MockHttpServletResponse response = perform(get("/users/7").header(HttpHeaders.IF_NONE_MATCH, "\"2\""));
+
+        assertEquals(200, response.getStatus());
+        assertEquals("\"3\"", response.getHeader(HttpHeaders.ETAG));
+    }
+
+    @Test
+    public void putWithStaleIfMatchFailsPreconditionTest() throws Exception {
+        doThrow(new UserPreconditionFailedException("User with id 7 has version 3, not 2"))
+                .when(userService).update(eq(7), any(), eq(2));
+
+        MockHttpServletResponse response = perform(put("/users/7")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(USER_JSON)
+                .header(HttpHeaders.IF_MATCH, "\"2\""));
+
+        assertEquals(412, response.getStatus());
+    }
+
+    @Test
+    public void weakIfMatchFailsPreconditionTest() throws Exception {
+        MockHttpServletResponse response = perform(put("/users/7")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(USER_JSON)
+                .header(HttpHeaders.IF_MATCH, "W/\"3\""));
+
+        assertEquals(412, response.getStatus());
+        verify(userService, never()).update(anyInt(), any(), any());
+    }
+
+    @Test
+    public void queuedAddressChangeIsAcceptedTest() throws Exception {
+        when(writeBehindBuffer.enqueue(7, "address", "Street 1")).thenReturn(true);
+
+        MockHttpServletResponse response = perform(patch("/users/7/update-address").param("address", "Street 1"));
+
+        assertEquals(202, response.getStatus());
+        verify(userService, never()).updateAddress(anyInt(), any(), any());
+    }
+
+    @Test
+    public void conditionalAddressChangeIsWrittenAtOnceTest() throws Exception {
+        MockHttpServletResponse response = perform(patch("/users/7/update-address")
+                .param("address", "Street 1")
+                .header(HttpHeaders.IF_MATCH, "\"3\""));
+
+        assertEquals(200, response.getStatus());
+        assertNull(response.getHeader(HttpHeaders.RETRY_AFTER));
+        verify(writeBehindBuffer, never()).enqueue(anyInt(), any(), any());
+        verify(userService).updateAddress(7, "Street 1", 3);
+    }
+
+    @Test
+    public void synchronousWritesFollowQueuedUpdatesTest() throws Exception {
+        perform(put("/users/7").contentType(MediaType.APPLICATION_JSON).content(USER_JSON));
+        perform(patch("/users/7/update-address").param("address", "Street 2").header(HttpHeaders.IF_MATCH, "\"3\""));
+        perform(delete("/users/7"));
+
+        InOrder inOrder = inOrder(writeBehindBuffer, userService);
+        inOrder.verify(writeBehindBuffer).flush(7);
+        inOrder.verify(userService).update(eq(7), any(), eq(null));
+        inOrder.verify(writeBehindBuffer).flush(7);
+        inOrder.verify(userService).updateAddress(7, "Street 2", 3);
+        inOrder.verify(writeBehindBuffer).discard(7);
+        inOrder.verify(userService).delete(7);
+    }
+
+    private MockHttpServletResponse perform(RequestBuilder request) throws Exception {
+        return mvc.perform(request).andReturn().getResponse();
+    }
+}
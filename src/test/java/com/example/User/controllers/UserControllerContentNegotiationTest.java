@@ -0,0 +1,106 @@
+package com.example.User.controllers;
+
+import com.example.User.entities.User;
+import com.example.User.exceptions.UserNotFoundException;
+import com.example.User.services.UserService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.Date;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+public class UserControllerContentNegotiationTest {
+    private static final MediaType CBOR = MediaType.parseMediaType("application/cbor");
+    private static final MediaType SMILE = MediaType.parseMediaType("application/x-jackson-smile");
+
+    @Autowired
+    private MockMvc mvc;
+
+    @MockBean
+    private UserService userService;
+
+    private final User user = User.builder()
+            .id(7)
+            .email("binary@mail.com")
+            .lastName("Last")
+            .firstName("First")
+            .birthDate(new Date(946_684_800_000L))
+            .build();
+
+    @BeforeEach
+    void setUp() {
+        when(userService.findById(7)).thenReturn(user);
+    }
+
+    @Test
+    public void jsonByDefaultTest() throws Exception {
+        MockHttpServletResponse response = mvc.perform(get("/users/7")).andReturn().getResponse();
+
+        assertEquals(200, response.getStatus());
+        assertTrue(MediaType.APPLICATION_JSON.isCompatibleWith(MediaType.parseMediaType(response.getContentType())));
+        assertUser(new ObjectMapper().readValue(response.getContentAsByteArray(), User.class));
+    }
+
+    @Test
+    public void cborTest() throws Exception {
+        MockHttpServletResponse response = mvc.perform(get("/users/7").accept(CBOR)).andReturn().getResponse();
+
+        assertEquals(200, response.getStatus());
+        assertTrue(CBOR.isCompatibleWith(MediaType.parseMediaType(response.getContentType())));
+        assertUser(new CBORMapper().readValue(response.getContentAsByteArray(), User.class));
+    }
+
+    @Test
+    public void smileTest() throws Exception {
+        MockHttpServletResponse response = mvc.perform(get("/users/7").accept(SMILE)).andReturn().getResponse();
+
+        assertEquals(200, response.getStatus());
+        assertTrue(SMILE.isCompatibleWith(MediaType.parseMediaType(response.getContentType())));
+        assertUser(new SmileMapper().readValue(response.getContentAsByteArray(), User.class));
+    }
+
+    @Test
+    public void unacceptableTypeTest() throws Exception {
+        MockHttpServletResponse response = mvc.perform(get("/users/7")
+                .header(HttpHeaders.ACCEPT, "application/x-protobuf")).andReturn().getResponse();
+
+        assertEquals(406, response.getStatus());
+    }
+
+    @Test
+    public void cborErrorTest() throws Exception {
+        when(userService.findById(999)).thenThrow(new UserNotFoundException("User with id 999 not found"));
+
+        MockHttpServletResponse response = mvc.perform(get("/users/999").accept(CBOR)).andReturn().getResponse();
+
+        assertEquals(404, response.getStatus());
+        assertEquals(MediaType.APPLICATION_PROBLEM_JSON_VALUE, response.getContentType());
+        JsonNode problem = new ObjectMapper().readTree(response.getContentAsByteArray());
+        assertEquals(404, problem.get("status").asInt());
+        assertEquals("User with id 999 not found", problem.get("detail").asText());
+    }
+
+    private void assertUser(User decoded) {
+        assertEquals(user.getId(), decoded.getId());
+        assertEquals(user.getEmail(), decoded.getEmail());
+        assertEquals(user.getBirthDate(), decoded.getBirthDate());
+    }
+}
@@ -117,7 +117,7 @@ public class UserControllerTest {
                 + "  \"birthDate\": \"1997-12-10T18:00:00.000Z\"\n"
                 + "}";
 
-        Mockito.doNothing().when(service).update(anyInt(), any(User.class));
+        Mockito.doNothing().when(service).update(anyInt(), any(User.class), any());
         Mockito.doNothing().when(userValidator).validate(any(), any());
         mvc.perform(put("/users/1")
                         .contentType(MediaType.APPLICATION_JSON)
@@ -158,7 +158,7 @@ public class UserControllerTest {
 
     @Test
     public void changeAddressTest() throws Exception {
-        Mockito.doNothing().when(service).updateAddress(anyInt(), any());
+        Mockito.doNothing().when(service).updateAddress(anyInt(), any(), any());
 
         mvc.perform(patch("/users/1/update-address?address=newAddress"))
                 .andExpect(status().isOk());
@@ -166,7 +166,7 @@ public class UserControllerTest {
 
     @Test
     public void changePhoneTest() throws Exception {
-        Mockito.doNothing().when(service).updatePhone(anyInt(), any());
+        Mockito.doNothing().when(service).updatePhone(anyInt(), any(), any());
 
         mvc.perform(patch("/users/1/update-phone?phone=+38086375417"))
                 .andExpect(status().isOk());
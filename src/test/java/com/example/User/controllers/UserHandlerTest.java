@@ -0,0 +1,115 @@
+package com.example.User.controllers;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "spring.main.web-application-type=reactive")
+@ActiveProfiles("reactive")
+public class UserHandlerTest {
+
+    @Autowired
+    private WebTestClient client;
+
+    private static String user(String email, String birthDate) {
+        return "{\n"
+                + "  \"email\": \"" + email + "\",\n"
+                + "  \"lastName\": \"Last\",\n"
+                + "  \"firstName\": \"First\",\n"
+                + "  \"birthDate\": \"" + birthDate + "\"\n"
+                + "}";
+    }
+
+    @Test
+    public void createAndFindByDateRangeTest() {
+        client.post().uri("/users")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(user("range@mail.com", "1961-12-10T18:00:00.000Z"))
+                .exchange()
+                .expectStatus().isOk();
+
+        client.method(HttpMethod.GET).uri("/users/date-range")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"from\": \"1961-01-01T00:00:00.000Z\", \"to\": \"1962-01-01T00:00:00.000Z\"}")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.length()").isEqualTo(1)
+                .jsonPath("$[0].email").isEqualTo("range@mail.com");
+    }
+
+    @Test
+    public void createUserInvalidTest() {
+        client.post().uri("/users")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(user("NOT_VALID", "2020-12-10T18:00:00.000Z"))
+                .exchange()
+                .expectStatus().isEqualTo(409)
+                .expectBody(String.class)
+                .isEqualTo("email - must be a well-formed email address;birthDate - User should be more than 18 y o;");
+    }
+
+    @Test
+    public void updateAndPatchTest() {
+        client.post().uri("/users")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(user("patch@mail.com", "1972-12-10T18:00:00.000Z"))
+                .exchange()
+                .expectStatus().isOk();
+
+        client.method(HttpMethod.GET).uri("/users/date-range")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"from\": \"1972-01-01T00:00:00.000Z\", \"to\": \"1973-01-01T00:00:00.000Z\"}")
+                .exchange()
+                .expectBody()
+                .jsonPath("$[0].id").value(id -> {
+                    client.put().uri("/users/" + id)
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .bodyValue(user("updated@mail.com", "1972-12-10T18:00:00.000Z"))
+                            .exchange()
+                            .expectStatus().isOk();
+                    client.patch().uri("/users/" + id + "/update-address?address=newAddress")
+                            .exchange()
+                            .expectStatus().isOk();
+                    client.patch().uri("/users/" + id + "/update-phone?phone=+38086375417")
+                            .exchange()
+                            .expectStatus().isOk();
+                });
+
+        client.method(HttpMethod.GET).uri("/users/date-range")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"from\": \"1972-01-01T00:00:00.000Z\", \"to\": \"1973-01-01T00:00:00.000Z\"}")
+                .exchange()
+                .expectBody()
+                .jsonPath("$[0].email").isEqualTo("updated@mail.com")
+                .jsonPath("$[0].address").isEqualTo("newAddress");
+    }
+
+    @Test
+    public void patchUserNotFoundTest() {
+        client.patch().uri("/users/100000/update-address?address=newAddress")
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    public void deleteTest() {
+        client.delete().uri("/users/100000")
+                .exchange()
+                .expectStatus().isOk();
+    }
+
+    @Test
+    public void findByDateRangeInvalidInputTest() {
+        client.method(HttpMethod.GET).uri("/users/date-range")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"from\": \"2027-12-10T18:00:00.000Z\", \"to\": \"1997-12-10T18:00:00.000Z\"}")
+                .exchange()
+                .expectStatus().is4xxClientError();
+    }
+}
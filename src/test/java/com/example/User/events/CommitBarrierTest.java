@@ -0,0 +1,61 @@
+package com.example.User.events;
+
+import com.example.User.entities.User;
+import com.example.User.repositories.UserRepository;
+import com.example.User.sharding.ShardTemplate;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+@ExtendWith(MockitoExtension.class)
+public class CommitBarrierTest {
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private CommitBarrier commitBarrier;
+
+    @BeforeEach
+    void setUp() {
+        commitBarrier = new CommitBarrier(userRepository, new ShardTemplate(2, 2), transactionManager);
+        TransactionSynchronizationManager.initSynchronization();
+    }
+
+    @AfterEach
+    void tearDown() {
+        TransactionSynchronizationManager.clearSynchronization();
+    }
+
+    @Test
+    public void snapshotWaitsForCommittingTransactionTest() throws Exception {
+        commitBarrier.onUserChanged(UserChangedEvent.created(User.builder().id(1).build()));
+        commitBarrier.onUserChanged(UserChangedEvent.created(User.builder().id(2).build()));
+        assertEquals(1, TransactionSynchronizationManager.getSynchronizations().size());
+
+        TransactionSynchronizationUtils.triggerBeforeCommit(false);
+        CompletableFuture<List<Integer>> read = CompletableFuture.supplyAsync(() ->
+                commitBarrier.read(() -> { }, shard -> shard));
+        Thread.sleep(300);
+        assertFalse(read.isDone());
+
+        TransactionSynchronizationUtils.invokeAfterCompletion(
+                TransactionSynchronizationManager.getSynchronizations(), TransactionSynchronization.STATUS_COMMITTED);
+        assertEquals(List.of(0, 1), read.get(5, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.User.idempotency;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class IdempotencyFilterTest {
+    private IdempotencyFilter filter;
+    private final AtomicInteger executions = new AtomicInteger();
+    private volatile int status = 200;
+
+    private final FilterChain chain = (request, response) -> {
+        String body = new String(request.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+        ((HttpServletResponse) response).setStatus(status);
+        response.setContentType("application/json");
+        response.getWriter().write("\"" + body + executions.incrementAndGet() + "\"");
+    };
+
+    @BeforeEach
+    void setUp() {
+        filter = new IdempotencyFilter(new SimpleMeterRegistry(), Duration.ofMinutes(1), 100, Duration.ofSeconds(5), 16);
+    }
+
+    @Test
+    public void replaysCompletedResponseTest() throws Exception {
+        MockHttpServletResponse first = post("key-1", "a", chain);
+        MockHttpServletResponse retry = post("key-1", "a", chain);
+
+        assertEquals(1, executions.get());
+        assertEquals("\"a1\"", first.getContentAsString());
+        assertNull(first.getHeader(IdempotencyFilter.IDEMPOTENT_REPLAYED));
+        assertEquals(200, retry.getStatus());
+        assertEquals("\"a1\"", retry.getContentAsString());
+        assertEquals("application/json", retry.getContentType());
+        assertEquals("true", retry.getHeader(IdempotencyFilter.IDEMPOTENT_REPLAYED));
+
+        assertEquals("\"a2\"", post("key-2", "a", chain).getContentAsString());
+        assertEquals("\"a3\"", post(null, "a", chain).getContentAsString());
+    }
+
+    @Test
+    public void rejectsKeyReusedForDifferentRequestTest() throws Exception {
+        post("key-1", "a", chain);
+
+        assertEquals(422, post("key-1", "b", chain).getStatus());
+        assertEquals(1, executions.get());
+    }
+
+    @Test
+    public void rejectsBodyAboveLimitTest() throws Exception {
+        assertEquals(413, post("key-1", "a".repeat(17), chain).getStatus());
+        assertEquals(0, executions.get());
+        assertEquals(200, post("key-2", "a".repeat(16), chain).getStatus());
+        assertEquals(200, post(null, "a".repeat(17), chain).getStatus());
+    }
+
+    @Test
+    public void executesAgainAfterServerErrorTest() throws Exception {
+        status = 500;
+        post("key-1", "a", chain);
+        status = 200;
+        MockHttpServletResponse retry = post("key-1", "a", chain);
+
+        assertEquals(2, executions.get());
+        assertEquals("\"a2\"", retry.getContentAsString());
+        assertNull(retry.getHeader(IdempotencyFilter.IDEMPOTENT_REPLAYED));
+    }
+
+    @Test
+    public void collapsesInFlightDuplicatesTest() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        FilterChain slow = (request, response) -> {
+            started.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            chain.doFilter(request, response);
+        };
+
+        CompletableFuture<MockHttpServletResponse> first = CompletableFuture.supplyAsync(() -> postUnchecked("key-1", slow));
+        started.await(5, TimeUnit.SECONDS);
+        CompletableFuture<MockHttpServletResponse> duplicate = CompletableFuture.supplyAsync(() -> postUnchecked("key-1", slow));
+        Thread.sleep(100);
+        release.countDown();
+
+        assertEquals("\"a1\"", first.get(5, TimeUnit.SECONDS).getContentAsString());
+        assertEquals("\"a1\"", duplicate.get(5, TimeUnit.SECONDS).getContentAsString());
+        assertEquals("true", duplicate.get().getHeader(IdempotencyFilter.IDEMPOTENT_REPLAYED));
+        assertEquals(1, executions.get());
+    }
+
+    private MockHttpServletResponse postUnchecked(String key, FilterChain chain) {
+        try {
+            return post(key, "a", chain);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private MockHttpServletResponse post(String key, String body, FilterChain chain) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/users");
+        request.setServletPath("/users");
+        request.setContent(body.getBytes(StandardCharsets.UTF_8));
+        if(key != null) {
+            request.addHeader(IdempotencyFilter.IDEMPOTENCY_KEY, key);
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, chain);
+        return response;
+    }
+}
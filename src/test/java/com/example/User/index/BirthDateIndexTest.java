@@ -0,0 +1,109 @@
+package com.example.User.index;
+
+import com.example.User.entities.User;
+import com.example.User.events.UserChangedEvent;
+import com.example.User.events.UsersCreatedEvent;
+import com.example.User.repositories.UserRepository;
+import com.example.User.sharding.ShardTemplate;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ObjIntConsumer;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+
+@ExtendWith(MockitoExtension.class)
+public class BirthDateIndexTest {
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private BirthDateIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new BirthDateIndex(userRepository, new ShardTemplate(1, 1), transactionManager, true);
+        doAnswer(invocation -> {
+            ObjIntConsumer<Date> action = invocation.getArgument(0);
+            action.accept(new Date(10), 3);
+            action.accept(new Date(20), 1);
+            action.accept(new Date(20), 2);
+            action.accept(new Date(30), 4);
+            return null;
+        }).when(userRepository).forEachIdAndBirthDate(any());
+        index.load();
+    }
+
+    @Test
+    public void findIdsExcludesBoundsTest() {
+        assertTrue(index.isReady());
+        assertEquals(4, index.size());
+        assertArrayEquals(new int[]{1, 2}, index.findIds(new Date(10), new Date(30)));
+        assertArrayEquals(new int[]{3, 1, 2, 4}, index.findIds(new Date(0), new Date(31)));
+        assertArrayEquals(new int[0], index.findIds(new Date(20), new Date(20)));
+    }
+
+    @Test
+    public void userChangedEventsTest() {
+        index.onUserChanged(UserChangedEvent.created(User.builder().id(5).birthDate(new Date(15)).build()));
+        index.onUserChanged(UserChangedEvent.updated(3, Map.of("birthDate", new Date(25)), Map.of()));
+        index.onUserChanged(UserChangedEvent.updated(4, Map.of("address", "new address"), Map.of()));
+        index.onUserChanged(UserChangedEvent.deleted(User.builder().id(1).build()));
+
+        assertArrayEquals(new int[]{5, 2, 3, 4}, index.findIds(new Date(0), new Date(31)));
+    }
+
+    @Test
+    public void usersCreatedEventTest() {
+        index.onUsersCreated(new UsersCreatedEvent(List.of(
+                User.builder().id(7).birthDate(new Date(20)).build(),
+                User.builder().id(6).birthDate(new Date(5)).build(),
+                User.builder().id(8).build())));
+
+        assertArrayEquals(new int[]{6, 3, 1, 2, 7, 4}, index.findIds(new Date(0), new Date(31)));
+    }
+
+    @Test
+    public void replayedCreationOfLoadedUserIsNotDuplicatedTest() {
+        index.onUsersCreated(new UsersCreatedEvent(List.of(User.builder().id(2).birthDate(new Date(20)).build())));
+        index.onUserChanged(UserChangedEvent.created(User.builder().id(4).birthDate(new Date(30)).build()));
+
+        assertEquals(4, index.size());
+        assertArrayEquals(new int[]{3, 1, 2, 4}, index.findIds(new Date(0), new Date(31)));
+    }
+
+    @Test
+    public void keyByIdSurvivesGrowthAndRemovalTest() {
+        BirthDateIndex.KeyById keyById = new BirthDateIndex.KeyById(1);
+        for (int id = 1; id <= 1000; id++)
+            keyById.put(id, id * 10L);
+        for (int id = 1; id <= 1000; id += 2)
+            assertEquals(id * 10L, keyById.remove(id));
+
+        for (int id = 1; id <= 1000; id++)
+            assertEquals(id % 2 == 0 ? id * 10L : BirthDateIndex.KeyById.NONE, keyById.remove(id));
+    }
+
+    @Test
+    public void disabledIndexIsNotLoadedTest() {
+        BirthDateIndex disabled = new BirthDateIndex(userRepository, new ShardTemplate(1, 1), transactionManager, false);
+        disabled.load();
+
+        assertFalse(disabled.isReady());
+        assertEquals(0, disabled.size());
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.User.index;
+
+import com.example.User.entities.User;
+import com.example.User.events.CommitBarrier;
+import com.example.User.events.UserChangedEvent;
+import com.example.User.repositories.UserRepository;
+import com.example.User.sharding.ShardTemplate;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.function.Consumer;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class EmailFilterTest {
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private EmailFilter emailFilter;
+
+    @BeforeEach
+    void setUp() {
+        ShardTemplate shardTemplate = new ShardTemplate(1, 1);
+        emailFilter = new EmailFilter(userRepository, shardTemplate,
+                new CommitBarrier(userRepository, shardTemplate, transactionManager),
+                new SimpleMeterRegistry(), true, 1000, 0.01);
+        when(userRepository.count()).thenReturn(1L);
+        doAnswer(invocation -> {
+            Consumer<String> action = invocation.getArgument(0);
+            action.accept("Taken@Mail.com");
+            return null;
+        }).when(userRepository).forEachEmail(any());
+        emailFilter.load();
+    }
+
+    @Test
+    public void definiteNegativeSkipsDatabaseTest() {
+        assertFalse(emailFilter.exists("free@mail.com"));
+
+        verify(userRepository, never()).existsByEmail(anyString());
+    }
+
+    @Test
+    public void possiblePositiveQueriesDatabaseTest() {
+        when(userRepository.existsByEmail("taken@mail.com")).thenReturn(true);
+
+        assertTrue(emailFilter.exists("taken@mail.com"));
+    }
+
+    @Test
+    public void deletedEmailIsRemovedTest() {
+        emailFilter.onUserChanged(UserChangedEvent.created(User.builder().id(2).email("new@mail.com").build()));
+        when(userRepository.existsByEmail("new@mail.com")).thenReturn(true);
+        assertTrue(emailFilter.exists("new@mail.com"));
+
+        emailFilter.onUserChanged(UserChangedEvent.deleted(User.builder().id(2).email("new@mail.com").build()));
+
+        assertFalse(emailFilter.exists("NEW@mail.com"));
+    }
+
+    @Test
+    public void rebuildCountsChangesOnceTest() {
+        // committed before the snapshot, so already scanned
+        when(userRepository.ping()).thenAnswer(invocation -> {
+            emailFilter.onUserChanged(UserChangedEvent.created(User.builder().id(2).email("new@mail.com").build()));
+            return 1;
+        });
+        doAnswer(invocation -> {
+            Consumer<String> action = invocation.getArgument(0);
+            action.accept("Taken@Mail.com");
+            action.accept("new@mail.com");
+            return null;
+        }).when(userRepository).forEachEmail(any());
+        emailFilter.rebuild();
+
+        emailFilter.onUserChanged(UserChangedEvent.deleted(User.builder().id(2).email("new@mail.com").build()));
+
+        assertFalse(emailFilter.exists("new@mail.com"));
+        verify(userRepository, never()).existsByEmail(anyString());
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.User.index;
+
+import com.example.User.entities.User;
+import com.example.User.events.UserChangedEvent;
+import com.example.User.repositories.UserRepository;
+import com.example.User.sharding.ShardTemplate;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.Map;
+import java.util.function.Consumer;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+
+@ExtendWith(MockitoExtension.class)
+public class UserSearchIndexTest {
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private UserSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new UserSearchIndex(userRepository, new ShardTemplate(1, 1), transactionManager, new SimpleMeterRegistry(), true, 100);
+        doAnswer(invocation -> {
+            Consumer<User> action = invocation.getArgument(0);
+            action.accept(user(1, "Smithson", "Anna", "anna@mail.com"));
+            action.accept(user(2, "Smith", "John", "john@mail.com"));
+            action.accept(user(3, "Goldsmith", "Jo", "jo@mail.com"));
+            return null;
+        }).when(userRepository).forEachIdNamesAndEmail(any());
+        index.load();
+    }
+
+    @Test
+    public void ranksExactThenPrefixThenSubstringTest() {
+        assertArrayEquals(new int[] { 2, 1, 3 }, index.search("SMITH", 10));
+        assertArrayEquals(new int[] { 2, 1 }, index.search("smith", 2));
+        assertArrayEquals(new int[] { 3, 2 }, index.search("jo", 10));
+        assertArrayEquals(new int[] { 1 }, index.search("a", 10));
+        assertArrayEquals(new int[0], index.search("mi", 10));
+    }
+
+    @Test
+    public void updatesFromEventsTest() {
+        index.onUserChanged(UserChangedEvent.updated(2, Map.of("lastName", "Jones"), Map.of()));
+        index.onUserChanged(UserChangedEvent.deleted(user(1, "Smithson", "Anna", "anna@mail.com")));
+
+        assertArrayEquals(new int[] { 3 }, index.search("smith", 10));
+        assertArrayEquals(new int[] { 2 }, index.search("jones", 10));
+        assertArrayEquals(new int[] { 2 }, index.search("john@", 10));
+        assertEquals(2, index.size());
+        assertTrue(index.memoryBytes() > 0);
+    }
+
+    private static User user(int id, String lastName, String firstName, String email) {
+        return User.builder().id(id).lastName(lastName).firstName(firstName).email(email).build();
+    }
+}
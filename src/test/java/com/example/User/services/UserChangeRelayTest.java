@@ -0,0 +1,195 @@
+package com.example.User.services;
+
+import com.example.User.dto.UserChangeDTO;
+import com.example.User.entities.UserChange;
+import com.example.User.entities.UserChangeHead;
+import com.example.User.repositories.UserChangeHeadRepository;
+import com.example.User.repositories.UserChangeRepository;
+import com.example.User.sharding.ShardContext;
+import com.example.User.sharding.ShardTemplate;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class UserChangeRelayTest {
+    @Mock
+    private UserChangeRepository changeRepository;
+
+    @Mock
+    private UserChangeHeadRepository headRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private final UserChangeHead head = new UserChangeHead(UserChangeHead.ID, 1);
+    private final List<Runnable> sends = new ArrayList<>();
+    private UserChangeRelay relay;
+
+    @BeforeEach
+    void setUp() {
+        relay = new UserChangeRelay(changeRepository, headRepository, new ShardTemplate(1, 1), transactionManager, sends::add,
+                10, 1, 2, Duration.ofDays(7));
+        when(changeRepository.findMaxPosition()).thenReturn(0L);
+        when(headRepository.lockHead()).thenReturn(Optional.of(head));
+        relay.start();
+    }
+
+    @Test
+    public void pollFansOutToSubscribersTest() throws Exception {
+        List<Long> first = new ArrayList<>();
+        List<Long> second = new ArrayList<>();
+        relay.subscribe(null, (eventId, change) -> first.add(change.getId()));
+        relay.subscribe(null, (eventId, change) -> second.add(change.getId()));
+        when(changeRepository.findBatch(eq(0L), any())).thenReturn(List.of(change(1), change(2)));
+
+        relay.poll();
+        assertEquals(List.of(), first);
+        sends.forEach(Runnable::run);
+
+        assertEquals(List.of(1L, 2L), first);
+        assertEquals(List.of(1L, 2L), second);
+    }
+
+    @Test
+    public void sequencesCommittedChangesTest() {
+        UserChange unsequenced = UserChange.builder().id(50).userId(1).type("UPDATED").build();
+        when(changeRepository.findUnsequenced(any())).thenReturn(List.of(unsequenced));
+
+        relay.poll();
+
+        assertEquals(Long.valueOf(1), unsequenced.getPosition());
+        assertEquals(2, head.getNextPosition());
+    }
+
+    @Test
+    public void resumeFromOutboxAndBufferTest() throws Exception {
+        when(changeRepository.findBatch(eq(0L), any())).thenReturn(List.of(change(1), change(2), change(3)));
+        relay.poll();
+
+        List<Long> received = new ArrayList<>();
+        relay.subscribe("0", (eventId, change) -> received.add(change.getId()));
+        assertEquals(List.of(), received);
+        sends.forEach(Runnable::run);
+
+        assertEquals(List.of(1L, 2L, 3L), received);
+        assertEquals(1, relay.subscribers());
+    }
+
+    @Test
+    public void catchUpIsSentPageByPageTest() throws Exception {
+        relay = new UserChangeRelay(changeRepository, headRepository, new ShardTemplate(1, 1), transactionManager, sends::add,
+                2, 1, 2, Duration.ofDays(7));
+        relay.start();
+        when(changeRepository.findBatch(eq(0L), any())).thenReturn(List.of(change(1), change(2)));
+        when(changeRepository.findBatch(eq(2L), any())).thenReturn(List.of(change(3), change(4)));
+        when(changeRepository.findBatch(eq(4L), any())).thenReturn(List.of(change(5)));
+        relay.poll();
+
+        List<Long> received = new ArrayList<>();
+        AtomicBoolean dropped = new AtomicBoolean();
+        relay.subscribe("0", new UserChangeRelay.Listener() {
+            @Override
+            public void onChange(String eventId, UserChangeDTO change) {
+                received.add(change.getId());
+            }
+
+            @Override
+            public void onDropped() {
+                dropped.set(true);
+            }
+        });
+        sends.forEach(Runnable::run);
+
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L), received);
+        assertFalse(dropped.get());
+        assertEquals(1, relay.subscribers());
+    }
+
+    @Test
+    public void failingSubscriberIsDroppedTest() throws Exception {
+        relay.subscribe(null, (eventId, change) -> {
+            throw new IOException("Broken pipe");
+        });
+        sends.forEach(Runnable::run);
+        sends.clear();
+        when(changeRepository.findBatch(eq(0L), any())).thenReturn(List.of(change(1)));
+
+        relay.poll();
+        sends.forEach(Runnable::run);
+
+        assertEquals(0, relay.subscribers());
+    }
+
+    @Test
+    public void laggingSubscriberIsDroppedTest() throws Exception {
+        List<Long> received = new ArrayList<>();
+        AtomicBoolean dropped = new AtomicBoolean();
+        relay.subscribe(null, new UserChangeRelay.Listener() {
+            @Override
+            public void onChange(String eventId, UserChangeDTO change) {
+                received.add(change.getId());
+            }
+
+            @Override
+            public void onDropped() {
+                dropped.set(true);
+            }
+        });
+        sends.forEach(Runnable::run);
+        sends.clear();
+        when(changeRepository.findBatch(eq(0L), any())).thenReturn(List.of(change(1), change(2)));
+        when(changeRepository.findBatch(eq(2L), any())).thenReturn(List.of(change(3)));
+
+        relay.poll();
+        relay.poll();
+        sends.forEach(Runnable::run);
+
+        assertEquals(0, relay.subscribers());
+        assertEquals(List.of(), received);
+        assertTrue(dropped.get());
+    }
+
+    @Test
+    public void shardedFeedResumesPerShardTest() throws Exception {
+        ShardTemplate shardTemplate = new ShardTemplate(2, 2);
+        relay = new UserChangeRelay(changeRepository, headRepository, shardTemplate, transactionManager, Runnable::run,
+                10, 1, 2, Duration.ofDays(7));
+        relay.start();
+        when(changeRepository.findBatch(eq(0L), any())).thenAnswer(invocation ->
+                List.of(change(ShardContext.current() + 1)));
+        List<String> live = new ArrayList<>();
+        relay.subscribe(null, (eventId, change) -> live.add(eventId));
+
+        relay.poll();
+        List<String> resumed = new ArrayList<>();
+        relay.subscribe("0.0", (eventId, change) -> resumed.add(eventId));
+        shardTemplate.shutdown();
+
+        assertEquals(List.of("1.0", "1.2"), live);
+        assertEquals(List.of("1.0", "1.2"), resumed);
+    }
+
+    private static UserChange change(long position) {
+        return UserChange.builder().id(position * 7).position(position).userId(1).type("UPDATED").changes("{}")
+                .createdAt(new Date()).build();
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.User.services;
+
+import com.example.User.util.UserRecordReader.Format;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class UserExportJobTest {
+    @Mock
+    private UserExportService exportService;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void exportSkipsExistingPartsTest() throws Exception {
+        UserExportJob job = new UserExportJob(exportService, directory, Format.NDJSON, 10);
+        when(exportService.findMaxId()).thenReturn(25);
+        doAnswer(invocation -> {
+            OutputStream out = invocation.getArgument(3);
+            out.write(("part " + invocation.getArgument(1) + "\n").getBytes(StandardCharsets.UTF_8));
+            return 1L;
+        }).when(exportService).export(eq(Format.NDJSON), anyInt(), anyInt(), any());
+        Files.createFile(directory.resolve("users-0000000011-0000000020.ndjson.gz"));
+
+        List<Path> parts = job.export(directory);
+
+        assertEquals(List.of(directory.resolve("users-0000000001-0000000010.ndjson.gz"),
+                directory.resolve("users-0000000021-0000000030.ndjson.gz")), parts);
+        verify(exportService, never()).export(any(), eq(10), anyInt(), any());
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(parts.get(1)))) {
+            assertEquals("part 20\n", new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+        assertEquals(3, Files.list(directory).count());
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.User.services;
+
+import com.example.User.entities.User;
+import com.example.User.repositories.UserRepository;
+import com.example.User.sharding.ShardContext;
+import com.example.User.sharding.ShardTemplate;
+import com.example.User.util.UserRecordReader;
+import com.example.User.util.UserRecordReader.Format;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class UserExportServiceTest {
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private final ObjectMapper objectMapper =
+            new ObjectMapper().disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+
+    private UserExportService exportService;
+
+    private final User user = User.builder()
+            .id(5)
+            .email("mail@mail.com")
+            .lastName("Last, \"Jr\"")
+            .firstName("First")
+            .birthDate(new Date(631152000000L))
+            .address("multi\nline")
+            .build();
+
+    @BeforeEach
+    void setUp() {
+        exportService = new UserExportService(userRepository, new ShardTemplate(1, 1), transactionManager,
+                objectMapper, 2);
+    }
+
+    private void stubUsers() {
+        doAnswer(invocation -> {
+            Consumer<User> action = invocation.getArgument(2);
+            action.accept(user);
+            return null;
+        }).when(userRepository).forEachByIdRange(anyInt(), anyInt(), any());
+    }
+
+    @Test
+    public void exportCsvRoundTripTest() throws Exception {
+        stubUsers();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        assertEquals(1, exportService.export(Format.CSV, 0, 10, out));
+
+        String csv = out.toString(StandardCharsets.UTF_8);
+        assertEquals("id,email,lastName,firstName,birthDate,address,phoneNumber\n" +
+                "5,mail@mail.com,\"Last, \"\"Jr\"\"\",First,631152000000,\"multi\nline\",\n", csv);
+        verify(userRepository).forEachByIdRange(eq(0), eq(10), any());
+        assertReadsBack(csv, Format.CSV);
+    }
+
+    @Test
+    public void exportNdjsonRoundTripTest() throws Exception {
+        stubUsers();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        assertEquals(1, exportService.export(Format.NDJSON, 0, 10, out));
+
+        assertReadsBack(out.toString(StandardCharsets.UTF_8), Format.NDJSON);
+    }
+
+    @Test
+    public void exportInvalidRangeTest() {
+        assertThrows(IllegalArgumentException.class,
+                () -> exportService.export(Format.NDJSON, 10, 0, new ByteArrayOutputStream()));
+        verify(userRepository, never()).forEachByIdRange(anyInt(), anyInt(), any());
+    }
+
+    @Test
+    public void shardsAreMergedByIdTest() throws Exception {
+        ShardTemplate shardTemplate = new ShardTemplate(2, 2);
+        exportService = new UserExportService(userRepository, shardTemplate, transactionManager, objectMapper, 2);
+        when(userRepository.findPageByIdRange(anyInt(), eq(10), any())).thenAnswer(invocation -> {
+            int shard = ShardContext.current();
+            int afterId = invocation.getArgument(0);
+            Limit limit = invocation.getArgument(2);
+            return IntStream.rangeClosed(1, 5)
+                    .filter(id -> shardTemplate.shardOf(id) == shard && id > afterId)
+                    .limit(limit.max())
+                    .mapToObj(id -> User.builder().id(id).email(id + "@mail.com").build())
+                    .toList();
+        });
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        try {
+            assertEquals(5, exportService.export(Format.NDJSON, 0, 10, out));
+        } finally {
+            shardTemplate.shutdown();
+        }
+
+        UserRecordReader reader = new UserRecordReader(new StringReader(out.toString(StandardCharsets.UTF_8)),
+                Format.NDJSON, objectMapper, 65536);
+        List<String> emails = new ArrayList<>();
+        UserRecordReader.Record record;
+        while((record = reader.next()) != null)
+            emails.add(record.user().getEmail());
+        assertEquals(List.of("1@mail.com", "2@mail.com", "3@mail.com", "4@mail.com", "5@mail.com"), emails);
+    }
+
+    private void assertReadsBack(String text, Format format) throws Exception {
+        UserRecordReader reader = new UserRecordReader(new StringReader(text), format, objectMapper, 65536);
+        User read = reader.next().user();
+        assertEquals(user.getLastName(), read.getLastName());
+        assertEquals(user.getAddress(), read.getAddress());
+        assertEquals(user.getBirthDate(), read.getBirthDate());
+        assertNull(reader.next());
+    }
+}
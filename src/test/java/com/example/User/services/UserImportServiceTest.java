@@ -0,0 +1,194 @@
+package com.example.User.services;
+
+import com.example.User.dto.ImportReportDTO;
+import com.example.User.entities.User;
+import com.example.User.sharding.ShardContext;
+import com.example.User.sharding.ShardTemplate;
+import com.example.User.util.UserRecordReader.Format;
+import com.example.User.util.UserValidator;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+public class UserImportServiceTest {
+    @Mock
+    private UserService userService;
+
+    private UserImportService importService;
+
+    @BeforeEach
+    void setUp() {
+        UserValidator userValidator = new UserValidator(new MockEnvironment().withProperty("age", "18"));
+        ObjectMapper objectMapper = new ObjectMapper().disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        importService = new UserImportService(userService, new ShardTemplate(1, 1), userValidator,
+                Validation.buildDefaultValidatorFactory().getValidator(), objectMapper, 2, 2, 4, 10, 100);
+    }
+
+    @Test
+    public void importCsvTest() {
+        String csv = """
+                email,lastName,firstName,birthDate,address
+                a@mail.com,Last,First,1990-01-01,"Street 1, ""Flat"" 2"
+                b@mail.com,,First,1990-01-01,
+                c@mail.com,Last,First,1991-01-01,"multi
+                line"
+                d@mail.com,Last,First,1992-01-01
+                e@mail.com,Last,First,1993-01-01,
+                """;
+
+        ImportReportDTO report = importService.run(stream(csv), Format.CSV, "test").toReport();
+
+        assertEquals("COMPLETED", report.getStatus());
+        assertEquals(5, report.getRead());
+        assertEquals(3, report.getWritten());
+        assertEquals(2, report.getRejected());
+        assertTrue(report.getRejects().contains(new ImportReportDTO.RejectedRow(3, "lastName - must not be empty;")));
+        assertTrue(report.getRejects().contains(new ImportReportDTO.RejectedRow(6,
+                "Malformed record - expected 5 columns but got 4;")));
+
+        ArgumentCaptor<List<User>> batches = ArgumentCaptor.forClass(List.class);
+        verify(userService, times(2)).saveAll(batches.capture());
+        List<String> addresses = batches.getAllValues().stream().flatMap(List::stream).map(User::getAddress).toList();
+        assertTrue(addresses.contains("Street 1, \"Flat\" 2"));
+        assertTrue(addresses.contains("multi\nline"));
+    }
+
+    @Test
+    public void importNdjsonTest() {
+        String ndjson = """
+                {"id":7,"email":"a@mail.com","lastName":"Last","firstName":"First","birthDate":"1990-01-01"}
+
+                {"email":"b@mail.com","lastName":"Last","firstName":"First","birthDate":"2020-01-01"}
+                {"email":
+                """;
+
+        ImportReportDTO report = importService.run(stream(ndjson), Format.NDJSON, "test").toReport();
+
+        assertEquals("COMPLETED", report.getStatus());
+        assertEquals(3, report.getRead());
+        assertEquals(1, report.getWritten());
+        assertEquals(2, report.getRejected());
+
+        ArgumentCaptor<List<User>> batch = ArgumentCaptor.forClass(List.class);
+        verify(userService).saveAll(batch.capture());
+        assertEquals(0, batch.getValue().get(0).getId());
+    }
+
+    @Test
+    public void rejectsRecordsLongerThanLimitTest() {
+        String csv = "email,lastName,firstName,birthDate,address\n"
+                + "a@mail.com,Last,First,1990-01-01," + "x".repeat(200) + "\n"
+                + "b@mail.com,Last,First,1990-01-01,\"never closed\n"
+                + "\n".repeat(200)
+                + "c@mail.com,Last,First,1990-01-01,\n";
+
+        ImportReportDTO report = importService.run(stream(csv), Format.CSV, "test").toReport();
+
+        assertEquals("COMPLETED", report.getStatus());
+        assertEquals(3, report.getRead());
+        assertEquals(1, report.getWritten());
+        assertTrue(report.getRejects().contains(new ImportReportDTO.RejectedRow(2,
+                "Malformed record - longer than 100 characters;")));
+        assertTrue(report.getRejects().contains(new ImportReportDTO.RejectedRow(3,
+                "Malformed record - longer than 100 characters;")));
+    }
+
+    @Test
+    public void duplicateEmailWithinFileIsRejectedTest() {
+        Set<String> emails = ConcurrentHashMap.newKeySet();
+        doAnswer(invocation -> {
+            List<User> users = invocation.getArgument(0);
+            List<String> batch = users.stream().map(User::getEmail).toList();
+            if(new HashSet<>(batch).size() < batch.size() || batch.stream().anyMatch(emails::contains)) {
+                throw new DataIntegrityViolationException("Unique index or primary key violation: \"UX_USER_EMAIL\"");
+            }
+            emails.addAll(batch);
+            return null;
+        }).when(userService).saveAll(any());
+        StringBuilder ndjson = new StringBuilder();
+        for(String email: List.of("a", "dup", "b", "dup", "c"))
+            ndjson.append("{\"email\":\"").append(email)
+                    .append("@mail.com\",\"lastName\":\"Last\",\"firstName\":\"First\",\"birthDate\":\"1990-01-01\"}\n");
+
+        ImportReportDTO report = importService.run(stream(ndjson.toString()), Format.NDJSON, "test").toReport();
+
+        assertEquals("COMPLETED", report.getStatus());
+        assertEquals(4, report.getWritten());
+        assertEquals(1, report.getRejected());
+        assertEquals("email - User with this email already exists;", report.getRejects().get(0).message());
+        assertEquals(Set.of("a@mail.com", "dup@mail.com", "b@mail.com", "c@mail.com"), emails);
+    }
+
+    @Test
+    public void importFailsWhenWriteFailsTest() {
+        doThrow(new IllegalStateException("database down")).when(userService).saveAll(any());
+        StringBuilder ndjson = new StringBuilder();
+        for(int i = 0; i < 100; i++)
+            ndjson.append("{\"lastName\":\"Last\",\"firstName\":\"First\",\"birthDate\":\"1990-01-01\"}\n");
+
+        ImportJob job = importService.run(stream(ndjson.toString()), Format.NDJSON, "test");
+
+        assertEquals(ImportJob.Status.FAILED, job.getStatus());
+        assertEquals("IllegalStateException: database down", job.toReport().getFailure());
+        assertEquals(job, importService.findById(job.getId()));
+    }
+
+    @Test
+    public void sameEmailsMeetOnOneShardTest() {
+        ShardTemplate shardTemplate = new ShardTemplate(2, 2);
+        importService = new UserImportService(userService, shardTemplate,
+                new UserValidator(new MockEnvironment().withProperty("age", "18")),
+                Validation.buildDefaultValidatorFactory().getValidator(),
+                new ObjectMapper().disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES), 2, 2, 4, 10, 100);
+        Map<String, Set<Integer>> shardsByEmail = new ConcurrentHashMap<>();
+        doAnswer(invocation -> {
+            List<User> users = invocation.getArgument(0);
+            users.forEach(user -> shardsByEmail.computeIfAbsent(user.getEmail().toLowerCase(), email -> new HashSet<>())
+                    .add(ShardContext.current()));
+            return null;
+        }).when(userService).saveAll(any());
+        StringBuilder ndjson = new StringBuilder();
+        for(int i = 0; i < 20; i++)
+            ndjson.append("{\"email\":\"").append(i % 2 == 0 ? "user" : "USER").append(i / 2 % 5)
+                    .append("@mail.com\",\"lastName\":\"Last\",\"firstName\":\"First\",\"birthDate\":\"1990-01-01\"}\n");
+
+        try {
+            assertEquals(20, importService.run(stream(ndjson.toString()), Format.NDJSON, "test").toReport().getWritten());
+        } finally {
+            shardTemplate.shutdown();
+        }
+
+        assertEquals(5, shardsByEmail.size());
+        shardsByEmail.values().forEach(shards -> assertEquals(1, shards.size()));
+    }
+
+    private static InputStream stream(String text) {
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+    }
+}
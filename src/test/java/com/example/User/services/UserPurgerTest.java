@@ -0,0 +1,64 @@
+package com.example.User.services;
+
+import com.example.User.entities.User;
+import com.example.User.exceptions.UserNotFoundException;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:purger-test;DB_CLOSE_DELAY=-1;NON_KEYWORDS=USER;CASE_INSENSITIVE_IDENTIFIERS=TRUE",
+        "users.soft-delete.enabled=true",
+        "users.soft-delete.retention=PT0S",
+        "users.soft-delete.purge-interval=PT1H",
+        "users.soft-delete.purge-batch-size=2"
+})
+public class UserPurgerTest {
+    private static final Date FROM = new Date(-700_000_000_000L);
+    private static final Date TO = new Date(-500_000_000_000L);
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserPurger userPurger;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    public void softDeletesThenPurgesTest() {
+        for(int i = 0; i < 5; i++)
+            userService.save(User.builder()
+                    .email("purge" + i + "@mail.com")
+                    .lastName("Last")
+                    .firstName("First")
+                    .birthDate(new Date(-600_000_000_000L + i * 86_400_000L))
+                    .build());
+        List<User> users = userService.findByDateRange(FROM, TO);
+        int first = users.get(0).getId();
+
+        userService.delete(first);
+        assertThrows(UserNotFoundException.class, () -> userService.findById(first));
+        assertThrows(UserNotFoundException.class, () -> userService.updateAddress(first, "Gone", null));
+        assertEquals(4, userService.findByDateRange(FROM, TO).size());
+        assertEquals(1, userService.deleteAll(List.of(first, users.get(1).getId())));
+        assertEquals(3, userService.deleteByDateRange(FROM, TO));
+        assertEquals(0, userService.findByDateRange(FROM, TO).size());
+        assertEquals(5, rows());
+
+        userPurger.purge();
+        assertEquals(0, rows());
+    }
+
+    private int rows() {
+        return jdbcTemplate.queryForObject("select count(*) from User where email like 'purge%'", Integer.class);
+    }
+}
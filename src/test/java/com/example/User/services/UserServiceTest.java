@@ -1,20 +1,33 @@
 package com.example.User.services;
 
+import com.example.User.dto.UserPageDTO;
 import com.example.User.entities.User;
+import com.example.User.events.UserChangedEvent;
 import com.example.User.exceptions.UserNotFoundException;
+import com.example.User.exceptions.UserPreconditionFailedException;
+import com.example.User.index.BirthDateIndex;
+import com.example.User.index.UserSearchIndex;
 import com.example.User.repositories.UserRepository;
+import com.example.User.sharding.ShardTemplate;
+import com.example.User.util.PageToken;
 import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+import org.springframework.transaction.PlatformTransactionManager;
 
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertThrows;
 import static org.mockito.Mockito.*;
 
@@ -23,7 +36,18 @@ public class UserServiceTest {
     @Mock
     private UserRepository userRepository;
 
-    @InjectMocks
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private BirthDateIndex birthDateIndex;
+
+    @Mock
+    private UserSearchIndex searchIndex;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
     UserService userService;
 
     private static User user;
@@ -38,6 +62,26 @@ public class UserServiceTest {
                 .build();
     }
 
+    @BeforeEach
+    void setUp() {
+        userService = new UserService(userRepository, eventPublisher, birthDateIndex, searchIndex,
+                new ShardTemplate(1, 1), transactionManager, 2, 2, false);
+    }
+
+    @Test
+    public void findByIdTest() {
+        when(userRepository.findById(1)).thenReturn(Optional.of(user));
+
+        assertEquals(user, userService.findById(1));
+    }
+
+    @Test
+    public void findByIdUserNotFoundTest() {
+        when(userRepository.findById(1)).thenReturn(Optional.empty());
+
+        assertThrows(UserNotFoundException.class, () -> userService.findById(1));
+    }
+
     @Test
     public void saveTest() {
         when(userRepository.save(user)).thenReturn(user);
@@ -45,80 +89,273 @@ public class UserServiceTest {
         verify(userRepository).save(user);
     }
 
+    @Test
+    public void saveAllTest() {
+        List<User> users = List.of(user);
+        userService.saveAll(users);
+        verify(userRepository).batchInsert(users);
+    }
+
     @Test
     public void updateTest() {
-        when(userRepository.save(user)).thenReturn(user);
-        userService.update(1, user);
-        verify(userRepository).save(user);
+        when(userRepository.updateFields(eq(1), any(), isNull())).thenReturn(1);
+
+        userService.update(1, user, null);
+
+        verify(userRepository).updateFields(eq(1), argThat(changes -> "Last".equals(changes.get("lastName"))
+                && changes.containsKey("address")), isNull());
+        verify(userRepository, never()).save(any());
+    }
+
+    @Test
+    public void patchBirthDateReadsPreviousTest() {
+        Date previous = new Date(1990, 1, 1);
+        Map<String, Object> changes = Map.of("birthDate", new Date(1991, 1, 1));
+        when(userRepository.findBirthDateById(1)).thenReturn(Optional.of(previous));
+        when(userRepository.updateFields(1, changes, null)).thenReturn(1);
+
+        userService.patch(1, changes, null);
+
+        verify(eventPublisher).publishEvent(argThat((UserChangedEvent event) ->
+                event.getPrevious().equals(Map.of("birthDate", previous))));
+    }
+
+    @Test
+    public void updateVersionMismatchTest() {
+        when(userRepository.updateFields(eq(1), any(), eq(3))).thenReturn(0);
+        when(userRepository.findVersionById(1)).thenReturn(Optional.of(4));
+
+        assertThrows(UserPreconditionFailedException.class, () -> userService.update(1, user, 3));
+
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+
+    @Test
+    public void updateUserNotFoundTest() {
+        when(userRepository.updateFields(eq(1), any(), eq(3))).thenReturn(0);
+        when(userRepository.findVersionById(1)).thenReturn(Optional.empty());
+
+        assertThrows(UserNotFoundException.class, () -> userService.update(1, user, 3));
     }
 
     @Test
     public void deleteTest() {
-        doNothing().when(userRepository).deleteById(1);
+        when(userRepository.findAllByIdForUpdate(List.of(1))).thenReturn(List.of(user));
+        when(userRepository.deleteAllByIdIn(List.of(user.getId()))).thenReturn(1);
+
+        userService.delete(1);
+
+        verify(userRepository, never()).softDeleteAllByIdIn(any(), any());
+        verify(eventPublisher).publishEvent(argThat((UserChangedEvent event) ->
+                event.getType() == UserChangedEvent.Type.DELETED && event.getPrevious().get("birthDate") != null));
+    }
+
+    @Test
+    public void deleteMissingUserTest() {
+        when(userRepository.findAllByIdForUpdate(List.of(1))).thenReturn(List.of());
+
+        userService.delete(1);
+
+        verify(userRepository, never()).deleteAllByIdIn(any());
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+
+    @Test
+    public void softDeleteTest() {
+        userService = new UserService(userRepository, eventPublisher, birthDateIndex, searchIndex,
+                new ShardTemplate(1, 1), transactionManager, 2, 2, true);
+        when(userRepository.findAllByIdForUpdate(List.of(1))).thenReturn(List.of(user));
+        when(userRepository.softDeleteAllByIdIn(eq(List.of(user.getId())), any(Date.class))).thenReturn(1);
+
         userService.delete(1);
-        verify(userRepository).deleteById(1);
+
+        verify(userRepository, never()).deleteAllByIdIn(any());
+        verify(eventPublisher).publishEvent(any(UserChangedEvent.class));
+    }
+
+    @Test
+    public void deleteAllInChunksTest() {
+        when(userRepository.findAllByIdForUpdate(List.of(1, 2))).thenReturn(List.of(withId(1), withId(2)));
+        when(userRepository.findAllByIdForUpdate(List.of(3))).thenReturn(List.of());
+        when(userRepository.deleteAllByIdIn(List.of(1, 2))).thenReturn(2);
+
+        assertEquals(2, userService.deleteAll(List.of(1, 2, 2, 3)));
+        verify(eventPublisher, times(2)).publishEvent(any(UserChangedEvent.class));
+    }
+
+    @Test
+    public void deleteByDateRangeTest() {
+        Date from = new Date(0);
+        Date to = new Date(2000L * 365 * 24 * 3600 * 1000);
+        User moved = withId(2);
+        moved.setBirthDate(new Date(to.getTime() + 1));
+        when(userRepository.findIdsByBirthDateRange(from, to, 0, Limit.of(2))).thenReturn(List.of(1, 2));
+        when(userRepository.findIdsByBirthDateRange(from, to, 2, Limit.of(2))).thenReturn(List.of(3));
+        when(userRepository.findAllByIdForUpdate(List.of(1, 2))).thenReturn(List.of(withId(1), moved));
+        when(userRepository.findAllByIdForUpdate(List.of(3))).thenReturn(List.of(withId(3)));
+        when(userRepository.deleteAllByIdIn(List.of(1))).thenReturn(1);
+        when(userRepository.deleteAllByIdIn(List.of(3))).thenReturn(1);
+
+        assertEquals(2, userService.deleteByDateRange(from, to));
+        verify(userRepository, never()).deleteAllByIdIn(List.of(1, 2));
     }
 
     @Test
     public void updateAddressTest() {
-        when(userRepository.findById(1)).thenReturn(Optional.of(user));
-        when(userRepository.save(user)).thenReturn(user);
+        when(userRepository.updateFields(1, Map.of("address", "new address"), null)).thenReturn(1);
 
-        userService.updateAddress(1, "new address");
+        userService.updateAddress(1, "new address", null);
 
-        verify(userRepository).findById(1);
-        verify(userRepository).save(user);
+        verify(userRepository).updateFields(1, Map.of("address", "new address"), null);
+        verify(userRepository, never()).findById(1);
     }
 
     @Test
     public void updateAddressUserNotFoundTest() {
-        when(userRepository.findById(1)).thenThrow(new UserNotFoundException("User not found"));
+        when(userRepository.updateFields(1, Map.of("address", "new address"), null)).thenReturn(0);
 
-        assertThrows(UserNotFoundException.class, () -> userService.updateAddress(1, "new address"));
+        assertThrows(UserNotFoundException.class, () -> userService.updateAddress(1, "new address", null));
 
-        verify(userRepository).findById(1);
+        verify(userRepository).updateFields(1, Map.of("address", "new address"), null);
     }
 
     @Test
     public void updatePhoneTest() {
-        when(userRepository.findById(1)).thenReturn(Optional.of(user));
-        when(userRepository.save(user)).thenReturn(user);
+        when(userRepository.updateFields(1, Map.of("phoneNumber", "+38093763462"), null)).thenReturn(1);
 
-        userService.updateAddress(1, "+38093763462");
+        userService.updatePhone(1, "+38093763462", null);
 
-        verify(userRepository).findById(1);
-        verify(userRepository).save(user);
+        verify(userRepository).updateFields(1, Map.of("phoneNumber", "+38093763462"), null);
+        verify(userRepository, never()).findById(1);
     }
 
     @Test
     public void updatePhoneUserNotFoundTest() {
-        when(userRepository.findById(1)).thenThrow(new UserNotFoundException("User not found"));
+        when(userRepository.updateFields(1, Map.of("phoneNumber", "+38093763462"), null)).thenReturn(0);
+
+        assertThrows(UserNotFoundException.class, () -> userService.updatePhone(1, "+38093763462", null));
+
+        verify(userRepository).updateFields(1, Map.of("phoneNumber", "+38093763462"), null);
+    }
 
-        assertThrows(UserNotFoundException.class, () -> userService.updateAddress(1, "new address"));
+    @Test
+    public void patchTest() {
+        Map<String, Object> changes = Map.of("lastName", "New", "address", "new address");
+        when(userRepository.updateFields(1, changes, 2)).thenReturn(1);
+
+        userService.patch(1, changes, 2);
+
+        verify(userRepository).updateFields(1, changes, 2);
+    }
+
+    @Test
+    public void emptyPatchVersionMismatchTest() {
+        when(userRepository.findVersionById(1)).thenReturn(Optional.of(4));
+
+        assertThrows(UserPreconditionFailedException.class, () -> userService.patch(1, Map.of(), 3));
 
-        verify(userRepository).findById(1);
+        verify(userRepository, never()).updateFields(anyInt(), any(), any());
+    }
+
+    @Test
+    public void patchNotPatchableFieldTest() {
+        assertThrows(IllegalArgumentException.class, () -> userService.patch(1, Map.of("id", 2), null));
+
+        verify(userRepository, never()).updateFields(anyInt(), any(), any());
     }
 
     @Test
     public void findByDateRangeTest() {
-        when(userRepository.findUsersByBirthDateAfterAndBirthDateBefore(any(), any())).thenReturn(List.of(user));
+        when(userRepository.findUsersByBirthDateAfterAndBirthDateBeforeOrderByBirthDateAscIdAsc(any(), any())).thenReturn(List.of(user));
 
         assertEquals(List.of(user), userService.findByDateRange(new Date(), new Date()));
 
-        verify(userRepository).findUsersByBirthDateAfterAndBirthDateBefore(any(), any());
+        verify(userRepository).findUsersByBirthDateAfterAndBirthDateBeforeOrderByBirthDateAscIdAsc(any(), any());
 
     }
 
     @Test
-    public void findByDateRangeInvalidInputTest() {
-        Date before = new Date(1900, 12, 12);
-        Date after = new Date(1800, 12, 12);
+    public void findByDateRangeIndexedTest() {
+        User first = User.builder().id(1).build();
+        User second = User.builder().id(2).build();
+        User third = User.builder().id(3).build();
+        when(birthDateIndex.isReady()).thenReturn(true);
+        when(birthDateIndex.findIds(any(), any())).thenReturn(new int[]{3, 1, 2});
+        when(userRepository.findAllById(List.of(3, 1))).thenReturn(List.of(first, third));
+        when(userRepository.findAllById(List.of(2))).thenReturn(List.of());
+
+        assertEquals(List.of(third, first), userService.findByDateRange(new Date(), new Date()));
+
+        verify(userRepository, never()).findUsersByBirthDateAfterAndBirthDateBeforeOrderByBirthDateAscIdAsc(any(), any());
+    }
 
-        assertThrows(IllegalArgumentException.class, () -> userService.findByDateRange(before, after));
+    @Test
+    public void searchFallsBackToPrefixQueryTest() {
+        when(searchIndex.isReady()).thenReturn(false);
+        when(userRepository.findByNameOrEmailPrefix(eq("las"), any())).thenReturn(List.of(user));
+
+        assertEquals(List.of(user), userService.search(" Las ", 2));
+
+        verify(searchIndex, never()).search(any(), anyInt());
+    }
+
+    @Test
+    public void searchEscapesWildcardsInPrefixQueryTest() {
+        when(searchIndex.isReady()).thenReturn(false);
+
+        userService.search("50%_off!", 2);
+
+        verify(userRepository).findByNameOrEmailPrefix(eq("50!%!_off!!"), any());
+    }
+
+    @Test
+    public void updateAllTest() {
+        User existing = User.builder().id(1).address("Old").build();
+        when(userRepository.findAllById(Set.of(1, 2))).thenReturn(List.of(existing));
+
+        Set<Integer> missing = userService.updateAll(Map.of(
+                1, Map.of("address", "New", "phoneNumber", "+123"),
+                2, Map.of("address", "Gone")));
+
+        assertEquals(Set.of(2), missing);
+        assertEquals("New", existing.getAddress());
+        assertEquals("+123", existing.getPhoneNumber());
+        verify(eventPublisher).publishEvent(argThat((UserChangedEvent event) ->
+                event.getId() == 1 && event.getChanges().equals(Map.of("address", "New", "phoneNumber", "+123"))));
+    }
+
+    @Test
+    public void findPageByDateRangeTest() {
+        User second = User.builder().id(2).birthDate(new Date(2001, 6, 26)).build();
+        User third = User.builder().id(3).birthDate(new Date(2002, 6, 26)).build();
+        when(userRepository.findPageByBirthDateRange(any(), any(), any(), anyInt(), any()))
+                .thenReturn(List.of(user, second, third));
+
+        UserPageDTO page = userService.findPageByDateRange(new Date(), new Date(), null, 2);
+
+        assertEquals(List.of(user, second), page.getUsers());
+        assertEquals(PageToken.of(second), PageToken.decode(page.getNext()));
     }
 
+    @Test
+    public void findPageByDateRangeLastPageTest() {
+        when(userRepository.findPageByBirthDateRange(any(), any(), any(), anyInt(), any())).thenReturn(List.of(user));
+
+        UserPageDTO page = userService.findPageByDateRange(new Date(), new Date(), null, 2);
 
+        assertEquals(List.of(user), page.getUsers());
+        assertNull(page.getNext());
+    }
 
+    @Test
+    public void findByDateRangeInvalidInputTest() {
+        Date before = new Date(1900, 12, 12);
+        Date after = new Date(1800, 12, 12);
 
+        assertThrows(IllegalArgumentException.class, () -> userService.findByDateRange(before, after));
+    }
 
+    private static User withId(int id) {
+        return User.builder().id(id).email(id + "@mail.com").birthDate(user.getBirthDate()).build();
+    }
 }
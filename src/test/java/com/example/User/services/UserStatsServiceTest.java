@@ -0,0 +1,104 @@
+package com.example.User.services;
+
+import com.example.User.dto.UserStatsDTO;
+import com.example.User.entities.User;
+import com.example.User.events.CommitBarrier;
+import com.example.User.events.UserChangedEvent;
+import com.example.User.events.UsersCreatedEvent;
+import com.example.User.repositories.UserRepository;
+import com.example.User.sharding.ShardTemplate;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class UserStatsServiceTest {
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private UserStatsService statsService;
+
+    @BeforeEach
+    void setUp() {
+        statsService = new UserStatsService(userRepository,
+                new CommitBarrier(userRepository, new ShardTemplate(1, 1), transactionManager), 18, 10, 3);
+        when(userRepository.countByBirthDate()).thenReturn(List.of(
+                new Object[]{yearsAgo(10), 2L},
+                new Object[]{yearsAgo(20), 1L},
+                new Object[]{yearsAgo(60), 4L}));
+        statsService.reconcile();
+    }
+
+    @Test
+    public void reconciledStatsTest() {
+        UserStatsDTO stats = statsService.getStats();
+
+        assertEquals(7, stats.getTotal());
+        assertEquals(Map.of("<18", 2L, "18-27", 1L, "28-37", 0L, "38+", 4L), stats.getByAgeBucket());
+        assertEquals(Long.valueOf(4), stats.getByBirthYear().get(LocalDate.now().minusYears(60).getYear()));
+        assertNotNull(stats.getReconciledAt());
+        assertSame(stats, statsService.getStats());
+    }
+
+    @Test
+    public void incrementalUpdatesTest() {
+        statsService.onUserChanged(UserChangedEvent.created(User.builder().id(1).birthDate(yearsAgo(30)).build()));
+        statsService.onUsersCreated(new UsersCreatedEvent(List.of(
+                User.builder().id(2).birthDate(yearsAgo(30)).build(),
+                User.builder().id(3).build())));
+        statsService.onUserChanged(UserChangedEvent.updated(4, Map.of("birthDate", yearsAgo(20)),
+                Map.of("birthDate", yearsAgo(10))));
+        statsService.onUserChanged(UserChangedEvent.updated(5, Map.of("address", "new address"), Map.of()));
+        statsService.onUserChanged(UserChangedEvent.deleted(User.builder().id(6).birthDate(yearsAgo(60)).build()));
+
+        UserStatsDTO stats = statsService.getStats();
+
+        assertEquals(8, stats.getTotal());
+        assertEquals(Map.of("<18", 1L, "18-27", 2L, "28-37", 2L, "38+", 3L), stats.getByAgeBucket());
+    }
+
+    @Test
+    public void reconcileCountsChangesOnceTest() {
+        // committed before the snapshot, so already in the counts below
+        when(userRepository.ping()).thenAnswer(invocation -> {
+            statsService.onUserChanged(UserChangedEvent.created(User.builder().id(8).birthDate(yearsAgo(20)).build()));
+            return 1;
+        });
+        // committed after the snapshot, so missing from them
+        when(userRepository.countByBirthDate()).thenAnswer(invocation -> {
+            statsService.onUserChanged(UserChangedEvent.created(User.builder().id(9).birthDate(yearsAgo(30)).build()));
+            return List.of(
+                    new Object[]{yearsAgo(10), 2L},
+                    new Object[]{yearsAgo(20), 2L},
+                    new Object[]{yearsAgo(60), 4L});
+        });
+
+        statsService.reconcile();
+        UserStatsDTO stats = statsService.getStats();
+
+        assertEquals(9, stats.getTotal());
+        assertEquals(Map.of("<18", 2L, "18-27", 2L, "28-37", 1L, "38+", 4L), stats.getByAgeBucket());
+    }
+
+    private static Date yearsAgo(int years) {
+        return Date.from(LocalDate.now().minusYears(years).minusDays(1)
+                .atStartOfDay(ZoneId.systemDefault()).toInstant());
+    }
+}
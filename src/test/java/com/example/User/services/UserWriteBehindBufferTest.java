@@ -0,0 +1,138 @@
+package com.example.User.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class UserWriteBehindBufferTest {
+    @Mock
+    private UserService userService;
+
+    private UserWriteBehindBuffer buffer;
+
+    @BeforeEach
+    void setUp() {
+        buffer = new UserWriteBehindBuffer(userService, new ConcurrentMapCacheManager("users"),
+                new SimpleMeterRegistry(), true, 10, 2, Duration.ofHours(1));
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        buffer.shutdown();
+    }
+
+    @Test
+    public void coalescesUpdatesPerUserTest() {
+        when(userService.updateAll(any())).thenReturn(Set.of());
+
+        assertTrue(buffer.enqueue(1, "address", "First"));
+        assertTrue(buffer.enqueue(1, "phoneNumber", "+1"));
+        assertTrue(buffer.enqueue(1, "address", "Second"));
+        buffer.flush();
+
+        verify(userService).updateAll(Map.of(1, Map.of("address", "Second", "phoneNumber", "+1")));
+        assertEquals(0, buffer.pending());
+    }
+
+    @Test
+    public void refusesNewUsersWhenFullTest() {
+        assertTrue(buffer.enqueue(1, "address", "A"));
+        assertTrue(buffer.enqueue(2, "address", "B"));
+
+        assertFalse(buffer.enqueue(3, "address", "C"));
+        assertTrue(buffer.enqueue(2, "address", "D"));
+    }
+
+    @Test
+    public void flushOfOneUserWritesItBeforeSynchronousWriteTest() {
+        when(userService.updateAll(any())).thenReturn(Set.of());
+        buffer.enqueue(1, "address", "Queued");
+        buffer.enqueue(2, "address", "Other");
+
+        buffer.flush(1);
+
+        verify(userService).updateAll(Map.of(1, Map.of("address", "Queued")));
+        assertEquals(1, buffer.pending());
+
+        buffer.flush();
+
+        verify(userService).updateAll(Map.of(2, Map.of("address", "Other")));
+    }
+
+    @Test
+    public void onlyWritesOfTheSameUserAreAwaitedTest() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(userService.updateAll(any())).thenAnswer(invocation -> {
+            started.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return Set.of();
+        });
+        buffer.enqueue(1, "address", "Queued");
+        CompletableFuture<Void> drain = CompletableFuture.runAsync(buffer::flush);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        CompletableFuture.runAsync(() -> {
+            buffer.flush(2);
+            buffer.discard(3);
+        }).get(1, TimeUnit.SECONDS);
+        CompletableFuture<Void> sameUser = CompletableFuture.runAsync(() -> buffer.flush(1));
+        Thread.sleep(100);
+        assertFalse(sameUser.isDone());
+
+        release.countDown();
+        drain.get(5, TimeUnit.SECONDS);
+        sameUser.get(5, TimeUnit.SECONDS);
+        verify(userService).updateAll(Map.of(1, Map.of("address", "Queued")));
+    }
+
+    @Test
+    public void discardDropsUpdatesOfDeletedUserTest() {
+        buffer.enqueue(1, "address", "Queued");
+
+        buffer.discard(1);
+        buffer.flush();
+
+        assertEquals(0, buffer.pending());
+        verify(userService, never()).updateAll(any());
+    }
+
+    @Test
+    public void retriesFailedBatchPerUserTest() {
+        when(userService.updateAll(any())).thenAnswer(invocation -> {
+            Map<Integer, Map<String, Object>> batch = invocation.getArgument(0);
+            if(batch.containsKey(2)) {
+                throw new IllegalStateException("Data too long");
+            }
+            return Set.of();
+        });
+        buffer.enqueue(1, "address", "Valid");
+        buffer.enqueue(2, "address", "Invalid");
+
+        buffer.flush();
+
+        verify(userService).updateAll(Map.of(1, Map.of("address", "Valid")));
+        assertEquals(0, buffer.pending());
+    }
+}
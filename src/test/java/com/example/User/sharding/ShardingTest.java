@@ -0,0 +1,113 @@
+package com.example.User.sharding;
+
+import com.example.User.dto.UserPageDTO;
+import com.example.User.entities.User;
+import com.example.User.services.UserService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+@SpringBootTest(properties = {
+        "users.sharding.shards[0].url=" + ShardingTest.URL + "0" + ShardingTest.OPTIONS,
+        "users.sharding.shards[0].username=sa",
+        "users.sharding.shards[1].url=" + ShardingTest.URL + "1" + ShardingTest.OPTIONS,
+        "users.sharding.shards[1].username=sa",
+        "users.sharding.shards[2].url=" + ShardingTest.URL + "2" + ShardingTest.OPTIONS,
+        "users.sharding.shards[2].username=sa"
+})
+public class ShardingTest {
+    static final String URL = "jdbc:h2:mem:sharding-test-";
+    static final String OPTIONS = ";DB_CLOSE_DELAY=-1;NON_KEYWORDS=USER;CASE_INSENSITIVE_IDENTIFIERS=TRUE";
+
+    @Autowired
+    private UserService userService;
+
+    @Test
+    public void spreadsUsersAndRoutesByIdTest() {
+        for(int i = 0; i < 6; i++)
+            userService.save(user("spread" + i + "@mail.com", new Date(-600_000_000_000L + i * 86_400_000L)));
+
+        List<User> users = userService.findByDateRange(new Date(-700_000_000_000L), new Date(-500_000_000_000L));
+        assertEquals(6, users.size());
+        for(int shard = 0; shard < 3; shard++) {
+            List<Integer> ids = idsOn(shard, "spread%");
+            assertEquals(2, ids.size());
+            for(int id : ids)
+                assertEquals(shard, Math.floorMod(id, 3));
+        }
+        for(User user : users)
+            assertEquals(user.getEmail(), userService.findById(user.getId()).getEmail());
+
+        User first = users.get(0);
+        userService.updateAddress(first.getId(), "Moved", null);
+        assertEquals("Moved", userService.findById(first.getId()).getAddress());
+        userService.delete(first.getId());
+        assertTrue(idsOn(Math.floorMod(first.getId(), 3), "spread%").stream().noneMatch(id -> id == first.getId()));
+
+        Set<Integer> missing = userService.updateAll(Map.of(
+                users.get(1).getId(), Map.of("phoneNumber", "100"),
+                users.get(2).getId(), Map.of("phoneNumber", "200"),
+                first.getId(), Map.of("phoneNumber", "300")));
+        assertEquals(Set.of(first.getId()), missing);
+        int updated = users.get(2).getId();
+        assertEquals("200", shard(Math.floorMod(updated, 3))
+                .queryForObject("select phonenumber from user where id = ?", String.class, updated));
+    }
+
+    @Test
+    public void mergesDateRangeAcrossShardsTest() {
+        List<User> batch = new ArrayList<>();
+        for(int i = 0; i < 3; i++)
+            batch.add(user("batch" + i + "@mail.com", new Date(300_000_000_000L - i * 86_400_000L)));
+        userService.saveAll(batch);
+        for(int i = 0; i < 4; i++)
+            userService.save(user("merge" + i + "@mail.com", new Date(300_000_000_000L + (i % 2 == 0 ? i : -i) * 43_200_000L)));
+
+        Date from = new Date(200_000_000_000L);
+        Date to = new Date(400_000_000_000L);
+        List<User> users = userService.findByDateRange(from, to);
+        assertEquals(7, users.size());
+        List<User> sorted = new ArrayList<>(users);
+        sorted.sort(Comparator.comparing(User::getBirthDate).thenComparingInt(User::getId));
+        assertEquals(sorted, users);
+
+        List<User> paged = new ArrayList<>();
+        String token = null;
+        do {
+            UserPageDTO page = userService.findPageByDateRange(from, to, token, 3);
+            paged.addAll(page.getUsers());
+            token = page.getNext();
+        } while (token != null);
+        assertEquals(users.stream().map(User::getId).toList(), paged.stream().map(User::getId).toList());
+
+        List<Integer> streamed = new ArrayList<>();
+        userService.streamByDateRange(from, to, user -> streamed.add(user.getId()));
+        assertEquals(users.stream().map(User::getId).toList(), streamed);
+        assertNull(userService.findPageByDateRange(from, to, null, 7).getNext());
+    }
+
+    private static User user(String email, Date birthDate) {
+        return User.builder().email(email).lastName("Last").firstName("First").birthDate(birthDate).build();
+    }
+
+    private static List<Integer> idsOn(int shard, String emailPattern) {
+        return shard(shard).queryForList("select id from user where email like ?", Integer.class, emailPattern);
+    }
+
+    private static JdbcTemplate shard(int shard) {
+        return new JdbcTemplate(new DriverManagerDataSource(URL + shard + OPTIONS, "sa", ""));
+    }
+}